@@ -0,0 +1,175 @@
+package com.chanse.messaging.codec;
+
+import com.chanse.messaging.utils.BitCodec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds codecs that are specialized to the exact layout of one message type.
+ *
+ * The generic MessageLayout codec loops over its arrays and has to load the offset, shift and mask of every field
+ * on every decode. A specialized codec is instead a tree of MethodHandles, one per field, with that fields constants
+ * bound straight into it and the extraction picked for how many bytes the field spans. Once a MethodHandle is invoked
+ * often enough the JVM customizes it and the bound values become true constants to the JIT, which leaves straight line
+ * code with no per-field loads or branches.
+ *
+ * Specializing costs a few milliseconds per message type, so it is only meant for the few very hot message types
+ * on a link. See StaticIdDecoder.setCodecSpecializationEnabled
+ */
+public final class CodecSpecializer {
+
+    private static final MethodType DECODE_TYPE = MethodType.methodType(void.class, byte[].class, int.class, long[].class);
+
+    private static final MethodHandle EXTRACT_1;
+    private static final MethodHandle EXTRACT_2;
+    private static final MethodHandle EXTRACT_4;
+    private static final MethodHandle EXTRACT_N;
+    private static final MethodHandle EXTRACT_WIDE;
+    private static final MethodHandle EXTRACT_NOTHING;
+    private static final MethodHandle DECODE_NOTHING;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType extractType = MethodType.methodType(void.class, byte[].class, int.class, long[].class,
+                    int.class, int.class, int.class, long.class);
+            EXTRACT_1 = lookup.findStatic(CodecSpecializer.class, "extract1", extractType);
+            EXTRACT_2 = lookup.findStatic(CodecSpecializer.class, "extract2", extractType);
+            EXTRACT_4 = lookup.findStatic(CodecSpecializer.class, "extract4", extractType);
+            EXTRACT_N = lookup.findStatic(CodecSpecializer.class, "extractN", MethodType.methodType(void.class,
+                    byte[].class, int.class, long[].class, int.class, int.class, int.class, int.class, long.class));
+            EXTRACT_WIDE = lookup.findStatic(CodecSpecializer.class, "extractWide", MethodType.methodType(void.class,
+                    byte[].class, int.class, long[].class, int.class, int.class, int.class));
+            EXTRACT_NOTHING = lookup.findStatic(CodecSpecializer.class, "extractNothing", MethodType.methodType(void.class,
+                    byte[].class, int.class, long[].class, int.class));
+            DECODE_NOTHING = lookup.findStatic(CodecSpecializer.class, "decodeNothing", DECODE_TYPE);
+        }
+        catch(NoSuchMethodException | IllegalAccessException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CodecSpecializer(){}
+
+    /**
+     * Builds a codec specialized to the given layout
+     * @param layout the layout of the message to specialize
+     * @return a codec that decodes exactly like the layout does
+     */
+    public static MessageCodec specialize(MessageLayout layout){
+        List<MethodHandle> decoders = new ArrayList<>();
+
+        for(int i = 0; i < layout.getFieldCount(); i++){
+            int length = layout.getFieldBitLength(i);
+            int span = layout.getFieldByteSpan(i);
+            int first = layout.getFieldFirstByte(i);
+            int shift = layout.getFieldShift(i);
+            long mask = layout.getFieldMask(i);
+
+            if(length == 0 || length > BitCodec.MAX_PRIMITIVE_BITS){
+                // The layout leaves empty and wide fields at 0, the specialized codec has to as well
+                decoders.add(MethodHandles.insertArguments(EXTRACT_NOTHING, 3, i));
+                continue;
+            }
+
+            if(span > 8){
+                decoders.add(MethodHandles.insertArguments(EXTRACT_WIDE, 3, i, layout.getFieldBitOffset(i), length));
+                continue;
+            }
+
+            if(span == 1)
+                decoders.add(MethodHandles.insertArguments(EXTRACT_1, 3, i, first, shift, mask));
+            else if(span == 2)
+                decoders.add(MethodHandles.insertArguments(EXTRACT_2, 3, i, first, shift, mask));
+            else if(span == 4)
+                decoders.add(MethodHandles.insertArguments(EXTRACT_4, 3, i, first, shift, mask));
+            else
+                decoders.add(MethodHandles.insertArguments(EXTRACT_N, 3, i, first, span, shift, mask));
+        }
+
+        MethodHandle decodeHandle = decoders.isEmpty() ? DECODE_NOTHING : chain(decoders, 0, decoders.size());
+        return new SpecializedMessageCodec(layout, decodeHandle);
+    }
+
+    /**
+     * Joins the handles so each one runs in order. Done as a balanced tree so messages with hundreds of fields do not
+     * end up with hundreds of nested calls.
+     */
+    private static MethodHandle chain(List<MethodHandle> handles, int from, int to){
+        if(to - from == 1)
+            return handles.get(from);
+        int middle = (from + to) >>> 1;
+        return MethodHandles.foldArguments(chain(handles, middle, to), chain(handles, from, middle));
+    }
+
+    /**
+     * The codec handed back by specialize. Invokes the handle exactly so there is no argument conversion
+     */
+    static final class SpecializedMessageCodec implements MessageCodec {
+        private final MessageLayout layout;
+        private final MethodHandle decodeHandle;
+
+        SpecializedMessageCodec(MessageLayout layout, MethodHandle decodeHandle){
+            this.layout = layout;
+            this.decodeHandle = decodeHandle;
+        }
+
+        @Override
+        public MessageLayout getLayout(){
+            return layout;
+        }
+
+        @Override
+        public void decode(byte[] buffer, int offset, long[] values){
+            try {
+                decodeHandle.invokeExact(buffer, offset, values);
+            }
+            catch(RuntimeException | Error e){
+                throw e;
+            }
+            catch(Throwable t){
+                throw new IllegalStateException("Specialized decode of "+layout.getMessageName()+" failed", t);
+            }
+        }
+    }
+
+    private static void extract1(byte[] buffer, int offset, long[] values, int index, int first, int shift, long mask){
+        values[index] = ((buffer[offset + first] & 0xFF) >>> shift) & mask;
+    }
+
+    private static void extract2(byte[] buffer, int offset, long[] values, int index, int first, int shift, long mask){
+        int position = offset + first;
+        long accumulator = ((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF);
+        values[index] = (accumulator >>> shift) & mask;
+    }
+
+    private static void extract4(byte[] buffer, int offset, long[] values, int index, int first, int shift, long mask){
+        int position = offset + first;
+        long accumulator = ((long)(buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16) |
+                ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+        values[index] = (accumulator >>> shift) & mask;
+    }
+
+    private static void extractN(byte[] buffer, int offset, long[] values, int index, int first, int span, int shift, long mask){
+        int position = offset + first;
+        long accumulator = 0L;
+        for(int b = 0; b < span; b++)
+            accumulator = (accumulator << 8) | (buffer[position + b] & 0xFF);
+        values[index] = (accumulator >>> shift) & mask;
+    }
+
+    private static void extractWide(byte[] buffer, int offset, long[] values, int index, int bitOffset, int bitLength){
+        values[index] = BitCodec.readBits(buffer, offset, bitOffset, bitLength);
+    }
+
+    private static void extractNothing(byte[] buffer, int offset, long[] values, int index){
+        values[index] = 0L;
+    }
+
+    private static void decodeNothing(byte[] buffer, int offset, long[] values){
+    }
+}
@@ -0,0 +1,24 @@
+package com.chanse.messaging.codec;
+
+/**
+ * A Message Codec reads the raw field values of one message type off of the wire into a long[] of values.
+ *
+ * MessageLayout is the generic codec that works for any message by looping over its arrays. Hot message types can
+ * be given a specialized codec (see CodecSpecializer) that has the exact offsets of that message baked in.
+ * Every codec for a layout must produce exactly the same values as the layout itself.
+ */
+public interface MessageCodec {
+
+    /**
+     * @return the layout this codec was built for
+     */
+    MessageLayout getLayout();
+
+    /**
+     * Decodes every field of a message that starts at the offset in the buffer into the values array
+     * @param buffer data holding the message
+     * @param offset the byte the message starts at
+     * @param values array of at least getLayout().getFieldCount() that will hold each fields unsigned value
+     */
+    void decode(byte[] buffer, int offset, long[] values);
+}
@@ -0,0 +1,380 @@
+package com.chanse.messaging.codec;
+
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import com.chanse.messaging.exceptions.InvalidMessageLayoutException;
+import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.words.InterfaceDataWord;
+
+import java.util.List;
+
+/**
+ * A Message Layout is an immutable, precompiled plan of where every field of a message type lives on the wire.
+ *
+ * Rather than walking a messages words and fields as lists and working out offsets every time a message is decoded,
+ * the layout is compiled once (when a message is registered with a decoder) into flat arrays of absolute bit offsets,
+ * lengths, masks and byte spans. Decoding then becomes a tight loop over those arrays.
+ *
+ * Fields are numbered in wire order, first by word and then by the order the fields were added to the word.
+ * Fields wider than 64 bits are still laid out but cannot be read into a long, they are left at 0 by decode()
+ * and handled by the BigInteger fallback when filling a message.
+ */
+public final class MessageLayout implements MessageCodec {
+
+    // Name of the message this layout was compiled from
+    private final String messageName;
+
+    // How many bytes a message of this type takes up on the wire
+    private final int totalBytes;
+
+    // Where each word starts in the message and how many bytes it has
+    private final int[] wordByteOffsets;
+    private final int[] wordByteLengths;
+
+    // What word a field is on and what position it has inside of that words field list
+    private final int[] fieldWordIndexes;
+    private final int[] fieldIndexesInWord;
+    private final String[] fieldNames;
+
+    // Bit offsets are absolute from the start of the message
+    private final int[] fieldBitOffsets;
+    private final int[] fieldBitLengths;
+    private final long[] fieldMasks;
+
+    // The first byte a field touches, how many bytes it touches, and how far to shift right once those bytes are read
+    private final int[] fieldFirstBytes;
+    private final int[] fieldByteSpans;
+    private final int[] fieldShifts;
+
+    private MessageLayout(String messageName, int totalBytes, int[] wordByteOffsets, int[] wordByteLengths,
+                          int[] fieldWordIndexes, int[] fieldIndexesInWord, String[] fieldNames,
+                          int[] fieldBitOffsets, int[] fieldBitLengths){
+        this.messageName = messageName;
+        this.totalBytes = totalBytes;
+        this.wordByteOffsets = wordByteOffsets;
+        this.wordByteLengths = wordByteLengths;
+        this.fieldWordIndexes = fieldWordIndexes;
+        this.fieldIndexesInWord = fieldIndexesInWord;
+        this.fieldNames = fieldNames;
+        this.fieldBitOffsets = fieldBitOffsets;
+        this.fieldBitLengths = fieldBitLengths;
+
+        int fieldCount = fieldBitOffsets.length;
+        this.fieldMasks = new long[fieldCount];
+        this.fieldFirstBytes = new int[fieldCount];
+        this.fieldByteSpans = new int[fieldCount];
+        this.fieldShifts = new int[fieldCount];
+        for(int i = 0; i < fieldCount; i++){
+            int length = fieldBitLengths[i];
+            int firstBit = fieldBitOffsets[i];
+            fieldMasks[i] = BitCodec.maskFor(length);
+            fieldFirstBytes[i] = firstBit >>> 3;
+            fieldByteSpans[i] = length == 0 ? 0 : ((firstBit + length - 1) >>> 3) - fieldFirstBytes[i] + 1;
+            fieldShifts[i] = (fieldByteSpans[i] * 8) - (firstBit & 7) - length;
+        }
+    }
+
+    /**
+     * Compiles the layout of a message. The message is only read, it is not held onto.
+     * @param message the message to compile a layout for
+     * @return the compiled layout
+     * @throws InvalidMessageLayoutException if any field over extends the word it is placed in
+     */
+    public static MessageLayout compile(InterfaceMessage message) throws InvalidMessageLayoutException {
+        List<InterfaceDataWord> words = message.getDataWords();
+        StringBuilder errorMessage = new StringBuilder();
+
+        int fieldCount = 0;
+        for(InterfaceDataWord word : words)
+            fieldCount += word.getDataFields().size();
+
+        int[] wordByteOffsets = new int[words.size()];
+        int[] wordByteLengths = new int[words.size()];
+        int[] fieldWordIndexes = new int[fieldCount];
+        int[] fieldIndexesInWord = new int[fieldCount];
+        String[] fieldNames = new String[fieldCount];
+        int[] fieldBitOffsets = new int[fieldCount];
+        int[] fieldBitLengths = new int[fieldCount];
+
+        int byteOffset = 0;
+        int fieldCounter = 0;
+        for(int w = 0; w < words.size(); w++){
+            InterfaceDataWord word = words.get(w);
+            wordByteOffsets[w] = byteOffset;
+            wordByteLengths[w] = word.getNumberOfBytes();
+
+            List<InterfaceDataField> fields = word.getDataFields();
+            for(int f = 0; f < fields.size(); f++){
+                InterfaceDataField field = fields.get(f);
+                if(field.getBitOffset() < 0 || field.getBitLength() < 0 ||
+                        field.getBitOffset() + field.getBitLength() > word.getNumberOfBytes() * 8L)
+                    errorMessage.append("Field "+field.getName()+" with offset "+field.getBitOffset()+" and length "+
+                            field.getBitLength()+" does not fit in word "+word.getWordName()+" of "+word.getNumberOfBytes()+" bytes.\n");
+
+                fieldWordIndexes[fieldCounter] = w;
+                fieldIndexesInWord[fieldCounter] = f;
+                fieldNames[fieldCounter] = field.getName();
+                fieldBitOffsets[fieldCounter] = (byteOffset * 8) + (int)field.getBitOffset();
+                fieldBitLengths[fieldCounter] = (int)field.getBitLength();
+                fieldCounter++;
+            }
+            byteOffset += word.getNumberOfBytes();
+        }
+
+        if(errorMessage.length() != 0)
+            throw new InvalidMessageLayoutException("Unable to compile a layout for message "+message.getMessageName()+":\n"+errorMessage);
+
+        return new MessageLayout(message.getMessageName(), byteOffset, wordByteOffsets, wordByteLengths,
+                fieldWordIndexes, fieldIndexesInWord, fieldNames, fieldBitOffsets, fieldBitLengths);
+    }
+
+    @Override
+    public MessageLayout getLayout(){
+        return this;
+    }
+
+    public String getMessageName(){
+        return messageName;
+    }
+
+    public int getTotalBytes(){
+        return totalBytes;
+    }
+
+    public int getWordCount(){
+        return wordByteOffsets.length;
+    }
+
+    public int getWordByteOffset(int wordIndex){
+        return wordByteOffsets[wordIndex];
+    }
+
+    public int getWordByteLength(int wordIndex){
+        return wordByteLengths[wordIndex];
+    }
+
+    public int getFieldCount(){
+        return fieldBitOffsets.length;
+    }
+
+    public String getFieldName(int fieldIndex){
+        return fieldNames[fieldIndex];
+    }
+
+    public int getFieldWordIndex(int fieldIndex){
+        return fieldWordIndexes[fieldIndex];
+    }
+
+    public int getFieldIndexInWord(int fieldIndex){
+        return fieldIndexesInWord[fieldIndex];
+    }
+
+    public int getFieldBitOffset(int fieldIndex){
+        return fieldBitOffsets[fieldIndex];
+    }
+
+    public int getFieldBitLength(int fieldIndex){
+        return fieldBitLengths[fieldIndex];
+    }
+
+    public long getFieldMask(int fieldIndex){
+        return fieldMasks[fieldIndex];
+    }
+
+    public int getFieldFirstByte(int fieldIndex){
+        return fieldFirstBytes[fieldIndex];
+    }
+
+    public int getFieldByteSpan(int fieldIndex){
+        return fieldByteSpans[fieldIndex];
+    }
+
+    public int getFieldShift(int fieldIndex){
+        return fieldShifts[fieldIndex];
+    }
+
+    /**
+     * Finds the index of a field by name. Only meant to be called while setting up, not on the decode path
+     * @return the index of the first field with the name or -1 if there is no such field
+     */
+    public int indexOf(String fieldName){
+        for(int i = 0; i < fieldNames.length; i++){
+            if(fieldNames[i].equals(fieldName))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a single field of a message that starts at the offset in the buffer
+     */
+    public long readField(byte[] buffer, int offset, int fieldIndex){
+        int span = fieldByteSpans[fieldIndex];
+        if(span > 8)
+            return BitCodec.readBits(buffer, offset, fieldBitOffsets[fieldIndex], fieldBitLengths[fieldIndex]);
+
+        int first = offset + fieldFirstBytes[fieldIndex];
+        long accumulator = 0L;
+        for(int b = 0; b < span; b++)
+            accumulator = (accumulator << 8) | (buffer[first + b] & 0xFF);
+        return (accumulator >>> fieldShifts[fieldIndex]) & fieldMasks[fieldIndex];
+    }
+
+    /**
+     * Decodes every field of a message that starts at the offset in the buffer into the values array
+     * @param buffer data holding the message
+     * @param offset the byte the message starts at
+     * @param values array of at least getFieldCount() that will have each fields unsigned value placed in it
+     */
+    @Override
+    public void decode(byte[] buffer, int offset, long[] values){
+        for(int i = 0; i < fieldBitOffsets.length; i++){
+            int span = fieldByteSpans[i];
+            if(fieldBitLengths[i] > BitCodec.MAX_PRIMITIVE_BITS){
+                values[i] = 0L;
+            }
+            else if(span > 8){
+                values[i] = BitCodec.readBits(buffer, offset, fieldBitOffsets[i], fieldBitLengths[i]);
+            }
+            else{
+                int first = offset + fieldFirstBytes[i];
+                long accumulator = 0L;
+                for(int b = 0; b < span; b++)
+                    accumulator = (accumulator << 8) | (buffer[first + b] & 0xFF);
+                values[i] = (accumulator >>> fieldShifts[i]) & fieldMasks[i];
+            }
+        }
+    }
+
+    /**
+     * Fills a message instance of this layouts type from a message that starts at the offset in the buffer.
+     * The message must have the same words and fields that the layout was compiled from (IE a clone of it)
+     * @param message the message to fill in
+     * @param buffer the data holding the message
+     * @param offset the byte the message starts at
+     * @return the number of bytes read to fill the message
+     * @throws BaseMessagingException if there is not enough data for the message
+     */
+    public int fill(InterfaceMessage message, byte[] buffer, int offset) throws BaseMessagingException {
+        checkFits(buffer, offset);
+        long[] values = new long[getFieldCount()];
+        decode(buffer, offset, values);
+        return apply(message, values, buffer, offset);
+    }
+
+    /**
+     * Sets already decoded values onto a message instance of this layouts type. Fields wider than 64 bits are read
+     * from the buffer since they could not be decoded into the values.
+     *
+     * The bytes of the message are copied straight from the buffer into the message and word data, so the fields take
+     * their values without being marked dirty and nothing is written back out of them. Fields that do not take values
+     * from data (static fields that already have one) keep their value and their bits are written over the copy.
+     * @param message the message to set the values on
+     * @param values the values decoded by a codec of this layout
+     * @param buffer the data holding the message
+     * @param offset the byte the message starts at
+     * @return the number of bytes the message takes up
+     */
+    public int apply(InterfaceMessage message, long[] values, byte[] buffer, int offset){
+        byte[] messageData = message.getMessageData();
+        if(messageData.length != totalBytes){
+            messageData = new byte[totalBytes];
+            message.setMessageData(messageData);
+        }
+        System.arraycopy(buffer, offset, messageData, 0, totalBytes);
+
+        List<InterfaceDataWord> words = message.getDataWords();
+        int i = 0;
+        for(int w = 0; w < wordByteOffsets.length; w++){
+            InterfaceDataWord word = words.get(w);
+            List<InterfaceDataField> fields = word.getDataFields();
+
+            // Fields still bound to the old word data read their old value from it, so the fields go before the copy
+            for(int f = 0; f < fields.size(); f++, i++){
+                InterfaceDataField field = fields.get(f);
+                int length = fieldBitLengths[i];
+                boolean taken = length > BitCodec.MAX_PRIMITIVE_BITS ?
+                        field.takeDataBinaryString(BitCodec.readBinaryString(buffer, offset, fieldBitOffsets[i], length)) :
+                        field.takeRawBits(values[i]);
+                if(!taken)
+                    field.writeBitsTo(messageData, wordByteOffsets[w]);
+            }
+
+            System.arraycopy(messageData, wordByteOffsets[w], word.getWordData(), 0, wordByteLengths[w]);
+            word.clearDirtyFields();
+        }
+        message.clearDirtyWords();
+
+        return totalBytes;
+    }
+
+    /**
+     * Encodes a message instance of this layouts type into the buffer. Each words data is copied into place and then
+     * every field is written over it at its place in the layout, so fields that have changed do not have to be
+     * pushed into their words or the message first. Neither the message nor its words are changed.
+     * @param message the message to encode
+     * @param buffer the buffer to write into
+     * @param offset what byte of the buffer to start writing at
+     * @return the number of bytes written
+     * @throws IndexOutOfBoundsException if the message does not fit in the buffer after the offset
+     */
+    public int encode(InterfaceMessage message, byte[] buffer, int offset){
+        if(offset < 0 || buffer.length - offset < totalBytes)
+            throw new IndexOutOfBoundsException("Message "+messageName+" needs "+totalBytes+" bytes but only "+
+                    (buffer.length - offset)+" bytes are available at offset "+offset);
+
+        List<InterfaceDataWord> words = message.getDataWords();
+        for(int w = 0; w < wordByteOffsets.length; w++){
+            InterfaceDataWord word = words.get(w);
+            int wordStart = offset + wordByteOffsets[w];
+            System.arraycopy(word.getWordData(), 0, buffer, wordStart, wordByteLengths[w]);
+            for(InterfaceDataField field : word.getDataFields())
+                field.writeBitsTo(buffer, wordStart);
+        }
+
+        return totalBytes;
+    }
+
+    /**
+     * Lazy version of apply. Each fields bits are copied into its words data and the field is bound to that data, so
+     * no field value is created and no change event is fired until someone asks a field for its value. Fields that do
+     * not take values from data (static fields that already have one) keep their value and their bits on the word.
+     * @param message the message to set the values on
+     * @param values the values decoded by a codec of this layout
+     * @param buffer the data holding the message
+     * @param offset the byte the message starts at
+     * @return the number of bytes the message takes up
+     */
+    public int bind(InterfaceMessage message, long[] values, byte[] buffer, int offset){
+        List<InterfaceDataWord> words = message.getDataWords();
+        for(int i = 0; i < fieldBitOffsets.length; i++){
+            InterfaceDataWord word = words.get(fieldWordIndexes[i]);
+            InterfaceDataField field = word.getDataFields().get(fieldIndexesInWord[i]);
+            byte[] wordData = word.getWordData();
+            if(!field.bindToData(wordData, 0))
+                continue;
+
+            int length = fieldBitLengths[i];
+            if(length > BitCodec.MAX_PRIMITIVE_BITS)
+                BitCodec.writeBigBits(wordData, 0, field.getBitOffset(), length,
+                        BitCodec.readBigBits(buffer, offset, fieldBitOffsets[i], length));
+            else
+                BitCodec.writeBits(wordData, 0, field.getBitOffset(), length, values[i]);
+        }
+        for(InterfaceDataWord word : words)
+            word.markDataDirty();
+        message.recalculateMessageAsBinaryString();
+
+        return totalBytes;
+    }
+
+    /**
+     * @throws BaseMessagingException if there are not enough bytes after the offset to hold a message of this layout
+     */
+    public void checkFits(byte[] buffer, int offset) throws BaseMessagingException {
+        if(offset < 0 || buffer.length - offset < totalBytes)
+            throw new BaseMessagingException("Failed to fill message with name: "+messageName+" it needs "+totalBytes+
+                    " bytes but only "+(buffer.length - offset)+" bytes were given.");
+    }
+}
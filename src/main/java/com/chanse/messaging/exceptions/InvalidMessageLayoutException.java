@@ -0,0 +1,11 @@
+package com.chanse.messaging.exceptions;
+
+/**
+ * Exception that will be thrown whenever a message is configured in a way that cannot be laid out on the wire
+ * IE a field that does not fit inside of the word that holds it
+ */
+public class InvalidMessageLayoutException extends BaseMessagingException {
+    public InvalidMessageLayoutException(String message){
+        super(message);
+    }
+}
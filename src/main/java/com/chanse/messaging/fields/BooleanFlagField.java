@@ -0,0 +1,43 @@
+package com.chanse.messaging.fields;
+
+import lombok.Data;
+
+/**
+ * A Boolean Flag Field is a single bit flag on a word. It is true when its bit is set.
+ *
+ * Flags wider than one bit are allowed for interfaces that spend a few bits on a flag. They are true if any of their
+ * bits are set and setting them true sets only their lowest bit.
+ *
+ * Data value of a Boolean Flag Field will be a Boolean
+ */
+@Data
+public class BooleanFlagField extends PrimitiveDataField<Boolean> {
+
+    public BooleanFlagField(){
+        super();
+        this.bitLength = 1;
+    }
+
+    public boolean getBoolean(){
+        return getRawBits() != 0L;
+    }
+
+    public void setBoolean(boolean value){
+        setRawBits(value ? 1L : 0L);
+    }
+
+    @Override
+    protected Boolean toDataValue(long rawBits) {
+        return rawBits != 0L;
+    }
+
+    @Override
+    protected long fromDataValue(Boolean dataValue) {
+        return dataValue ? 1L : 0L;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj);
+    }
+}
@@ -1,12 +1,8 @@
 package com.chanse.messaging.fields;
 
-import com.chanse.messaging.utils.BitUtils;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
+import com.chanse.messaging.utils.BitCodec;
+import lombok.*;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,13 +10,20 @@ import java.util.List;
  * The Enum Data fields is a standard interface Data field that holds the model for its data changing. It reacts to the value
  * of the field changing only if the value of the enum itself has changed. Multiple interfaces will have multiple enums
  * mapping to the same value.
+ *
+ * Decoding a value never scans the allowed enums. A lookup table is built from them the first time a value is decoded
+ * after the list is set or grows: a plain array indexed by value when the values are close together, otherwise an
+ * int keyed open addressing hash. Values with no enum decode to the unknownValueEnum. If an enum in the list is
+ * replaced in place call rebuildEnumLookup, the table can only notice the list being swapped or changing size.
  */
 @Data
-@AllArgsConstructor
 public class EnumDataField extends InterfaceDataField<EnumDataField.FieldSpecificEnum> {
 
     static final FieldSpecificEnum UT_ERROR_ENUM = new FieldSpecificEnum("UT_Internal_Error", 0);
 
+    // Enum values spread over a range this size or smaller are looked up with a plain array indexed by value
+    static final int MAX_DENSE_RANGE = 1024;
+
     /**
      * An internal class for the purpose of allowing us to use spring libraries in the future if we want to rather
      * than the native java enum This could be very helpfull for communicating intraservice, saving/loading, and suprisingly taxes!
@@ -37,12 +40,133 @@ public class EnumDataField extends InterfaceDataField<EnumDataField.FieldSpecifi
         this.allowedEnums = new ArrayList<FieldSpecificEnum>();
     }
 
+    public EnumDataField(List<FieldSpecificEnum> allowedEnums){
+        super();
+        setAllowedEnums(allowedEnums);
+    }
+
     protected List<FieldSpecificEnum> allowedEnums;
 
+    // What a value that none of the allowed enums have decodes to
+    protected FieldSpecificEnum unknownValueEnum = UT_ERROR_ENUM;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Dense lookup, the enum for a value is at [value - denseLookupBase]
+    protected transient FieldSpecificEnum[] denseLookup;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected transient int denseLookupBase;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Hashed lookup for sparse values, a null enum marks an empty slot
+    protected transient int[] hashedLookupKeys;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected transient FieldSpecificEnum[] hashedLookupEnums;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // The list and list size the lookup was built from so a swapped or grown list is noticed
+    protected transient List<FieldSpecificEnum> lookupBuiltFrom;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected transient int lookupBuiltSize = -1;
+
+    public void setAllowedEnums(List<FieldSpecificEnum> allowedEnums){
+        this.allowedEnums = allowedEnums;
+        rebuildEnumLookup();
+    }
+
+    /**
+     * Finds the enum for a value without scanning the allowed enums
+     * @param value the value decoded off the wire
+     * @return the first allowed enum with that value or the unknownValueEnum if there is none
+     */
+    public FieldSpecificEnum lookupEnum(int value){
+        if(lookupBuiltFrom != allowedEnums || allowedEnums == null || lookupBuiltSize != allowedEnums.size())
+            rebuildEnumLookup();
+
+        if(denseLookup != null){
+            int index = value - denseLookupBase;
+            FieldSpecificEnum found = (index >= 0 && index < denseLookup.length) ? denseLookup[index] : null;
+            return found != null ? found : unknownValueEnum;
+        }
+
+        int mask = hashedLookupKeys.length - 1;
+        for(int slot = hashSlot(value, mask); hashedLookupEnums[slot] != null; slot = (slot + 1) & mask){
+            if(hashedLookupKeys[slot] == value)
+                return hashedLookupEnums[slot];
+        }
+        return unknownValueEnum;
+    }
+
+    /**
+     * Rebuilds the value lookup table from the allowed enums. When two enums share a value the first one wins.
+     */
+    public void rebuildEnumLookup(){
+        List<FieldSpecificEnum> enums = allowedEnums == null ? new ArrayList<>() : allowedEnums;
+        lookupBuiltFrom = allowedEnums;
+        lookupBuiltSize = enums.size();
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int count = 0;
+        for(FieldSpecificEnum e : enums){
+            if(e == null || e.enumValue == null)
+                continue;
+            min = Math.min(min, e.enumValue);
+            max = Math.max(max, e.enumValue);
+            count++;
+        }
+
+        if(count == 0 || max - min < MAX_DENSE_RANGE){
+            denseLookupBase = count == 0 ? 0 : (int) min;
+            denseLookup = new FieldSpecificEnum[count == 0 ? 0 : (int)(max - min) + 1];
+            hashedLookupKeys = null;
+            hashedLookupEnums = null;
+            for(FieldSpecificEnum e : enums){
+                if(e == null || e.enumValue == null)
+                    continue;
+                int index = e.enumValue - denseLookupBase;
+                if(denseLookup[index] == null)
+                    denseLookup[index] = e;
+            }
+            return;
+        }
+
+        // Keep the table at most half full so probes stay short
+        int capacity = Integer.highestOneBit(count * 2 - 1) << 1;
+        int mask = capacity - 1;
+        denseLookup = null;
+        hashedLookupKeys = new int[capacity];
+        hashedLookupEnums = new FieldSpecificEnum[capacity];
+        for(FieldSpecificEnum e : enums){
+            if(e == null || e.enumValue == null)
+                continue;
+            int value = e.enumValue;
+            int slot = hashSlot(value, mask);
+            while(hashedLookupEnums[slot] != null && hashedLookupKeys[slot] != value)
+                slot = (slot + 1) & mask;
+            if(hashedLookupEnums[slot] == null){
+                hashedLookupKeys[slot] = value;
+                hashedLookupEnums[slot] = e;
+            }
+        }
+    }
+
+    private static int hashSlot(int value, int mask){
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
     @Override
     protected void updateBinaryString() {
-        BigInteger bigIntEnumRepresentation = BigInteger.valueOf( ((FieldSpecificEnum)dataValue).enumValue.intValue() );
-        this.dataBinaryString = BitUtils.getBinaryStringFromBigInt(bigIntEnumRepresentation, (int) bitLength);
+        this.dataBinaryString = BitCodec.toBinaryString(dataValue.enumValue.intValue(), (int) bitLength);
     }
 
     @Override
@@ -52,13 +176,7 @@ public class EnumDataField extends InterfaceDataField<EnumDataField.FieldSpecifi
             this.dataValue = UT_ERROR_ENUM;
         }
         else{
-            int intFieldValue = new BigInteger(this.dataBinaryString, 2).intValue();
-            for(FieldSpecificEnum e : allowedEnums){
-                if(e.enumValue.intValue() == intFieldValue){
-                    this.dataValue = e;
-                    break;
-                }
-            }
+            this.dataValue = lookupEnum((int) BitCodec.parseBinaryString(this.dataBinaryString));
         }
     }
 
@@ -66,6 +184,15 @@ public class EnumDataField extends InterfaceDataField<EnumDataField.FieldSpecifi
     public EnumDataField clone(){
         EnumDataField clone = (EnumDataField) super.clone();
         clone.allowedEnums = this.allowedEnums;
+        clone.unknownValueEnum = this.unknownValueEnum;
+
+        // A lookup table is never changed once it is built, so the clone shares it rather than building its own
+        clone.denseLookup = this.denseLookup;
+        clone.denseLookupBase = this.denseLookupBase;
+        clone.hashedLookupKeys = this.hashedLookupKeys;
+        clone.hashedLookupEnums = this.hashedLookupEnums;
+        clone.lookupBuiltFrom = this.lookupBuiltFrom;
+        clone.lookupBuiltSize = this.lookupBuiltSize;
         return clone;
     }
 
@@ -0,0 +1,55 @@
+package com.chanse.messaging.fields;
+
+import lombok.Data;
+
+/**
+ * An IEEE 754 Double Data Field is a 64 bit double precision floating point number on the wire.
+ * The bits are moved straight in and out of a double, NaN payloads included.
+ *
+ * Data value of an Ieee754 Double Data Field will be a Double
+ */
+@Data
+public class Ieee754DoubleDataField extends PrimitiveDataField<Double> {
+
+    public static final int DOUBLE_BITS = 64;
+
+    public Ieee754DoubleDataField(){
+        super();
+        this.bitLength = DOUBLE_BITS;
+    }
+
+    @Override
+    public void setBitLength(long bitLength){
+        if(bitLength != DOUBLE_BITS)
+            throw new IllegalArgumentException("Field "+name+" is a double and must be "+DOUBLE_BITS+" bits long, not "+bitLength);
+        super.setBitLength(bitLength);
+    }
+
+    public double getDouble(){
+        return Double.longBitsToDouble(getRawBits());
+    }
+
+    public void setDouble(double value){
+        setRawBits(Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    protected Double toDataValue(long rawBits) {
+        return Double.longBitsToDouble(rawBits);
+    }
+
+    @Override
+    protected long fromDataValue(Double dataValue) {
+        return Double.doubleToRawLongBits(dataValue);
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode(){
+        return super.hashCode();
+    }
+}
@@ -0,0 +1,55 @@
+package com.chanse.messaging.fields;
+
+import lombok.Data;
+
+/**
+ * An IEEE 754 Float Data Field is a 32 bit single precision floating point number on the wire.
+ * The bits are moved straight in and out of a float, NaN payloads included.
+ *
+ * Data value of an Ieee754 Float Data Field will be a Float
+ */
+@Data
+public class Ieee754FloatDataField extends PrimitiveDataField<Float> {
+
+    public static final int FLOAT_BITS = 32;
+
+    public Ieee754FloatDataField(){
+        super();
+        this.bitLength = FLOAT_BITS;
+    }
+
+    @Override
+    public void setBitLength(long bitLength){
+        if(bitLength != FLOAT_BITS)
+            throw new IllegalArgumentException("Field "+name+" is a float and must be "+FLOAT_BITS+" bits long, not "+bitLength);
+        super.setBitLength(bitLength);
+    }
+
+    public float getFloat(){
+        return Float.intBitsToFloat((int) getRawBits());
+    }
+
+    public void setFloat(float value){
+        setRawBits(Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+    }
+
+    @Override
+    protected Float toDataValue(long rawBits) {
+        return Float.intBitsToFloat((int) rawBits);
+    }
+
+    @Override
+    protected long fromDataValue(Float dataValue) {
+        return Float.floatToRawIntBits(dataValue) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode(){
+        return super.hashCode();
+    }
+}
@@ -1,17 +1,21 @@
 package com.chanse.messaging.fields;
 
 import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.DirtyTracker;
 import com.chanse.messaging.utils.MessagingSaveable;
+import com.chanse.messaging.utils.MessagingTypeRegistry;
 import com.chanse.messaging.utils.SaveLoadUtils;
 import com.google.gson.*;
 import lombok.*;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * InterfaceDataField is the base class for any field that will hold data for a given interface
@@ -44,10 +48,31 @@ public abstract class InterfaceDataField<T> implements Cloneable, MessagingSavea
 
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
-    // The Bean that the field holds to determine if a data change event needs to be fired off to other parts of the application
+    // Opt in listeners for other parts of the application that want an event whenever the field changes
     protected transient List<PropertyChangeListener> myDataChangeListeners = new ArrayList<>();
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Who to tell when the field changes (the word it is on) and what index the field is to them
+    protected transient DirtyTracker dirtyTracker;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected transient int dirtyIndex = -1;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Data the field has been lazily bound to by a bulk decode. While this is set the field is stale, its real value is
+    // still sitting in the data at its bit offset and is only read into dataValue the first time someone asks for it
+    protected transient byte[] boundData;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // What byte of the bound data the fields bit offset is counted from
+    protected transient int boundByteOffset;
+
     public void setBitLength(long bitLength){
+        this.boundData = null;
         this.bitLength = bitLength;
         StringBuilder emptyBinaryStringBuilder = new StringBuilder();
         for(int i = 0; i<bitLength; i++)
@@ -69,6 +94,70 @@ public abstract class InterfaceDataField<T> implements Cloneable, MessagingSavea
      */
     protected abstract void updateDataValue();
 
+    /**
+     * Lazily binds the field to data holding its value. Nothing is read and no change event is fired, the value is
+     * read from the data the first time getDataValue or getDataBinaryString is called. The data must not be changed
+     * under the field until then (words bind their fields to their own data, which only changes through the fields).
+     * @param data the data holding the fields value
+     * @param byteOffset what byte of the data the fields bit offset is counted from
+     * @return true if the field was bound, false if the field does not take new values from data
+     */
+    public boolean bindToData(byte[] data, int byteOffset){
+        this.boundData = data;
+        this.boundByteOffset = byteOffset;
+        return true;
+    }
+
+    /**
+     * @return true if the field is bound to data that has not been read into its value yet
+     */
+    public boolean isStale(){
+        return boundData != null;
+    }
+
+    /**
+     * Reads the value of a stale field out of the data it is bound to. Does not fire a change event, the field has
+     * held this value since it was bound.
+     */
+    protected void materialize(){
+        if(boundData == null)
+            return;
+        byte[] data = boundData;
+        boundData = null;
+        this.dataBinaryString = BitCodec.readBinaryString(data, boundByteOffset, bitOffset, (int) bitLength);
+        this.updateDataValue();
+    }
+
+    public T getDataValue(){
+        materialize();
+        return dataValue;
+    }
+
+    public String getDataBinaryString(){
+        materialize();
+        return dataBinaryString;
+    }
+
+    public void setBitOffset(long bitOffset){
+        materialize();
+        this.bitOffset = bitOffset;
+    }
+
+    @Override
+    public void prepareForSave(){
+        materialize();
+    }
+
+    /**
+     * Sets who is told whenever the field changes. Called by the word when the field is added to it
+     * @param tracker who to tell, null to stop telling anyone
+     * @param index what index the field is to the tracker
+     */
+    public void trackChanges(DirtyTracker tracker, int index){
+        this.dirtyTracker = tracker;
+        this.dirtyIndex = index;
+    }
+
     public void addFieldListener(PropertyChangeListener dataChangeListener){
         myDataChangeListeners.add(dataChangeListener);
     }
@@ -77,28 +166,121 @@ public abstract class InterfaceDataField<T> implements Cloneable, MessagingSavea
     }
 
     public void setDataValue(T dataObject) throws Exception{
+        materialize();
         if( dataObject != null && dataValue != null && dataObject.equals(this.dataValue) )
             return;
         Object oldData = this.dataValue;
         this.dataValue = dataObject;
         this.updateBinaryString();
-        dataHasChanged = true;
-        myDataChangeListeners.stream().forEach(listener -> {
-            listener.propertyChange(new PropertyChangeEvent(this, "dataValue", oldData, dataObject));
-        });
+        fireDataChanged("dataValue", oldData, dataObject);
     }
 
     public void setDataBinaryString(String dataBinaryString){
+        materialize();
         if( dataBinaryString != null && dataBinaryString.equals(this.dataBinaryString) )
             return;
 
         String oldBinaryString = this.dataBinaryString;
         this.dataBinaryString = dataBinaryString;
         this.updateDataValue();
+        fireDataChanged("dataBinaryString", oldBinaryString, dataBinaryString);
+    }
+
+    /**
+     * Sets the field to a binary string that is already written in the data of its word, so unlike
+     * setDataBinaryString the field is not marked dirty on its word. Opt in listeners still get a change event.
+     * @return true if the field took the value, false if the field does not take new values from data
+     */
+    public boolean takeDataBinaryString(String dataBinaryString){
+        materialize();
+        if( dataBinaryString.equals(this.dataBinaryString) )
+            return true;
+
+        String oldBinaryString = this.dataBinaryString;
+        this.dataBinaryString = dataBinaryString;
+        this.updateDataValue();
+        notifyFieldListeners("dataBinaryString", oldBinaryString, dataBinaryString);
+        return true;
+    }
+
+    /**
+     * Raw bits version of takeDataBinaryString, only the lowest bitLength bits are used
+     */
+    public boolean takeRawBits(long rawBits){
+        return takeDataBinaryString(BitCodec.toBinaryString(rawBits, (int) bitLength));
+    }
+
+    /**
+     * Flags the field as changed and marks it dirty on its word. No event is created
+     */
+    protected void markChanged(){
         dataHasChanged = true;
-        myDataChangeListeners.stream().forEach(listener -> {
-            listener.propertyChange(new PropertyChangeEvent(this, "dataBinaryString", oldBinaryString, dataBinaryString));
-        });
+        if(dirtyTracker != null)
+            dirtyTracker.markDirty(dirtyIndex);
+    }
+
+    /**
+     * Flags the field as changed and lets any opt in listeners know
+     */
+    protected void fireDataChanged(String propertyName, Object oldValue, Object newValue){
+        markChanged();
+        notifyFieldListeners(propertyName, oldValue, newValue);
+    }
+
+    /**
+     * Lets any opt in listeners know the field changed without flagging it
+     */
+    protected void notifyFieldListeners(String propertyName, Object oldValue, Object newValue){
+        if(myDataChangeListeners.isEmpty())
+            return;
+        for(PropertyChangeListener listener : myDataChangeListeners)
+            listener.propertyChange(new PropertyChangeEvent(this, propertyName, oldValue, newValue));
+    }
+
+    /**
+     * @return true if anyone has opted in to change events from this field
+     */
+    protected boolean hasFieldListeners(){
+        return !myDataChangeListeners.isEmpty();
+    }
+
+    /**
+     * Gets the raw unsigned bits of the field. Fields wider than 64 bits only give back their lowest 64 bits.
+     * Fields that hold their value as a primitive override this so no string or BigInteger is created.
+     */
+    public long getRawBits(){
+        String fieldBits = getDataBinaryString();
+        if(fieldBits == null || fieldBits.isEmpty())
+            return 0L;
+        return BitCodec.parseBinaryString(fieldBits);
+    }
+
+    /**
+     * Sets the field from its raw unsigned bits, only the lowest bitLength bits are used. Fires a change event
+     * the same as setting its binary string would.
+     */
+    public void setRawBits(long rawBits){
+        setDataBinaryString(BitCodec.toBinaryString(rawBits, (int) bitLength));
+    }
+
+    /**
+     * Writes the value of the field straight into data at the fields offset. The fields binary string is read as a
+     * number, so only its lowest bitLength bits are written and a short string is 0 padded.
+     * @param data the data to write the field into
+     * @param byteOffset what byte of the data the fields offset is counted from
+     */
+    public void writeBitsTo(byte[] data, int byteOffset){
+        String fieldBits = getDataBinaryString();
+        // Static fields that were never given a value have nothing to write
+        if(fieldBits == null)
+            return;
+
+        int length = (int) bitLength;
+        if(length <= BitCodec.MAX_PRIMITIVE_BITS)
+            BitCodec.writeBits(data, byteOffset, bitOffset, length, BitCodec.parseBinaryString(fieldBits));
+        else
+            BitCodec.writeBigBits(data, byteOffset, bitOffset, length,
+                    fieldBits.isEmpty() ? BigInteger.ZERO : new BigInteger(fieldBits, 2));
     }
 
     /**
@@ -111,13 +293,14 @@ public abstract class InterfaceDataField<T> implements Cloneable, MessagingSavea
     public InterfaceDataField clone() {
         InterfaceDataField clone;
         try {
-            clone = (InterfaceDataField) Class.forName(this.getMyClassName()).getConstructor().newInstance();
-        } catch (InstantiationException | InvocationTargetException | NoSuchMethodException | IllegalAccessException | ClassNotFoundException e) {
+            clone = MessagingTypeRegistry.newInstance(this.getClass());
+        } catch (ReflectiveOperationException e) {
             // TODO throw to error handling service
             e.printStackTrace();
             return null;
         }
 
+        this.materialize();
         clone.name = this.name;
         clone.dataBinaryString = this.dataBinaryString;
         clone.bitLength = this.bitLength;
@@ -141,4 +324,12 @@ public abstract class InterfaceDataField<T> implements Cloneable, MessagingSavea
                 this.getBitLength() == other.getBitLength() &&
                 this.getDataValue().equals(other.getDataValue()));
     }
+
+    /**
+     * Hashes the same state equals compares
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(getMyClassName(), getName(), getBitOffset(), getBitLength(), getDataValue());
+    }
 }
@@ -0,0 +1,80 @@
+package com.chanse.messaging.fields;
+
+import lombok.Data;
+
+/**
+ * Primitive version of the Integer Data Field for fields of 64 bits or less. The value is held as a long so reading
+ * and writing it never goes through a binary string or a BigInteger.
+ *
+ * A Long Data Field is unsigned unless it is flagged as signed, in which case its bits are read as a twos complement
+ * number of bitLength bits.
+ *
+ * Data value of a Long Data Field will be a Long
+ */
+@Data
+public class LongDataField extends PrimitiveDataField<Long> {
+
+    // If the bits are a twos complement number rather than an unsigned one
+    protected boolean signed = false;
+
+    public LongDataField(){
+        super();
+    }
+
+    public LongDataField(boolean signed){
+        super();
+        this.signed = signed;
+    }
+
+    /**
+     * @return the value of the field, sign extended if the field is signed
+     */
+    @Override
+    public long getLong(){
+        return toLong(getRawBits());
+    }
+
+    public int getInt(){
+        return (int) getLong();
+    }
+
+    public void setInt(int value){
+        setLong(value);
+    }
+
+    protected long toLong(long rawBits){
+        int unusedBits = 64 - (int) bitLength;
+        if(!signed || unusedBits == 0 || unusedBits == 64)
+            return rawBits;
+        return (rawBits << unusedBits) >> unusedBits;
+    }
+
+    @Override
+    protected Long toDataValue(long rawBits) {
+        return toLong(rawBits);
+    }
+
+    @Override
+    protected long fromDataValue(Long dataValue) {
+        return dataValue;
+    }
+
+    @Override
+    public LongDataField clone(){
+        LongDataField clone = (LongDataField) super.clone();
+        clone.signed = this.signed;
+        return clone;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if(obj instanceof LongDataField == false)
+            return false;
+        return super.equals(obj) && signed == ((LongDataField)obj).signed;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * super.hashCode() + Boolean.hashCode(signed);
+    }
+}
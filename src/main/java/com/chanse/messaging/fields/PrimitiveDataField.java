@@ -0,0 +1,171 @@
+package com.chanse.messaging.fields;
+
+import com.chanse.messaging.utils.BitCodec;
+import lombok.Data;
+
+/**
+ * A Primitive Data Field holds its value as the raw bits in a long rather than as a binary string and an object.
+ * Most fields on an interface are somewhere between 1 and 32 bits, and for those parsing strings and BigIntegers
+ * costs far more than the field itself. Fields of this type can be read and written as primitives that go straight
+ * between the long and the words data.
+ *
+ * The binary string and data value are still there for anything that only knows about InterfaceDataField, but they
+ * are only built when asked for. The raw bits are what is saved, the binary string and value are saved next to them
+ * so the save files can still be read by a person.
+ *
+ * Primitive fields can be at most 64 bits long.
+ */
+@Data
+public abstract class PrimitiveDataField<T> extends InterfaceDataField<T> {
+
+    // The unsigned value of the field, only the lowest bitLength bits are ever set
+    protected long rawBits = 0L;
+
+    /**
+     * Turns raw bits of this field into its data value object
+     */
+    protected abstract T toDataValue(long rawBits);
+
+    /**
+     * Turns a data value object into the raw bits of this field
+     */
+    protected abstract long fromDataValue(T dataValue);
+
+    @Override
+    public void setBitLength(long bitLength){
+        if(bitLength < 0 || bitLength > BitCodec.MAX_PRIMITIVE_BITS)
+            throw new IllegalArgumentException("Field "+name+" can not be "+bitLength+" bits long, primitive fields are at most "
+                    +BitCodec.MAX_PRIMITIVE_BITS+" bits.");
+        this.boundData = null;
+        this.bitLength = bitLength;
+        this.rawBits &= BitCodec.maskFor((int) bitLength);
+    }
+
+    @Override
+    protected void materialize(){
+        if(boundData == null)
+            return;
+        byte[] data = boundData;
+        boundData = null;
+        this.rawBits = BitCodec.readBits(data, boundByteOffset, bitOffset, (int) bitLength);
+    }
+
+    @Override
+    public long getRawBits(){
+        materialize();
+        return rawBits;
+    }
+
+    @Override
+    public void setRawBits(long rawBits){
+        materialize();
+        long newBits = rawBits & BitCodec.maskFor((int) bitLength);
+        if(newBits == this.rawBits)
+            return;
+
+        long oldBits = this.rawBits;
+        this.rawBits = newBits;
+        // Only box the values for an event when someone is listening
+        if(hasFieldListeners())
+            fireDataChanged("rawBits", oldBits, newBits);
+        else
+            markChanged();
+    }
+
+    @Override
+    public boolean takeRawBits(long rawBits){
+        materialize();
+        long newBits = rawBits & BitCodec.maskFor((int) bitLength);
+        if(newBits == this.rawBits)
+            return true;
+
+        long oldBits = this.rawBits;
+        this.rawBits = newBits;
+        if(hasFieldListeners())
+            notifyFieldListeners("rawBits", oldBits, newBits);
+        return true;
+    }
+
+    @Override
+    public boolean takeDataBinaryString(String dataBinaryString){
+        return takeRawBits(dataBinaryString.isEmpty() ? 0L : BitCodec.parseBinaryString(dataBinaryString));
+    }
+
+    /**
+     * @return the unsigned value of the field
+     */
+    public long getLong(){
+        return getRawBits();
+    }
+
+    /**
+     * Sets the unsigned value of the field, only the lowest bitLength bits are kept
+     */
+    public void setLong(long value){
+        setRawBits(value);
+    }
+
+    @Override
+    public T getDataValue(){
+        return toDataValue(getRawBits());
+    }
+
+    @Override
+    public void setDataValue(T dataObject){
+        if(dataObject != null)
+            setRawBits(fromDataValue(dataObject));
+    }
+
+    @Override
+    public String getDataBinaryString(){
+        return BitCodec.toBinaryString(getRawBits(), (int) bitLength);
+    }
+
+    @Override
+    public void setDataBinaryString(String dataBinaryString){
+        if(dataBinaryString != null)
+            setRawBits(dataBinaryString.isEmpty() ? 0L : BitCodec.parseBinaryString(dataBinaryString));
+    }
+
+    @Override
+    public void writeBitsTo(byte[] data, int byteOffset){
+        BitCodec.writeBits(data, byteOffset, bitOffset, (int) bitLength, getRawBits());
+    }
+
+    /**
+     * Brings the saved binary string and value up to date with the raw bits
+     */
+    @Override
+    protected void updateBinaryString() {
+        this.dataBinaryString = BitCodec.toBinaryString(rawBits, (int) bitLength);
+        this.dataValue = toDataValue(rawBits);
+    }
+
+    /**
+     * Takes the raw bits from the binary string
+     */
+    @Override
+    protected void updateDataValue() {
+        this.rawBits = (dataBinaryString == null || dataBinaryString.isEmpty()) ? 0L :
+                BitCodec.parseBinaryString(dataBinaryString) & BitCodec.maskFor((int) bitLength);
+    }
+
+    @Override
+    public void prepareForSave(){
+        materialize();
+        updateBinaryString();
+    }
+
+    @Override
+    public PrimitiveDataField<T> clone(){
+        materialize();
+        PrimitiveDataField<T> clone = (PrimitiveDataField<T>) super.clone();
+        clone.rawBits = this.rawBits;
+        return clone;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj);
+    }
+}
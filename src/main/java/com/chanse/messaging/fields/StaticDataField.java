@@ -47,16 +47,32 @@ public class StaticDataField extends InterfaceDataField<BigInteger> {
         }
     }
 
+    @Override
+    public boolean bindToData(byte[] data, int byteOffset){
+        // Static fields keep the value they were given, they only take one from data if they never had one
+        if(getDataBinaryString() != null)
+            return false;
+        return super.bindToData(data, byteOffset);
+    }
+
+    @Override
+    public boolean takeDataBinaryString(String dataBinaryString){
+        // Same as bindToData, a value the field already has is kept
+        if(getDataBinaryString() != null)
+            return false;
+        return super.takeDataBinaryString(dataBinaryString);
+    }
+
     @Override
     public void setDataValue(BigInteger dataValue) throws Exception{
-        if(this.dataValue == null) {
+        if(getDataValue() == null) {
             super.setDataValue(dataValue);
         }
     }
 
     @Override
     public void setDataBinaryString(String dataBinaryString){
-        if(this.dataBinaryString == null){
+        if(getDataBinaryString() == null){
             super.setDataBinaryString(dataBinaryString);
         }
     }
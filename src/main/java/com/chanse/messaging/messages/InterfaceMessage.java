@@ -1,17 +1,23 @@
 package com.chanse.messaging.messages;
 
+import com.chanse.messaging.utils.BinaryStringAdapter;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.DirtyTracker;
 import com.chanse.messaging.utils.MessagingSaveable;
+import com.chanse.messaging.utils.MessagingTypeRegistry;
 import com.chanse.messaging.utils.SaveLoadUtils;
 import com.chanse.messaging.words.InterfaceDataWord;
 import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import lombok.*;
 
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -21,15 +27,20 @@ import java.util.List;
  *
  * This is just the abstract class that can be re-used later by more specific classes such as "Repeating Messages"
  * "protobuffer messages" "1553 messages" etc.
+ *
+ * A message keeps a dirty bit per word (bit i is the i'th word) that its words set when their data changes, so
+ * recalculating the message only has to copy the words that actually changed.
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public abstract class InterfaceMessage implements MessagingSaveable, Cloneable{
 
-    // Each message will hold a static reference to memory so that it will only calculate the given binary string
-    // if a field has been updated on it.
-    protected StringBuffer messageAsSerialString = new StringBuffer();
+    // Each message will hold a static reference to memory so that it will only calculate the given wire data
+    // if a field has been updated on it. Saved as a binary string so the save format is the same as when it was one
+    @SerializedName("messageAsSerialString")
+    @JsonAdapter(BinaryStringAdapter.class)
+    protected byte[] messageData = new byte[0];
 
     // What do we call this message
     protected String messageName = new String("");
@@ -40,6 +51,26 @@ public abstract class InterfaceMessage implements MessagingSaveable, Cloneable{
     // The Individual Data Words because were cool like that
     protected List<InterfaceDataWord> dataWords = new ArrayList<>();
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Which words have data that has not been copied into the message yet. Bit i is the i'th word
+    protected transient long dirtyWordMask = 0L;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Dirty bits for words past the first 64, only created if the message has that many words
+    protected transient BitSet dirtyWordOverflow;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Handed to every word on the message so they can mark themselves dirty
+    protected transient DirtyTracker wordTracker = this::markWordDirty;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // The pool a decoder took this message from, if any. Set while the message is handed out, cleared on release
+    protected transient MessagePool owningPool;
+
     @Override
     public boolean equals(Object other){
         if(other instanceof InterfaceMessage == false)
@@ -47,7 +78,7 @@ public abstract class InterfaceMessage implements MessagingSaveable, Cloneable{
 
         InterfaceMessage otherMessage = (InterfaceMessage)other;
         if( !this.messageName.equals(otherMessage.messageName) ||
-            !this.messageAsSerialString.toString().equals(otherMessage.messageAsSerialString.toString()))
+            !Arrays.equals(this.messageData, otherMessage.messageData))
             return false;
 
         if( dataWords.size() != otherMessage.dataWords.size() )
@@ -71,22 +102,98 @@ public abstract class InterfaceMessage implements MessagingSaveable, Cloneable{
     public InterfaceMessage clone(){
         InterfaceMessage clone;
         try {
-            clone = (InterfaceMessage)Class.forName(this.getMyClassName()).getConstructor().newInstance();
-        } catch (InstantiationException | InvocationTargetException | NoSuchMethodException | IllegalAccessException | ClassNotFoundException e) {
+            clone = MessagingTypeRegistry.newInstance(this.getClass());
+        } catch (ReflectiveOperationException e) {
             // TODO throw to error handling service
             e.printStackTrace();
             return null;
         }
 
         clone.setMessageName(this.getMessageName());
-        clone.messageAsSerialString = new StringBuffer(this.getMessageAsSerialString());
+        clone.messageData = this.messageData.clone();
         this.dataWords.stream().forEach( word -> {
             clone.addDataWord(word.clone());
         });
+        // The copied data already holds every word
+        clone.clearDirtyWords();
         return clone;
     }
 
 
+    /**
+     * Debug view of the messages data as a '0'/'1' string. Creates a new buffer on every call so keep it off hot paths.
+     */
+    public StringBuffer getMessageAsSerialString(){
+        return new StringBuffer(BitCodec.readBinaryString(messageData, 0, 0, messageData.length * 8));
+    }
+
+    /**
+     * Sets the messages data from a '0'/'1' string
+     */
+    public void setMessageAsSerialString(StringBuffer messageAsSerialString){
+        this.messageData = BitCodec.binaryStringToBytes(messageAsSerialString.toString());
+    }
+
+    /**
+     * @return how many bytes the message takes up on the wire
+     */
+    public int getEncodedLength(){
+        return messageData.length;
+    }
+
+    /**
+     * Writes the wire bytes of the message into the buffer. The data is written as it was last calculated, so any
+     * changed fields should be pushed into the message (recalculateMessageAsBinaryString) first.
+     * @param buffer buffer to write into
+     * @param offset what byte of the buffer to start writing at
+     * @return the number of bytes written
+     * @throws IndexOutOfBoundsException if the message does not fit in the buffer after the offset
+     */
+    public int encodeTo(byte[] buffer, int offset){
+        if(offset < 0 || buffer.length - offset < messageData.length)
+            throw new IndexOutOfBoundsException("Message "+messageName+" needs "+messageData.length+" bytes but only "+
+                    (buffer.length - offset)+" bytes are available at offset "+offset);
+        System.arraycopy(messageData, 0, buffer, offset, messageData.length);
+        return messageData.length;
+    }
+
+    /**
+     * Writes the wire bytes of the message into the buffer at its position, moving the position past the message.
+     * @param buffer buffer to write into
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the message does not fit in the remaining space of the buffer
+     */
+    public int encodeTo(ByteBuffer buffer){
+        buffer.put(messageData);
+        return messageData.length;
+    }
+
+    /**
+     * Gives the message back to the pool it was decoded into so it can be filled with a later message. Does nothing
+     * if the message did not come from a pool or has already been released. Nothing may use the message after this.
+     */
+    public void release(){
+        MessagePool pool = owningPool;
+        if(pool == null)
+            return;
+        owningPool = null;
+        pool.release(this);
+    }
+
+    /**
+     * Marks the message as handed out by the pool, only called by the pool itself
+     */
+    void attachToPool(MessagePool pool){
+        owningPool = pool;
+    }
+
+    /**
+     * @return true if the message came from a pool and has not been released yet
+     */
+    public boolean isPooled(){
+        return owningPool != null;
+    }
+
     /**
      * Method each message type will need to implement for how to find out its binary string. Different message
      * will do this differently... ie a protobuffer vs something that is simulating interlaced video.... SPOOOOKY
@@ -102,22 +209,69 @@ public abstract class InterfaceMessage implements MessagingSaveable, Cloneable{
      */
     public abstract void initializeMessageBinaryString();
 
+    /**
+     * Adds a word to the end of the message. The word is marked dirty so its data is copied on the next recalculate
+     */
     public void addDataWord(InterfaceDataWord dataWord){
         this.dataWords.add(dataWord);
-        dataWord.addDataListener(myDataChangeListener);
+        dataWord.trackChanges(wordTracker, dataWords.size() - 1);
+        markWordDirty(dataWords.size() - 1);
     }
+
+    /**
+     * Removes a word from the message. Every word after it moves down an index so all words are marked dirty
+     */
     public void removeDataWord(InterfaceDataWord dataWord){
-        this.dataWords.remove(dataWord);
-        dataWord.addDataListener(myDataChangeListener);
+        if(!this.dataWords.remove(dataWord))
+            return;
+        dataWord.trackChanges(null, -1);
+        trackWords();
+        for(int i = 0; i < dataWords.size(); i++)
+            markWordDirty(i);
     }
 
-    @Setter(AccessLevel.NONE)
-    protected PropertyChangeListener myDataChangeListener = new PropertyChangeListener() {
-        @Override
-        public void propertyChange(PropertyChangeEvent propertyChangeEvent) {
-            if(propertyChangeEvent.getSource() instanceof InterfaceDataWord){
-                dataHasChanged = true;
-            }
+    /**
+     * Hands every word its index and the messages tracker
+     */
+    protected void trackWords(){
+        for(int i = 0; i < dataWords.size(); i++)
+            dataWords.get(i).trackChanges(wordTracker, i);
+    }
+
+    /**
+     * Words are not saved with who is tracking them, so that is set back up once the message is loaded
+     */
+    @Override
+    public void afterLoad(){
+        trackWords();
+    }
+
+    /**
+     * Marks a words data as changed since it was last copied into the message
+     * @param wordIndex index of the word in dataWords
+     */
+    public void markWordDirty(int wordIndex){
+        dataHasChanged = true;
+        if(wordIndex < 64) {
+            dirtyWordMask |= 1L << wordIndex;
         }
-    };
+        else {
+            if(dirtyWordOverflow == null)
+                dirtyWordOverflow = new BitSet();
+            dirtyWordOverflow.set(wordIndex);
+        }
+    }
+
+    public boolean isWordDirty(int wordIndex){
+        if(wordIndex < 64)
+            return (dirtyWordMask & (1L << wordIndex)) != 0L;
+        return dirtyWordOverflow != null && dirtyWordOverflow.get(wordIndex);
+    }
+
+    public void clearDirtyWords(){
+        dataHasChanged = false;
+        dirtyWordMask = 0L;
+        if(dirtyWordOverflow != null)
+            dirtyWordOverflow.clear();
+    }
 }
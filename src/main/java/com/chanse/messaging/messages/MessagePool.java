@@ -0,0 +1,105 @@
+package com.chanse.messaging.messages;
+
+import com.chanse.messaging.msginterface.RegisteredMessage;
+import lombok.Getter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Message Pool is a bounded set of already built instances of one message type that a decoder fills in place rather
+ * than cloning a new message graph for every message it decodes.
+ *
+ * A decoded message comes out of the pool and goes back in when whoever was handed it calls release() on it. Once
+ * released the message will be filled with some later message, so nothing may hold onto it (or its words or fields)
+ * after that. A message that is never released is simply never reused. When the pool is empty a new instance is
+ * cloned from the template (a miss), and when the pool is full a released message is left for the garbage collector.
+ *
+ * Messages can be acquired and released from any thread. Only the pool can mark a message as its own, so only a
+ * message that was handed out by a pool can be released back into it.
+ */
+public class MessagePool {
+
+    // Type of message in the pool
+    @Getter
+    protected final RegisteredMessage registeredMessage;
+
+    // Messages ready to be handed out
+    protected final ArrayBlockingQueue<InterfaceMessage> available;
+
+    @Getter
+    protected final int capacity;
+
+    // Statistics on how well the pool is working
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder discards = new LongAdder();
+
+    /**
+     * Creates the pool filled with capacity instances of the message type
+     * @param registeredMessage the type of message to pool
+     * @param capacity the most messages the pool will hold
+     */
+    public MessagePool(RegisteredMessage registeredMessage, int capacity){
+        if(capacity < 1)
+            throw new IllegalArgumentException("A message pool must hold at least one message, "+capacity+" was given");
+        this.registeredMessage = registeredMessage;
+        this.capacity = capacity;
+        this.available = new ArrayBlockingQueue<>(capacity);
+        for(int i = 0; i < capacity; i++)
+            available.offer(registeredMessage.newInstance());
+    }
+
+    /**
+     * @return a message from the pool, or a new instance if the pool is empty. Either way it belongs to the pool
+     * until release() is called on it
+     */
+    public InterfaceMessage acquire(){
+        InterfaceMessage message = available.poll();
+        if(message == null){
+            misses.increment();
+            message = registeredMessage.newInstance();
+        }
+        else
+            hits.increment();
+
+        message.attachToPool(this);
+        return message;
+    }
+
+    /**
+     * Gives a message back to the pool. Called through InterfaceMessage.release()
+     */
+    void release(InterfaceMessage message){
+        if(!available.offer(message))
+            discards.increment();
+    }
+
+    /**
+     * @return how many messages are waiting in the pool to be handed out
+     */
+    public int getAvailable(){
+        return available.size();
+    }
+
+    /**
+     * @return how many times a message was handed out from the pool
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * @return how many times the pool was empty and a new message had to be built
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * @return how many released messages were dropped because the pool was already full
+     */
+    public long getDiscards(){
+        return discards.sum();
+    }
+}
@@ -1,45 +1,61 @@
 package com.chanse.messaging.messages;
 
+import com.chanse.messaging.words.InterfaceDataWord;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 @Data
 @NoArgsConstructor
 public class StandardMessage extends InterfaceMessage {
 
     /**
      * Assumption: The list of dataWords are in order and themselfs correctly set in binary
-     * Strategy: Iterate down the list of words. If the word has field data changed grab its
-     * string representation and replace it in our own binary string.
-     * Advantage: This only touches the words that has had data change, does not re-calucalte any words
-     *  and is simple to debug
+     * Strategy: Iterate down the list of words and copy the bytes of each word marked dirty into place in our own data.
+     * Advantage: Copying a words bytes is a single array copy, does not re-calucalte any words, skips words
+     *  that have not changed and is simple to debug
      */
     @Override
     public void recalculateMessageAsBinaryString() {
-        // Atomic must be used because there must be a threadsafe operation for stream lambdas
-        AtomicInteger bitsChecked = new AtomicInteger();
-        dataWords.stream().forEach( word -> {
+        int totalBytes = 0;
+        for(InterfaceDataWord word : dataWords)
+            totalBytes += word.getNumberOfBytes();
+
+        // Words were added or resized since the data was built so there is nothing to copy into
+        if(totalBytes != this.messageData.length){
+            initializeMessageBinaryString();
+            return;
+        }
 
-            String wordAsBinaryString = word.getWordDataAsBinaryString();
-            this.messageAsSerialString.replace(bitsChecked.get(), bitsChecked.get() + wordAsBinaryString.length(), wordAsBinaryString);
+        if(!dataHasChanged)
+            return;
 
-            bitsChecked.addAndGet(word.getNumberOfBytes() * 8);
-        });
+        int bytesCopied = 0;
+        for(int i = 0; i < dataWords.size(); i++){
+            InterfaceDataWord word = dataWords.get(i);
+            if(isWordDirty(i))
+                System.arraycopy(word.getWordData(), 0, this.messageData, bytesCopied, word.getNumberOfBytes());
+            bytesCopied += word.getNumberOfBytes();
+        }
+        clearDirtyWords();
     }
 
     /**
-     * Method that will initialize the binary string for the message. Essentially clearing the string and setting it to
+     * Method that will initialize the binary string for the message. Essentially clearing the data and setting it to
      * whatever data each word holds
      */
     public void initializeMessageBinaryString(){
-        this.messageAsSerialString = new StringBuffer();
+        int totalBytes = 0;
+        for(InterfaceDataWord word : dataWords)
+            totalBytes += word.getNumberOfBytes();
 
-        dataWords.stream().forEach( word -> {
-            this.messageAsSerialString.append(word.getWordDataAsBinaryString());
-        });
+        this.messageData = new byte[totalBytes];
+        int bytesCopied = 0;
+        for(InterfaceDataWord word : dataWords){
+            System.arraycopy(word.getWordData(), 0, this.messageData, bytesCopied, word.getNumberOfBytes());
+            bytesCopied += word.getNumberOfBytes();
+        }
+        clearDirtyWords();
     }
 
     @Override
@@ -0,0 +1,131 @@
+package com.chanse.messaging.msginterface;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Decoder Error Log keeps track of the errors one decoder has run into. Every error is counted by its kind, and the
+ * most recent errors are kept in a fixed size ring so a stream that keeps going bad can not grow the log forever.
+ *
+ * Nothing here takes a lock. Recording an error is a counter increment and a single write into the ring, and reading
+ * the counters or recent errors never holds up the thread that is decoding. Reading the recent errors while errors are
+ * being recorded can give a record that was just written over by a newer one, which is fine for a log.
+ */
+public class DecoderErrorLog {
+
+    /**
+     * The kinds of errors a decoder counts
+     */
+    public enum ErrorKind{
+        // The ID fields of a message did not match any registered message
+        UNKNOWN_MESSAGE_ID,
+        // A message was cut off and the rest of it could never arrive
+        TRUNCATED_MESSAGE,
+        // Data was skipped over to find the next message
+        RESYNC,
+        // Decoding failed part way, what had been read could not be decoded
+        DECODE_FAILED,
+        // The connection the decoder was reading from failed and was closed
+        CONNECTION_FAILED
+    }
+
+    /**
+     * One error that occured
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ErrorRecord{
+        private final ErrorKind kind;
+        private final long timeMillis;
+        private final String message;
+
+        @Override
+        public String toString(){
+            return kind+": "+message;
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    // Count of every error by the ordinal of its kind
+    protected final LongAdder[] counts = new LongAdder[ErrorKind.values().length];
+
+    // The most recent errors. Record n is in slot n & ringMask
+    protected final AtomicReferenceArray<ErrorRecord> recentErrors;
+    protected final int ringMask;
+
+    // How many records have ever been written to the ring
+    protected final AtomicLong recordsWritten = new AtomicLong();
+
+    public DecoderErrorLog(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity how many recent errors to keep, rounded up to a power of 2
+     */
+    public DecoderErrorLog(int capacity){
+        int ringSize = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1);
+        recentErrors = new AtomicReferenceArray<>(ringSize);
+        ringMask = ringSize - 1;
+        for(int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * Counts an error and keeps it as the most recent error
+     */
+    public void record(ErrorKind kind, String message){
+        counts[kind.ordinal()].increment();
+        long recordNumber = recordsWritten.getAndIncrement();
+        recentErrors.set((int)(recordNumber & ringMask), new ErrorRecord(kind, System.currentTimeMillis(), message));
+    }
+
+    /**
+     * @return how many errors of the kind have occured
+     */
+    public long getCount(ErrorKind kind){
+        return counts[kind.ordinal()].sum();
+    }
+
+    /**
+     * @return how many errors of any kind have occured
+     */
+    public long getTotalCount(){
+        long total = 0;
+        for(LongAdder count : counts)
+            total += count.sum();
+        return total;
+    }
+
+    /**
+     * @return the errors still in the ring from oldest to newest
+     */
+    public List<ErrorRecord> getRecentErrors(){
+        long newest = recordsWritten.get();
+        long oldest = Math.max(0, newest - recentErrors.length());
+        List<ErrorRecord> records = new ArrayList<>((int)(newest - oldest));
+        for(long recordNumber = oldest; recordNumber < newest; recordNumber++){
+            ErrorRecord record = recentErrors.get((int)(recordNumber & ringMask));
+            if(record != null)
+                records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Sets every count back to 0 and forgets the recent errors
+     */
+    public void clear(){
+        for(LongAdder count : counts)
+            count.reset();
+        for(int i = 0; i < recentErrors.length(); i++)
+            recentErrors.set(i, null);
+    }
+}
@@ -0,0 +1,191 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import com.chanse.messaging.exceptions.DuplicateMessageIdException;
+import com.chanse.messaging.exceptions.InvalidMessageLayoutException;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.BitUtils;
+import com.chanse.messaging.utils.SaveLoadUtils;
+import com.google.gson.JsonObject;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A Dynamic ID Decoder is a decoder for an interface with hierarchical ID's, where the value of one ID field decides
+ * where the next ID field is and how long it is. The ID fields are described by a tree of IdNodes. Each node is one
+ * ID field, and each value of that field either leads on to the node of the next field to read, or ends the ID's.
+ *
+ * Messages are added against the values of the ID fields on their path through the tree, root first. The tree and
+ * the messages are compiled into an IdDecisionTree, so finding the type of an incoming message is only bit reads and
+ * array lookups, and creates nothing, the same as the static decoder.
+ *
+ * Everything past finding the type of a message (split reads, resyncing, subscriptions, pooling, parallel and
+ * flyweight decoding) is shared with the StaticIdDecoder, see IdDecoder.
+ */
+public class DynamicIdDecoder extends IdDecoder {
+
+    public DynamicIdDecoder(InputStream input){
+        super(input);
+    }
+    public DynamicIdDecoder(){ super(null); }
+
+    /**
+     * One ID field of the tree, and where each of its values leads
+     */
+    @Data
+    @NoArgsConstructor
+    public static class IdNode{
+        /**
+         * How far from the start of the message the field starts
+         */
+        protected int bitOffset;
+
+        /**
+         * How many bits long the field is
+         */
+        protected int bitLength;
+
+        /**
+         * The node of the next field to read for each value of this one. Values that are not here end the ID's
+         */
+        protected Map<BigInteger, IdNode> branches = new LinkedHashMap<>();
+
+        public IdNode(int bitOffset, int bitLength){
+            this.bitOffset = bitOffset;
+            this.bitLength = bitLength;
+        }
+
+        /**
+         * Makes the given value of this field lead on to another field
+         * @return the node that was added so calls can be chained down the tree
+         */
+        public IdNode addBranch(BigInteger value, IdNode next){
+            branches.put(value, next);
+            return next;
+        }
+    }
+
+    // The ID fields of every message, root first. Never changed once set, a new tree is set in its place
+    @Getter
+    protected IdNode idTree;
+
+    /**
+     * Sets the ID fields of every message, and recompiles the decision tree for the messages already added
+     * @throws IllegalArgumentException if a field of the tree can not be read as a primitive
+     */
+    public synchronized void setIdTree(IdNode idTree){
+        validateIdTree(idTree);
+        this.idTree = idTree;
+        recompileDictionary();
+    }
+
+    protected void validateIdTree(IdNode node){
+        if(node.getBitOffset() < 0 || node.getBitLength() < 1 || node.getBitLength() > BitCodec.MAX_PRIMITIVE_BITS)
+            throw new IllegalArgumentException("ID field at bit "+node.getBitOffset()+" of "+node.getBitLength()+
+                    " bits can not be read, ID fields are 1 to "+BitCodec.MAX_PRIMITIVE_BITS+" bits.");
+        for(IdNode next : node.getBranches().values())
+            validateIdTree(next);
+    }
+
+    @Override
+    protected IdDictionary compileDictionary(Map<List<BigInteger>, RegisteredMessage> registeredMessages){
+        return idTree == null ? new IdDictionary(registeredMessages) : new TreeDictionary(idTree, registeredMessages);
+    }
+
+    @Override
+    protected void copyIdDefinition(IdDictionary sourceDictionary){
+        idTree = sourceDictionary instanceof TreeDictionary ? ((TreeDictionary) sourceDictionary).idTree : null;
+    }
+
+    @Override
+    public DynamicIdDecoder clone(){
+        return (DynamicIdDecoder) super.clone();
+    }
+
+    @Override
+    protected void loadIdDefinition(JsonObject decoderAsJson){
+        if(decoderAsJson.has("idTree"))
+            setIdTree(SaveLoadUtils.Instance.myRegisteredGson.fromJson(decoderAsJson.get("idTree"), IdNode.class));
+    }
+
+    /**
+     * Dictionary that finds messages through the decision tree compiled from the ID tree
+     */
+    protected static class TreeDictionary extends IdDictionary {
+        final IdNode idTree;
+        final IdDecisionTree decisionTree;
+
+        TreeDictionary(IdNode idTree, Map<List<BigInteger>, RegisteredMessage> registeredMessages){
+            super(registeredMessages);
+            this.idTree = idTree;
+            this.decisionTree = new IdDecisionTree(idTree, registeredMessages);
+        }
+
+        @Override
+        boolean idFieldsAvailable(byte[] data, int byteOffset, int bitShift, long bitsAvailable){
+            return decisionTree.idFieldsAvailable(data, byteOffset, bitShift, bitsAvailable);
+        }
+
+        @Override
+        RegisteredMessage find(byte[] data, int byteOffset, int bitShift){
+            return decisionTree.find(data, byteOffset, bitShift);
+        }
+
+        /**
+         * Peeks at the ID fields down the tree for as long as the values read lead on to another field
+         */
+        @Override
+        List<BigInteger> peekMessageId(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+            List<BigInteger> messageUniqueId = new ArrayList<>();
+            IdNode node = idTree;
+            while(node != null && BitCodec.fits(data.length, byteOffset, bitShift + node.getBitOffset(), node.getBitLength())){
+                BigInteger idValue = BitUtils.peekAtBits(byteOffset*8 + bitShift + node.getBitOffset(), node.getBitLength(), data);
+                messageUniqueId.add(idValue);
+                node = node.getBranches().get(idValue);
+            }
+            return messageUniqueId;
+        }
+    }
+
+    /**
+     * Adds a message against the values of the ID fields on its path through the ID tree, root first
+     * @throws DuplicateMessageIdException if the ID's do not lead to the end of a path or a message already has them
+     * @throws IllegalStateException if the decoder has not been given an ID tree yet
+     */
+    @Override
+    public synchronized void addMessage(List<BigInteger> idValues, InterfaceMessage message) throws DuplicateMessageIdException, InvalidMessageLayoutException {
+        if(idTree == null)
+            throw new IllegalStateException("Tried to add message "+message.getMessageName()+
+                    " before the DynamicIdDecoder was given an ID tree. Unable to add message.");
+
+        IdNode node = idTree;
+        for(int i = 0; i < idValues.size(); i++){
+            if(node == null || i == idValues.size() - 1 && node.getBranches().containsKey(idValues.get(i)))
+                throw new DuplicateMessageIdException("Tried to add message "+message.getMessageName()+" with the ID's "+
+                        idValues+" which do not end at the last ID field of a path through the ID tree. Unable to add message.");
+            node = node.getBranches().get(idValues.get(i));
+        }
+        if(idValues.isEmpty() || idToMessageMap.containsKey(idValues))
+            throw new DuplicateMessageIdException("Error adding message " + message.getMessageName() + " the associated ID of:\n" +
+                    idValues.toString() + "\nHas already been added to the DynamicIdDecoder");
+
+        registerMessage(idValues, message.clone());
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if(obj instanceof DynamicIdDecoder == false)
+            return false;
+        return super.equals(obj) && Objects.equals(idTree, ((DynamicIdDecoder)obj).idTree);
+    }
+}
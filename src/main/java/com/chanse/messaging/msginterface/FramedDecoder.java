@@ -0,0 +1,147 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import com.chanse.messaging.messages.InterfaceMessage;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Framed Decoder is a decoder for an interface that marks where each message starts and ends on the wire itself
+ * (IE a length before every message or a sync word between them) rather than needing every message to be understood
+ * to find the next one.
+ *
+ * Each child class only has to find the frames. The message in a frame is handed to an inner StaticIdDecoder, the
+ * dispatcher, which looks at its ID fields to find what type of message it is. A frame the dispatcher does not know
+ * is skipped without being decoded, its length is already known so that costs nothing.
+ *
+ * As with the StaticIdDecoder a frame split across two reads of the stream is held until the rest of it arrives.
+ */
+public abstract class FramedDecoder extends InterfaceDecoder {
+
+    // Finds the type of the message in each frame and decodes it
+    @Getter
+    @Setter
+    protected StaticIdDecoder dispatcher = new StaticIdDecoder();
+
+    // Bytes read off of the input stream that have not been decoded yet
+    protected transient ReceiveBuffer receiveBuffer = new ReceiveBuffer();
+
+    // Frames that were skipped because the dispatcher did not know their message
+    @Getter
+    protected transient long framesSkipped = 0;
+
+    public FramedDecoder(InputStream inputStream){
+        super(inputStream);
+    }
+
+    /**
+     * Swapping the stream drops anything held from the old one, a split frame can not be finished by a new stream
+     */
+    @Override
+    public void setInputStream(InputStream inputStream){
+        super.setInputStream(inputStream);
+        if(receiveBuffer.getLength() != 0)
+            recordError(DecoderErrorLog.ErrorKind.TRUNCATED_MESSAGE, receiveBuffer.getLength()+
+                    " bytes of a frame that had not fully arrived were dropped when the input stream was changed");
+        receiveBuffer.clear();
+    }
+
+    @Override
+    public List<InterfaceMessage> decodeMessages() throws IOException, BaseMessagingException {
+        return decodeMessages(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<InterfaceMessage> decodeMessages(int maxMessages) throws IOException, BaseMessagingException {
+        List<InterfaceMessage> decodedMessages = new ArrayList<InterfaceMessage>();
+        decodeAvailable(decodedMessages::add, maxMessages);
+        return decodedMessages;
+    }
+
+    @Override
+    public int decodeMessages(MessageHandler handler) throws IOException, BaseMessagingException {
+        return decodeAvailable(handler, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads what is available on the input stream onto the receive buffer and decodes every whole frame on it
+     * @return the number of messages handed to the handler
+     */
+    protected int decodeAvailable(MessageHandler handler, int maxMessages) throws IOException, BaseMessagingException {
+        receiveBuffer.readAvailable(this.inputStream);
+        int bytesConsumed = decodeMessages(receiveBuffer.getData(), receiveBuffer.getStart(), receiveBuffer.getLength(),
+                handler, maxMessages);
+        receiveBuffer.consume(bytesConsumed);
+        return messagesInLastRange;
+    }
+
+    @Override
+    public void subscribe(String messageName){
+        dispatcher.subscribe(messageName);
+    }
+
+    @Override
+    public void unsubscribe(String messageName){
+        dispatcher.unsubscribe(messageName);
+    }
+
+    @Override
+    public void clearSubscriptions(){
+        dispatcher.clearSubscriptions();
+    }
+
+    /**
+     * Finds the type of the message at the start of a frame
+     * @param buffer data holding the frame
+     * @param messageOffset the byte the message in the frame starts at
+     * @param messageLength how many bytes of the frame the message can take up
+     * @return the registered message, or null if the frame should be skipped
+     */
+    protected RegisteredMessage findFrameMessage(byte[] buffer, int messageOffset, int messageLength) throws BaseMessagingException {
+        if(!dispatcher.idFieldsAvailable(buffer, messageOffset, 0, messageLength * 8L)){
+            recordError(DecoderErrorLog.ErrorKind.TRUNCATED_MESSAGE, "A frame of "+messageLength+
+                    " bytes is too short to hold the ID's of a message");
+            return null;
+        }
+
+        RegisteredMessage registeredMessage = dispatcher.findRegisteredMessage(buffer, messageOffset);
+        if(registeredMessage == null)
+            framesSkipped++;
+        return registeredMessage;
+    }
+
+    /**
+     * Decodes the message in a frame whose length is known, skipping the frame if the dispatcher does not know it or
+     * the message does not fit in it
+     * @param buffer data holding the frame
+     * @param messageOffset the byte the message in the frame starts at
+     * @param messageLength how many bytes of the frame the message can take up
+     * @param handler callback handed the decoded message
+     * @return true if a message was decoded
+     */
+    protected boolean decodeFrame(byte[] buffer, int messageOffset, int messageLength, MessageHandler handler) throws BaseMessagingException {
+        RegisteredMessage registeredMessage = findFrameMessage(buffer, messageOffset, messageLength);
+        if(registeredMessage == null)
+            return false;
+
+        int messageBytes = registeredMessage.getLayout().getTotalBytes();
+        if(messageLength < messageBytes){
+            recordError(DecoderErrorLog.ErrorKind.TRUNCATED_MESSAGE, "Message "+registeredMessage.getLayout().getMessageName()+
+                    " needs "+messageBytes+" bytes but its frame only holds "+messageLength+" bytes");
+            return false;
+        }
+
+        if(!registeredMessage.isSubscribed()){
+            dispatcher.noteUnsubscribedSkip();
+            return false;
+        }
+
+        handler.onMessage(dispatcher.decodeRegisteredMessage(registeredMessage, buffer, messageOffset));
+        return true;
+    }
+}
@@ -0,0 +1,217 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.utils.BitCodec;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An ID Decision Tree is an ID tree (see DynamicIdDecoder.IdNode) compiled down to flat primitive arrays. Each node is
+ * the bit offset and length of one ID field and a table from the value read there to either the next node to read or
+ * the message the ID's belong to. Finding the type of a message is then a few bit reads and array lookups, nothing is
+ * created or boxed.
+ *
+ * Nodes with narrow fields branch through a dense array indexed by the value read. Wider fields branch through an
+ * open addressing table, as a dense array for them would be mostly empty.
+ *
+ * A tree is never changed once it is compiled, a new one is compiled whenever the ID tree or its messages change.
+ */
+public final class IdDecisionTree {
+
+    // Fields this many bits or narrower branch through a dense array
+    public static final int DENSE_BRANCH_BITS = 8;
+
+    // What a branch leads to. Zero or more is the index of the next node, below NO_BRANCH is a message
+    private static final int NO_BRANCH = -1;
+
+    // The ID field each node reads
+    private final int[] bitOffsets;
+    private final int[] bitLengths;
+
+    // Branches of each node, only one of the two is set for a node
+    private final int[][] denseBranches;
+    private final BranchTable[] sparseBranches;
+
+    // Messages the leaves of the tree lead to
+    private final RegisteredMessage[] messages;
+
+    /**
+     * Compiles the ID tree and the messages stored against paths through it. A path that does not lead through the
+     * tree to a leaf could never be read off of the wire, so its message is left out.
+     * @param root the first ID field of every message
+     * @param messagesById each message by the values of the ID fields on its path through the tree
+     */
+    public IdDecisionTree(DynamicIdDecoder.IdNode root, Map<List<BigInteger>, RegisteredMessage> messagesById){
+        List<DynamicIdDecoder.IdNode> nodes = new ArrayList<>();
+        List<int[]> nodeChildren = new ArrayList<>();
+        numberNodes(root, nodes, nodeChildren);
+
+        bitOffsets = new int[nodes.size()];
+        bitLengths = new int[nodes.size()];
+        denseBranches = new int[nodes.size()][];
+        sparseBranches = new BranchTable[nodes.size()];
+        for(int i = 0; i < nodes.size(); i++){
+            DynamicIdDecoder.IdNode node = nodes.get(i);
+            bitOffsets[i] = node.getBitOffset();
+            bitLengths[i] = node.getBitLength();
+            if(bitLengths[i] <= DENSE_BRANCH_BITS){
+                denseBranches[i] = new int[1 << bitLengths[i]];
+                Arrays.fill(denseBranches[i], NO_BRANCH);
+            }
+            else
+                sparseBranches[i] = new BranchTable(node.getBranches().size() + messagesById.size());
+
+            int branch = 0;
+            for(BigInteger value : node.getBranches().keySet())
+                putBranch(i, value, nodeChildren.get(i)[branch++]);
+        }
+
+        List<RegisteredMessage> leafMessages = new ArrayList<>();
+        for(Map.Entry<List<BigInteger>, RegisteredMessage> e : messagesById.entrySet()){
+            int leafNode = nodeForLastId(e.getKey());
+            if(leafNode < 0)
+                continue;
+            if(putBranch(leafNode, e.getKey().get(e.getKey().size() - 1), NO_BRANCH - 1 - leafMessages.size()))
+                leafMessages.add(e.getValue());
+        }
+        messages = leafMessages.toArray(new RegisteredMessage[0]);
+    }
+
+    /**
+     * Numbers the nodes depth first with the root as node 0, noting the number of each nodes children in the order
+     * of its branches
+     * @return the number given to the node
+     */
+    private static int numberNodes(DynamicIdDecoder.IdNode node, List<DynamicIdDecoder.IdNode> nodes, List<int[]> nodeChildren){
+        int index = nodes.size();
+        nodes.add(node);
+        int[] children = new int[node.getBranches().size()];
+        nodeChildren.add(children);
+
+        int branch = 0;
+        for(DynamicIdDecoder.IdNode child : node.getBranches().values())
+            children[branch++] = numberNodes(child, nodes, nodeChildren);
+        return index;
+    }
+
+    /**
+     * Follows the path of ID values through the tree up to its last value
+     * @return the node the last value is read at, or -1 if the path leaves the tree before then
+     */
+    private int nodeForLastId(List<BigInteger> idValues){
+        int node = 0;
+        for(int i = 0; i < idValues.size() - 1; i++){
+            BigInteger value = idValues.get(i);
+            if(!fitsField(node, value))
+                return -1;
+            node = branch(node, value.longValue());
+            if(node < 0)
+                return -1;
+        }
+        return idValues.isEmpty() ? -1 : node;
+    }
+
+    /**
+     * Sets where a value read at a node leads, unless it already leads somewhere or could never be read there
+     * @return true if the branch was set
+     */
+    private boolean putBranch(int node, BigInteger value, int target){
+        if(!fitsField(node, value) || branch(node, value.longValue()) != NO_BRANCH)
+            return false;
+        if(denseBranches[node] != null)
+            denseBranches[node][(int) value.longValue()] = target;
+        else
+            sparseBranches[node].put(value.longValue(), target);
+        return true;
+    }
+
+    private boolean fitsField(int node, BigInteger value){
+        return value.signum() >= 0 && value.bitLength() <= bitLengths[node];
+    }
+
+    private int branch(int node, long value){
+        int[] dense = denseBranches[node];
+        return dense != null ? dense[(int) value] : sparseBranches[node].get(value);
+    }
+
+    /**
+     * Finds the type of the message that starts the given number of bits into the given byte of the data
+     * @return the registered message or null if no message has those ID's, or they run off the end of the data
+     */
+    public RegisteredMessage find(byte[] data, int byteOffset, int bitShift){
+        int node = 0;
+        while(true){
+            int bitOffset = bitShift + bitOffsets[node];
+            if(!BitCodec.fits(data.length, byteOffset, bitOffset, bitLengths[node]))
+                return null;
+            int target = branch(node, BitCodec.readBits(data, byteOffset, bitOffset, bitLengths[node]));
+            if(target == NO_BRANCH)
+                return null;
+            if(target < NO_BRANCH)
+                return messages[NO_BRANCH - 1 - target];
+            node = target;
+        }
+    }
+
+    /**
+     * Walks the tree as far as the bits that have arrived allow
+     * @return true if every ID field of the message has arrived, or enough of them to know no message has those ID's
+     */
+    public boolean idFieldsAvailable(byte[] data, int byteOffset, int bitShift, long bitsAvailable){
+        int node = 0;
+        while(true){
+            if(bitOffsets[node] + (long) bitLengths[node] > bitsAvailable)
+                return false;
+            int target = branch(node, BitCodec.readBits(data, byteOffset, bitShift + bitOffsets[node], bitLengths[node]));
+            if(target < 0)
+                return true;
+            node = target;
+        }
+    }
+
+    /**
+     * Open addressing table from the value read at a node to where it leads, see MessageIdTable
+     */
+    private static final class BranchTable {
+        private final long[] keys;
+        private final int[] targets;
+        private final boolean[] used;
+
+        BranchTable(int expectedSize){
+            int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 1)) << 1;
+            keys = new long[capacity];
+            targets = new int[capacity];
+            used = new boolean[capacity];
+        }
+
+        int get(long key){
+            int mask = keys.length - 1;
+            for(int slot = slotFor(key, mask); used[slot]; slot = (slot + 1) & mask){
+                if(keys[slot] == key)
+                    return targets[slot];
+            }
+            return NO_BRANCH;
+        }
+
+        /**
+         * Only called for keys that are not in the table yet, and never more times than the table was sized for
+         */
+        void put(long key, int target){
+            int mask = keys.length - 1;
+            int slot = slotFor(key, mask);
+            while(used[slot])
+                slot = (slot + 1) & mask;
+            keys[slot] = key;
+            targets[slot] = target;
+            used[slot] = true;
+        }
+
+        private static int slotFor(long key, int mask){
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int)(hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
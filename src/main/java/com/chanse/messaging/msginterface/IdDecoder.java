@@ -0,0 +1,965 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.codec.MessageLayout;
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import com.chanse.messaging.exceptions.DuplicateMessageIdException;
+import com.chanse.messaging.exceptions.InvalidMessageLayoutException;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.MessagingTypeRegistry;
+import com.chanse.messaging.utils.SaveLoadUtils;
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An ID Decoder is a decoder for an interface where every message starts with ID fields that say what type of message
+ * it is. This holds everything past finding the type of a message from its ID fields: the registered messages, split
+ * reads, resyncing, subscriptions, pooling, and parallel, flyweight and columnar decoding. Child classes only say where
+ * the ID fields are, see StaticIdDecoder for ID fields at set places and DynamicIdDecoder for a tree of ID fields.
+ *
+ * Everything messages are looked up by is compiled into an IdDictionary that is never changed once it is published.
+ * Changing the ID fields or adding messages compiles a new dictionary and publishes it with one volatile write, and a
+ * whole new set of messages can be swapped in with replaceDictionary while messages are being decoded. The receive
+ * thread never waits on a change, a decode that is already running finishes with the dictionary it started with.
+ */
+public abstract class IdDecoder extends InterfaceDecoder{
+
+    public IdDecoder(InputStream input){
+        super(input);
+    }
+
+    // What is saved of the messages. Copied on write, a published map is never changed
+    protected Map<List<BigInteger>, InterfaceMessage> idToMessageMap = new HashMap<>();
+
+    // The ID fields and messages compiled for decoding, replaced as a whole whenever either changes
+    protected transient volatile IdDictionary dictionary = new IdDictionary(new HashMap<>());
+
+    // Bytes read off of the input stream that have not been decoded yet. Holds the start of a split message between
+    // reads, and is what flyweight views point at
+    protected transient ReceiveBuffer receiveBuffer = new ReceiveBuffer();
+
+    // The single view handed out by flyweight decoding, rebound to each message in turn
+    protected transient MessageView flyweightView = new MessageView();
+
+    // Field values of the message being decoded, grown to the widest message type decoded so far and then reused
+    protected transient long[] fieldValues = new long[0];
+
+    // Opt in switch for generating codecs specialized to the layout of very hot message types
+    @Getter
+    @Setter
+    protected boolean codecSpecializationEnabled = false;
+
+    // How many times a message type has to be decoded before it is specialized
+    @Getter
+    @Setter
+    protected int codecSpecializationThreshold = 10000;
+
+    // Opt in switch for lazily decoding fields. Decoded fields are only read off of their words data the first time
+    // they are asked for their value, and no field change events are fired while decoding
+    @Getter
+    @Setter
+    protected boolean lazyFieldDecodingEnabled = false;
+
+    /**
+     * What the decoder does when it reaches ID's that no registered message has
+     */
+    public enum ResyncMode{
+        // Stop decoding, anything left in the read can not be decoded
+        NONE,
+        // Slide forward a byte at a time until the ID's of a known message are found
+        BYTE,
+        // Slide forward a bit at a time, for links where messages are not lined up on bytes after corrupt data
+        BIT
+    }
+
+    @Getter
+    @Setter
+    protected ResyncMode resyncMode = ResyncMode.NONE;
+
+    // Bits slid past while resyncing
+    @Getter
+    protected transient long resyncSkippedBits = 0;
+
+    // Holds a message that was found part way through a byte while resyncing, lined up onto a byte
+    protected transient byte[] realignBuffer = new byte[0];
+
+    // The handler decoded messages are being pushed to, and what the cursor hands each message it finds to decode it
+    // and push it there. Kept so a steady receive loop does not create a new lambda on every read
+    protected transient MessageHandler pushTarget;
+    protected final transient FoundMessageHandler decodeToPushTarget = (registeredMessage, data, messageOffset) -> {
+        pushTarget.onMessage(decodeRegisteredMessage(registeredMessage, data, messageOffset));
+        return true;
+    };
+
+    // What messages to decode once subscriptionsActive, by name and by ID's. Messages matching neither are skipped
+    protected transient Set<String> subscribedMessageNames = new HashSet<>();
+    protected transient Set<List<BigInteger>> subscribedIds = new HashSet<>();
+    @Getter
+    protected transient boolean subscriptionsActive = false;
+
+    // Messages that were skipped over because nothing subscribed to them
+    @Getter
+    protected transient long unsubscribedMessagesSkipped = 0;
+
+    // Opt in switch for decoding into pooled message instances rather than new clones. Whoever is handed a decoded
+    // message must call release() on it once they are done with it for it to be reused
+    @Getter
+    @Setter
+    protected boolean messagePoolingEnabled = false;
+
+    // How many instances of each message type are kept in its pool
+    @Getter
+    @Setter
+    protected int messagePoolSize = 64;
+
+    // How many messages one thread fills at a time when decoding in parallel. Batches smaller than this are decoded
+    // on the calling thread, handing them out would cost more than it saves
+    @Getter
+    @Setter
+    protected int parallelDecodeBatchSize = 256;
+
+    /**
+     * Swapping the stream drops anything held from the old one, a split message can not be finished by a new stream
+     */
+    @Override
+    public void setInputStream(InputStream inputStream){
+        super.setInputStream(inputStream);
+        if(receiveBuffer.getLength() != 0)
+            recordError(DecoderErrorLog.ErrorKind.TRUNCATED_MESSAGE, receiveBuffer.getLength()+
+                    " bytes of a message that had not fully arrived were dropped when the input stream was changed");
+        receiveBuffer.clear();
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if(obj instanceof IdDecoder == false)
+            return false;
+        IdDecoder other = (IdDecoder)obj;
+
+        if(idToMessageMap.size() != other.idToMessageMap.size())
+            return false;
+        for(Map.Entry e : idToMessageMap.entrySet()){
+            if( !other.idToMessageMap.containsKey(e.getKey()) ||
+                !other.idToMessageMap.get(e.getKey()).equals(e.getValue()) )
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a message against the values of its ID fields
+     * @throws DuplicateMessageIdException if the ID's do not fit the ID fields of the decoder or a message already has them
+     */
+    public abstract void addMessage(List<BigInteger> idValues, InterfaceMessage message) throws DuplicateMessageIdException, InvalidMessageLayoutException;
+
+    /**
+     * Compiles the ID fields and messages into a new dictionary and publishes it
+     */
+    protected synchronized void recompileDictionary(){
+        dictionary = compileDictionary(dictionary.registeredMessages);
+    }
+
+    /**
+     * Compiles a dictionary from the current ID fields of the decoder and the given messages
+     * @param registeredMessages the messages by their ID's, owned by the dictionary from here on
+     */
+    protected abstract IdDictionary compileDictionary(Map<List<BigInteger>, RegisteredMessage> registeredMessages);
+
+    /**
+     * Everything decoding looks messages up by, compiled from the ID fields and the registered messages. A
+     * dictionary is never changed once it is built, so it can be read from any thread without locking. This one is
+     * for a decoder that has no ID fields yet, child classes compile their own that read the ID fields
+     */
+    protected static class IdDictionary {
+        // Every registered message has its layout compiled once so decoding does not have to walk its words and fields
+        final Map<List<BigInteger>, RegisteredMessage> registeredMessages;
+
+        IdDictionary(Map<List<BigInteger>, RegisteredMessage> registeredMessages){
+            this.registeredMessages = registeredMessages;
+        }
+
+        /**
+         * @see IdDecoder#idFieldsAvailable(byte[], int, int, long)
+         */
+        boolean idFieldsAvailable(byte[] data, int byteOffset, int bitShift, long bitsAvailable){
+            return true;
+        }
+
+        /**
+         * @see IdDecoder#findRegisteredMessage(byte[], int, int)
+         */
+        RegisteredMessage find(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+            return registeredMessages.get(Collections.<BigInteger>emptyList());
+        }
+
+        /**
+         * @see IdDecoder#peekMessageId(byte[], int, int)
+         */
+        List<BigInteger> peekMessageId(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Compiles the layout for a message and then stores it against its ID's. Layout is compiled first so that a bad
+     * message never makes it into the map.
+     */
+    protected synchronized void registerMessage(List<BigInteger> idValues, InterfaceMessage message) throws InvalidMessageLayoutException {
+        RegisteredMessage registeredMessage = new RegisteredMessage(message);
+        registeredMessage.setSubscribed(isSubscribed(idValues, registeredMessage));
+
+        Map<List<BigInteger>, InterfaceMessage> newMessageMap = new HashMap<>(idToMessageMap);
+        newMessageMap.put(idValues, message);
+        Map<List<BigInteger>, RegisteredMessage> newRegisteredMessages = new HashMap<>(dictionary.registeredMessages);
+        newRegisteredMessages.put(idValues, registeredMessage);
+
+        idToMessageMap = newMessageMap;
+        dictionary = compileDictionary(newRegisteredMessages);
+    }
+
+    /**
+     * Swaps in the ID definition and every message of another decoder in one step, without stopping decoding. The
+     * other decoder is built up (with addMessage, or loaded from a save file) on any thread, and is only read here.
+     *
+     * The new dictionary is compiled on the calling thread and then published. A decode that is already running
+     * finishes with the old dictionary, the next one uses the new. Message types that are the same in both keep
+     * their pools and decode counts. Subscriptions of this decoder carry over.
+     *
+     * Only the published dictionary of the source is read, so the source is never locked and is left as it was. New
+     * message types get registered messages of their own, sharing the compiled layout of the source, so the
+     * subscriptions, pools and decode counts of the two decoders never mix.
+     * @param source decoder of the same type holding the new messages
+     * @throws IllegalArgumentException if the source is a different type of decoder
+     */
+    public void replaceDictionary(IdDecoder source){
+        if(source.getClass() != getClass())
+            throw new IllegalArgumentException("Can not replace the dictionary of a "+getClass().getSimpleName()+
+                    " with the dictionary of a "+source.getClass().getSimpleName());
+
+        // The ID definition and messages are both taken from the one dictionary so they always match
+        IdDictionary sourceDictionary = source.dictionary;
+        synchronized(this){
+            Map<List<BigInteger>, InterfaceMessage> newMessageMap = new HashMap<>();
+            Map<List<BigInteger>, RegisteredMessage> newRegisteredMessages = new HashMap<>();
+            for(Map.Entry<List<BigInteger>, RegisteredMessage> e : sourceDictionary.registeredMessages.entrySet()){
+                RegisteredMessage registeredMessage = dictionary.registeredMessages.get(e.getKey());
+                if(registeredMessage == null || !registeredMessage.getTemplate().equals(e.getValue().getTemplate()))
+                    registeredMessage = new RegisteredMessage(e.getValue());
+                registeredMessage.setSubscribed(isSubscribed(e.getKey(), registeredMessage));
+                newMessageMap.put(e.getKey(), registeredMessage.getTemplate());
+                newRegisteredMessages.put(e.getKey(), registeredMessage);
+            }
+
+            copyIdDefinition(sourceDictionary);
+            idToMessageMap = newMessageMap;
+            dictionary = compileDictionary(newRegisteredMessages);
+        }
+    }
+
+    /**
+     * Loads a decoder of the same type from a save file and swaps in its messages, see replaceDictionary
+     * @param filePath save file holding the decoder
+     * @throws IOException if the file could not be read or holds no decoder of the same type
+     */
+    public void replaceDictionaryFromFile(String filePath) throws IOException {
+        for(InterfaceDecoder loaded : SaveLoadUtils.Instance.loadInterfaceDecodersFromFile(filePath)){
+            if(loaded != null && loaded.getClass() == getClass()){
+                replaceDictionary((IdDecoder) loaded);
+                return;
+            }
+        }
+        throw new IOException("No "+getClass().getSimpleName()+" was found in "+filePath+" to replace the dictionary with");
+    }
+
+    /**
+     * Takes the definition of where the ID's are from a dictionary of another decoder of the same type, called while
+     * replacing the dictionary
+     */
+    protected abstract void copyIdDefinition(IdDictionary sourceDictionary);
+
+    /**
+     * The copy shares the templates and compiled layouts of this decoder rather than saving and loading it, so a copy
+     * per stream costs little more than the decoder object. It registers the message types of its own, see
+     * replaceDictionary. Settings and subscriptions are copied, changes to either decoder after this are not seen by
+     * the other.
+     */
+    @Override
+    public IdDecoder clone(){
+        IdDecoder copy;
+        try {
+            copy = MessagingTypeRegistry.newInstance(getClass());
+        } catch (ReflectiveOperationException e) {
+            // TODO throw to error handling service
+            e.printStackTrace();
+            return null;
+        }
+
+        synchronized(this){
+            copy.decoderName = decoderName;
+            copy.codecSpecializationEnabled = codecSpecializationEnabled;
+            copy.codecSpecializationThreshold = codecSpecializationThreshold;
+            copy.lazyFieldDecodingEnabled = lazyFieldDecodingEnabled;
+            copy.resyncMode = resyncMode;
+            copy.messagePoolingEnabled = messagePoolingEnabled;
+            copy.messagePoolSize = messagePoolSize;
+            copy.parallelDecodeBatchSize = parallelDecodeBatchSize;
+
+            // Subscriptions first, the copy marks its message types as it takes them on
+            copy.subscribedMessageNames.addAll(subscribedMessageNames);
+            copy.subscribedIds.addAll(subscribedIds);
+            copy.subscriptionsActive = subscriptionsActive;
+        }
+        copy.replaceDictionary(this);
+        return copy;
+    }
+
+    @Override
+    public synchronized void subscribe(String messageName){
+        subscribedMessageNames.add(messageName);
+        subscriptionsActive = true;
+        applySubscriptions();
+    }
+
+    /**
+     * Only decode messages with the given ID's, and messages of any other subscription
+     * @param idValues the ID's of the messages to decode
+     */
+    public synchronized void subscribe(List<BigInteger> idValues){
+        subscribedIds.add(new ArrayList<>(idValues));
+        subscriptionsActive = true;
+        applySubscriptions();
+    }
+
+    @Override
+    public synchronized void unsubscribe(String messageName){
+        subscribedMessageNames.remove(messageName);
+        applySubscriptions();
+    }
+
+    /**
+     * Stops decoding messages with the given ID's. Messages of other subscriptions are still decoded
+     * @param idValues the ID's of the messages to skip
+     */
+    public synchronized void unsubscribe(List<BigInteger> idValues){
+        subscribedIds.remove(idValues);
+        applySubscriptions();
+    }
+
+    @Override
+    public synchronized void clearSubscriptions(){
+        subscribedMessageNames.clear();
+        subscribedIds.clear();
+        subscriptionsActive = false;
+        applySubscriptions();
+    }
+
+    /**
+     * Marks every registered message as subscribed or not, so decoding only has to check a flag on the message type
+     */
+    protected void applySubscriptions(){
+        for(Map.Entry<List<BigInteger>, RegisteredMessage> e : dictionary.registeredMessages.entrySet())
+            e.getValue().setSubscribed(isSubscribed(e.getKey(), e.getValue()));
+    }
+
+    protected boolean isSubscribed(List<BigInteger> idValues, RegisteredMessage registeredMessage){
+        return !subscriptionsActive ||
+                subscribedIds.contains(idValues) ||
+                subscribedMessageNames.contains(registeredMessage.getLayout().getMessageName());
+    }
+
+    /**
+     * Counts a message that was skipped over because nothing subscribed to it
+     */
+    protected void noteUnsubscribedSkip(){
+        unsubscribedMessagesSkipped++;
+    }
+
+    /**
+     * @param data data holding the message
+     * @param byteOffset the byte the message starts at
+     * @param bitShift how many bits into that byte the message starts
+     * @param bitsAvailable how many bits of the message have arrived
+     * @return true if enough of the message has arrived to read all of its ID fields
+     */
+    protected boolean idFieldsAvailable(byte[] data, int byteOffset, int bitShift, long bitsAvailable){
+        return dictionary.idFieldsAvailable(data, byteOffset, bitShift, bitsAvailable);
+    }
+
+    /**
+     * Finds the type of the message that starts at the given byte of the data from its ID fields
+     * @return the registered message or null if no message has those ID's
+     * @throws BaseMessagingException if the data is too short to hold the ID fields
+     */
+    protected RegisteredMessage findRegisteredMessage(byte[] data, int byteOffset) throws BaseMessagingException {
+        return findRegisteredMessage(data, byteOffset, 0);
+    }
+
+    /**
+     * Finds the type of the message that starts the given number of bits into the given byte of the data
+     * @return the registered message or null if no message has those ID's
+     * @throws BaseMessagingException if the data is too short to hold the ID fields
+     */
+    protected RegisteredMessage findRegisteredMessage(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+        return dictionary.find(data, byteOffset, bitShift);
+    }
+
+    /**
+     * @return the compiled layout of the message with the given ID's or null if there is no such message
+     */
+    public MessageLayout getMessageLayout(List<BigInteger> idValues){
+        RegisteredMessage registeredMessage = dictionary.registeredMessages.get(idValues);
+        return registeredMessage == null ? null : registeredMessage.getLayout();
+    }
+
+    /**
+     * @return everything the decoder knows about the message with the given ID's or null if there is no such message
+     */
+    public RegisteredMessage getRegisteredMessage(List<BigInteger> idValues){
+        return dictionary.registeredMessages.get(idValues);
+    }
+
+    /**
+     * @return how many decoded messages were taken from a pool across every message type
+     */
+    public long getPoolHits(){
+        long hits = 0;
+        for(RegisteredMessage registeredMessage : dictionary.registeredMessages.values())
+            hits += registeredMessage.getPool() == null ? 0 : registeredMessage.getPool().getHits();
+        return hits;
+    }
+
+    /**
+     * @return how many decoded messages had to be built because their pool was empty, across every message type
+     */
+    public long getPoolMisses(){
+        long misses = 0;
+        for(RegisteredMessage registeredMessage : dictionary.registeredMessages.values())
+            misses += registeredMessage.getPool() == null ? 0 : registeredMessage.getPool().getMisses();
+        return misses;
+    }
+
+    /**
+     * Decodes one message of a known type out of the data and counts the decode towards specializing its codec
+     */
+    protected InterfaceMessage decodeRegisteredMessage(RegisteredMessage registeredMessage, byte[] data, int offset) throws BaseMessagingException {
+        fieldValues = valuesFor(registeredMessage, fieldValues);
+        return decodeRegisteredMessage(registeredMessage, data, offset, fieldValues);
+    }
+
+    /**
+     * Decodes one message of a known type out of the data, with the field values decoded into the given array
+     * @param values array of at least the field count of the message type, see valuesFor
+     */
+    protected InterfaceMessage decodeRegisteredMessage(RegisteredMessage registeredMessage, byte[] data, int offset,
+                                                       long[] values) throws BaseMessagingException {
+        // Get a clone so that it can be unique from other messages, or a released one to fill in place if pooling
+        InterfaceMessage message = messagePoolingEnabled ? registeredMessage.acquireInstance(messagePoolSize) :
+                registeredMessage.newInstance();
+        registeredMessage.fill(message, data, offset, lazyFieldDecodingEnabled, values);
+        registeredMessage.recordDecode(codecSpecializationEnabled ? codecSpecializationThreshold : 0);
+        return message;
+    }
+
+    /**
+     * @return the values array if it can hold the field values of the message type, otherwise a new one that can
+     */
+    protected static long[] valuesFor(RegisteredMessage registeredMessage, long[] values){
+        int fieldCount = registeredMessage.getLayout().getFieldCount();
+        return values.length >= fieldCount ? values : new long[fieldCount];
+    }
+
+    @Override
+    public List<InterfaceMessage> decodeMessages() throws IOException, BaseMessagingException {
+        return decodeMessages(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads all messages up to the given number of messages from the buffer. Whole messages past maxMessages and the
+     * start of a message that has not fully arrived yet are held until the next call.
+     * @param maxMessages the number of maximum messages to read from the buffer
+     * @return List of all messages that were contained on the buffer
+     */
+    @Override
+    public List<InterfaceMessage> decodeMessages(int maxMessages)  throws IOException, BaseMessagingException {
+        List<InterfaceMessage> decodedMessages = new ArrayList<InterfaceMessage>();
+        decodeAvailable(decodedMessages::add, maxMessages);
+        return decodedMessages;
+    }
+
+    @Override
+    public int decodeMessages(MessageHandler handler) throws IOException, BaseMessagingException {
+        return decodeAvailable(handler, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads what is available on the input stream onto the receive buffer and decodes from the start of the buffer
+     * @return the number of messages handed to the handler
+     */
+    protected int decodeAvailable(MessageHandler handler, int maxMessages) throws IOException, BaseMessagingException {
+        receiveBuffer.readAvailable(this.inputStream);
+        int bytesConsumed = decodeMessages(receiveBuffer.getData(), receiveBuffer.getStart(), receiveBuffer.getLength(),
+                handler, maxMessages);
+        int messagesDecoded = messagesInLastRange;
+        receiveBuffer.consume(bytesConsumed);
+        if(messagesDecoded < maxMessages)
+            dropUndecodableBytes();
+
+        return messagesDecoded;
+    }
+
+    /**
+     * Decodes messages straight out of the buffer, moving a cursor from message to message. Nothing is copied, each
+     * message is filled from the buffer at the byte it starts at. Decoding stops at the end of the range, at the first
+     * message that is only partly in the range, at a message with unknown ID's (unless resyncing, see ResyncMode), or
+     * once maxMessages have been decoded.
+     * @param buffer data holding the messages
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param handler callback handed each decoded message in the order they were in the buffer
+     * @param maxMessages the number of maximum messages to decode
+     * @return how many bytes from the offset were decoded into messages
+     */
+    @Override
+    public int decodeMessages(byte[] buffer, int offset, int length, MessageHandler handler, int maxMessages) throws BaseMessagingException {
+        MessageHandler previousTarget = pushTarget;
+        pushTarget = handler;
+        try {
+            return decodeRange(buffer, offset, length, maxMessages, decodeToPushTarget);
+        }
+        finally {
+            pushTarget = previousTarget;
+        }
+    }
+
+    /**
+     * Reads all messages on the input stream and fills them on the threads of the pool, see
+     * decodeMessagesInParallel(buffer, offset, length, decodedMessages, pool). Split messages are held as with
+     * decodeMessages()
+     * @param pool threads to decode on
+     * @return List of all messages that were contained on the buffer, in the order they were on the stream
+     */
+    public List<InterfaceMessage> decodeMessagesInParallel(ForkJoinPool pool) throws IOException, BaseMessagingException {
+        List<InterfaceMessage> decodedMessages = new ArrayList<InterfaceMessage>();
+
+        receiveBuffer.readAvailable(this.inputStream);
+        int bytesConsumed = decodeMessagesInParallel(receiveBuffer.getData(), receiveBuffer.getStart(), receiveBuffer.getLength(),
+                decodedMessages, pool);
+        receiveBuffer.consume(bytesConsumed);
+        dropUndecodableBytes();
+
+        return decodedMessages;
+    }
+
+    /**
+     * Parallel decode. A single threaded framing pass moves the cursor through the range (resyncing as set) and only
+     * notes the type and start of every message. Once every boundary is known the messages do not depend on each
+     * other, so they are filled on the threads of the pool in batches of parallelDecodeBatchSize.
+     * @param buffer data holding the messages, must not change until this returns
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param decodedMessages list each decoded message is added to in the order they were in the buffer
+     * @param pool threads to decode on
+     * @return how many bytes from the offset were decoded into messages
+     */
+    @Override
+    public int decodeMessagesInParallel(byte[] buffer, int offset, int length, List<InterfaceMessage> decodedMessages,
+                                        ForkJoinPool pool) throws BaseMessagingException {
+        List<FoundMessage> frames = new ArrayList<>();
+        int bytesFramed = decodeRange(buffer, offset, length, Integer.MAX_VALUE, (registeredMessage, data, messageOffset) -> {
+            // A message lined up out of the realign buffer needs its own copy, the buffer is reused by the next one
+            if(data != buffer)
+                frames.add(new FoundMessage(registeredMessage, Arrays.copyOfRange(data, messageOffset,
+                        messageOffset + registeredMessage.getLayout().getTotalBytes()), 0));
+            else
+                frames.add(new FoundMessage(registeredMessage, data, messageOffset));
+            return true;
+        });
+
+        InterfaceMessage[] messages = new InterfaceMessage[frames.size()];
+        if(frames.size() <= parallelDecodeBatchSize)
+            fillFrames(frames, messages, 0, frames.size());
+        else{
+            try {
+                pool.invoke(new FillFramesTask(frames, messages, 0, frames.size()));
+            }
+            catch(FillFailedException e){
+                throw e.getFailure();
+            }
+        }
+
+        decodedMessages.addAll(Arrays.asList(messages));
+        return bytesFramed;
+    }
+
+    /**
+     * Where the framing pass found a message
+     */
+    @AllArgsConstructor
+    protected static class FoundMessage{
+        final RegisteredMessage registeredMessage;
+        final byte[] data;
+        final int offset;
+    }
+
+    /**
+     * Decodes the frames from start up to end into the same indexes of the messages
+     */
+    protected void fillFrames(List<FoundMessage> frames, InterfaceMessage[] messages, int start, int end) throws BaseMessagingException {
+        // Each batch is filled on one thread, so it gets its own values array rather than sharing the decoders
+        long[] values = new long[0];
+        for(int i = start; i < end; i++){
+            FoundMessage frame = frames.get(i);
+            values = valuesFor(frame.registeredMessage, values);
+            messages[i] = decodeRegisteredMessage(frame.registeredMessage, frame.data, frame.offset, values);
+        }
+    }
+
+    /**
+     * Carries a decode failure out of a pool thread back to the thread that started the decode
+     */
+    protected static class FillFailedException extends RuntimeException{
+        @Getter
+        final BaseMessagingException failure;
+
+        FillFailedException(BaseMessagingException failure){
+            super(failure);
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Splits the frames in half until a batch is small enough to fill on one thread
+     */
+    @AllArgsConstructor
+    protected class FillFramesTask extends RecursiveAction{
+        final List<FoundMessage> frames;
+        final InterfaceMessage[] messages;
+        final int start;
+        final int end;
+
+        @Override
+        protected void compute(){
+            if(end - start <= parallelDecodeBatchSize){
+                try {
+                    fillFrames(frames, messages, start, end);
+                }
+                catch(BaseMessagingException e){
+                    throw new FillFailedException(e);
+                }
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new FillFramesTask(frames, messages, start, middle), new FillFramesTask(frames, messages, middle, end));
+        }
+    }
+
+    /**
+     * Flyweight decode mode. Reads all bytes on the input stream and hands the handler a view over each message while
+     * it is still in the receive buffer. No message, word or field objects are created, fields are only read when the
+     * handler asks for them. The view and the receive buffer are reused, so the handler must call MessageView.detach()
+     * on any message it wants to keep.
+     * THIS WILL FLUSH THE BUFFER
+     * @param handler callback handed each message view in the order they were on the stream
+     * @return the number of messages handed to the handler
+     */
+    public int decodeMessageViews(MessageView.Handler handler) throws IOException, BaseMessagingException {
+        receiveBuffer.readAvailable(this.inputStream);
+        int bytesConsumed = decodeMessageViews(receiveBuffer.getData(), receiveBuffer.getStart(), receiveBuffer.getLength(), handler);
+        int messagesDecoded = messagesInLastRange;
+        receiveBuffer.consume(bytesConsumed);
+        dropUndecodableBytes();
+
+        return messagesDecoded;
+    }
+
+    /**
+     * Flyweight decode mode over a range of a buffer, see decodeMessageViews(handler). The views point into the given
+     * buffer, so it must not be changed until the handler has returned.
+     * @param buffer data holding the messages
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param handler callback handed each message view in the order they were in the buffer
+     * @return how many bytes from the offset were handed to the handler as views
+     */
+    public int decodeMessageViews(byte[] buffer, int offset, int length, MessageView.Handler handler) throws BaseMessagingException {
+        return decodeRange(buffer, offset, length, Integer.MAX_VALUE, (registeredMessage, data, messageOffset) -> {
+            handler.onMessageView(flyweightView.wrap(registeredMessage, data, messageOffset));
+            return true;
+        });
+    }
+
+    /**
+     * Columnar decode mode. Reads all bytes on the input stream and decodes every message of the columns type into
+     * the next row of its columns, see MessageColumns. Messages of other types are stepped over without being
+     * decoded. Decoding stops once the columns are full, and whatever is left is held for the next call.
+     * @param columns columns for one message type, with room for the rows
+     * @return the number of rows added to the columns
+     */
+    public int decodeColumns(MessageColumns columns) throws IOException, BaseMessagingException {
+        receiveBuffer.readAvailable(this.inputStream);
+        int rowsBefore = columns.getRowCount();
+        int bytesConsumed = decodeColumns(receiveBuffer.getData(), receiveBuffer.getStart(), receiveBuffer.getLength(), columns);
+        receiveBuffer.consume(bytesConsumed);
+        if(!columns.isFull())
+            dropUndecodableBytes();
+
+        return columns.getRowCount() - rowsBefore;
+    }
+
+    /**
+     * Columnar decode mode over a range of a buffer, see decodeColumns(columns). Decoding stops right after the row
+     * that fills the columns, call again from where it stopped once they are cleared to carry on.
+     * @param buffer data holding the messages
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param columns columns for one message type
+     * @return how many bytes from the offset were decoded or stepped over
+     */
+    public int decodeColumns(byte[] buffer, int offset, int length, MessageColumns columns) throws BaseMessagingException {
+        RegisteredMessage columnsMessage = columns.getRegisteredMessage();
+        int specializationThreshold = codecSpecializationEnabled ? codecSpecializationThreshold : 0;
+        return decodeRange(buffer, offset, length, columns.getCapacity() - columns.getRowCount(), (registeredMessage, data, messageOffset) -> {
+            if(registeredMessage != columnsMessage)
+                return false;
+            columns.addRow(data, messageOffset);
+            registeredMessage.recordDecode(specializationThreshold);
+            return true;
+        });
+    }
+
+    /**
+     * Handed each whole message the cursor finds while decoding a range
+     */
+    @FunctionalInterface
+    protected interface FoundMessageHandler {
+        /**
+         * @return true if the message counts towards the maximum messages of the range, false if it was passed over
+         */
+        boolean onMessage(RegisteredMessage registeredMessage, byte[] data, int offset) throws BaseMessagingException;
+    }
+
+    /**
+     * Moves a cursor through the range handing every whole message to the handler. When the cursor reaches ID's no
+     * message has it either stops, or when resyncing slides forward a byte or bit at a time until it finds ID's of a
+     * known message again. A message found part way through a byte is copied out lined up onto a byte before it is
+     * handed over, as everything after the cursor works on whole bytes.
+     * @param maxMessages how many messages the handler can count before decoding stops
+     * @return how many bytes from the offset were handed to the handler or skipped. A partial byte the cursor was
+     * part way through is left, when resyncing by bit the next call will slide through it again
+     */
+    protected int decodeRange(byte[] buffer, int offset, int length, int maxMessages, FoundMessageHandler handler) throws BaseMessagingException {
+        // The whole range is decoded with the dictionary as it was when decoding started
+        IdDictionary rangeDictionary = dictionary;
+        int cursor = offset;
+        int bitShift = 0;
+        long bitsSkipped = 0;
+        long end = offset + (long)length;
+        int messagesDecoded = 0;
+
+        while(messagesDecoded < maxMessages){
+            long bitsLeft = (end - cursor) * 8 - bitShift;
+            if(bitsLeft <= 0 || !rangeDictionary.idFieldsAvailable(buffer, cursor, bitShift, bitsLeft))
+                break;
+
+            RegisteredMessage registeredMessage = rangeDictionary.find(buffer, cursor, bitShift);
+            if(registeredMessage == null){
+                if(resyncMode == ResyncMode.NONE){
+                    logUnknownMessageId(buffer, cursor);
+                    break;
+                }
+                if(bitsSkipped == 0)
+                    logUnknownMessageId(buffer, cursor, bitShift);
+
+                // Slide forward and try again
+                int step = resyncMode == ResyncMode.BIT ? 1 : 8;
+                bitsSkipped += step;
+                bitShift += step;
+                cursor += bitShift / 8;
+                bitShift %= 8;
+                continue;
+            }
+
+            int messageBytes = registeredMessage.getLayout().getTotalBytes();
+            if(bitsLeft < messageBytes * 8L)
+                break;
+
+            if(bitsSkipped != 0){
+                noteResync(bitsSkipped);
+                bitsSkipped = 0;
+            }
+
+            // The length of the message is known, so one nobody wants is stepped over without touching it
+            if(!registeredMessage.isSubscribed()){
+                noteUnsubscribedSkip();
+                cursor += messageBytes;
+                continue;
+            }
+
+            boolean counted = bitShift == 0 ? handler.onMessage(registeredMessage, buffer, cursor) :
+                    handler.onMessage(registeredMessage, realign(buffer, cursor, bitShift, messageBytes), 0);
+            cursor += messageBytes;
+            if(counted)
+                messagesDecoded++;
+        }
+
+        if(bitsSkipped != 0)
+            noteResync(bitsSkipped);
+        messagesInLastRange = messagesDecoded;
+        return cursor - offset;
+    }
+
+    /**
+     * Copies a message that starts part way through a byte into the realign buffer lined up onto the first byte
+     * @return the realign buffer holding the message
+     */
+    protected byte[] realign(byte[] buffer, int byteOffset, int bitShift, int messageBytes){
+        if(realignBuffer.length < messageBytes)
+            realignBuffer = new byte[messageBytes];
+        for(int i = 0; i < messageBytes; i++)
+            realignBuffer[i] = (byte) BitCodec.readBits(buffer, byteOffset, bitShift + i * 8, 8);
+        return realignBuffer;
+    }
+
+    /**
+     * Counts bits the cursor slid past while resyncing
+     */
+    protected void noteResync(long bitsSkipped){
+        resyncSkippedBits += bitsSkipped;
+        recordError(DecoderErrorLog.ErrorKind.RESYNC, "Skipped "+bitsSkipped+" bits of data with unknown ID's to find the next message");
+    }
+
+    /**
+     * @return how many whole bytes of data the cursor has slid past while resyncing
+     */
+    public long getResyncSkippedBytes(){
+        return resyncSkippedBits / 8;
+    }
+
+    /**
+     * Called once decoding has stopped before the end of the receive buffer. The start of a message that has not
+     * fully arrived yet is held for the next read. Anything else could never be decoded, the unknown ID's have already
+     * been logged, so it is dropped rather than blocking every read after it
+     */
+    protected void dropUndecodableBytes() throws BaseMessagingException {
+        // Resyncing only ever stops at the start of a message, it may just be one that starts part way through a byte
+        if(resyncMode != ResyncMode.NONE)
+            return;
+        if(receiveBuffer.getLength() == 0 || isPartialMessage(receiveBuffer.getData(), receiveBuffer.getStart(), receiveBuffer.getLength()))
+            return;
+        receiveBuffer.clear();
+    }
+
+    /**
+     * @return true if the bytes are the start of a message that needs more bytes than there are to be decoded
+     */
+    protected boolean isPartialMessage(byte[] data, int offset, int length) throws BaseMessagingException {
+        if(!idFieldsAvailable(data, offset, 0, length * 8L))
+            return true;
+        RegisteredMessage registeredMessage = findRegisteredMessage(data, offset);
+        return registeredMessage != null && length < registeredMessage.getLayout().getTotalBytes();
+    }
+
+    /**
+     * Notes that the message at the given byte of the data has ID's no registered message has. Only called once
+     * a lookup has failed, so creating the ID list to log is off of the decode path
+     */
+    protected void logUnknownMessageId(byte[] data, int byteOffset) throws BaseMessagingException {
+        recordError(DecoderErrorLog.ErrorKind.UNKNOWN_MESSAGE_ID, "Unable to find any message associated with the following ids:"+
+                peekMessageId(data, byteOffset)+" Aborting reading any more messages with this call");
+    }
+
+    /**
+     * Notes that the data has ID's no registered message has where resyncing started
+     */
+    protected void logUnknownMessageId(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+        recordError(DecoderErrorLog.ErrorKind.UNKNOWN_MESSAGE_ID, "Unable to find any message associated with the following ids:"+
+                peekMessageId(data, byteOffset, bitShift)+" Resyncing "+(resyncMode == ResyncMode.BIT ? "a bit" : "a byte")+
+                " at a time to find the next message");
+    }
+
+    /**
+     * Peeks at the ID fields of a message that starts at the given byte of the data
+     */
+    protected List<BigInteger> peekMessageId(byte[] data, int byteOffset) throws BaseMessagingException {
+        return peekMessageId(data, byteOffset, 0);
+    }
+
+    /**
+     * Peeks at the ID fields of a message that starts the given number of bits into the given byte of the data
+     */
+    protected List<BigInteger> peekMessageId(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+        return dictionary.peekMessageId(data, byteOffset, bitShift);
+    }
+
+    /**
+     * Reads the ID fields of the decoder out of its save, called before its messages are registered
+     */
+    protected abstract void loadIdDefinition(JsonObject decoderAsJson);
+
+    public static class IdDecoderAdapter implements JsonDeserializer<IdDecoder> {
+        static protected Type idMapType = new TypeToken<HashMap<String, InterfaceMessage>>() {}.getType();
+
+        @Override
+        public IdDecoder deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+
+            try {
+                JsonObject decoderAsJSon = (JsonObject)json;
+
+                // The ID fields have to be set before the messages so the messages are compiled against them
+                IdDecoder decoder = MessagingTypeRegistry.newInstance((Class<? extends IdDecoder>) typeOfT);
+                decoder.loadIdDefinition(decoderAsJSon);
+                decoder.recompileDictionary();
+
+                JsonObject idToMessageMapJson = decoderAsJSon.getAsJsonObject("idToMessageMap");
+                HashMap<String, InterfaceMessage> stringToMessageMap =
+                                        SaveLoadUtils.Instance.myRegisteredGson.fromJson(idToMessageMapJson, idMapType);
+
+                for(Map.Entry<String, InterfaceMessage> e : stringToMessageMap.entrySet()){
+                    // The format that the key will be is "[#, #, ...]"
+                    String[] numberStrings = e.getKey().substring(1, e.getKey().length()-1).split(",");
+
+                    List<BigInteger> idKeys = new ArrayList<>();
+                    for(String s : numberStrings){
+                        BigInteger key = new BigInteger(s.trim());
+                        idKeys.add(key);
+                    }
+
+                    decoder.registerMessage(idKeys, e.getValue());
+                }
+
+                if(decoderAsJSon.has("codecSpecializationEnabled"))
+                    decoder.codecSpecializationEnabled = decoderAsJSon.get("codecSpecializationEnabled").getAsBoolean();
+                if(decoderAsJSon.has("codecSpecializationThreshold"))
+                    decoder.codecSpecializationThreshold = decoderAsJSon.get("codecSpecializationThreshold").getAsInt();
+                if(decoderAsJSon.has("lazyFieldDecodingEnabled"))
+                    decoder.lazyFieldDecodingEnabled = decoderAsJSon.get("lazyFieldDecodingEnabled").getAsBoolean();
+                if(decoderAsJSon.has("resyncMode"))
+                    decoder.resyncMode = ResyncMode.valueOf(decoderAsJSon.get("resyncMode").getAsString());
+                if(decoderAsJSon.has("parallelDecodeBatchSize"))
+                    decoder.parallelDecodeBatchSize = decoderAsJSon.get("parallelDecodeBatchSize").getAsInt();
+                if(decoderAsJSon.has("messagePoolingEnabled"))
+                    decoder.messagePoolingEnabled = decoderAsJSon.get("messagePoolingEnabled").getAsBoolean();
+                if(decoderAsJSon.has("messagePoolSize"))
+                    decoder.messagePoolSize = decoderAsJSon.get("messagePoolSize").getAsInt();
+
+                return decoder;
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -14,7 +14,9 @@ import lombok.Setter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Interface decoders are simple classes that are meant to be able to decode a data stream into messages
@@ -35,25 +37,39 @@ public abstract class InterfaceDecoder implements MessagingSaveable {
     @Setter
     protected String decoderName;
 
+    // How many messages the last decode of a range handed on, so the stream methods can return it without counting
+    // through a wrapped handler
+    transient protected int messagesInLastRange = 0;
+
     public InterfaceDecoder(InputStream inputStream){
         this.inputStream = inputStream;
     }
 
     // To avoid throwing exceptions we will just internally note if an error occurs.
     // Otherwise there is the case where 1 message in 10,000 cause the entire internal state to fail
-    transient static boolean errorOccurred = false;
-    transient static StringBuffer errorLog = new StringBuffer();
+    @Getter
+    transient protected DecoderErrorLog errorLog = new DecoderErrorLog();
 
     public boolean hasErrorOccured(){
-        return errorOccurred;
+        return errorLog.getTotalCount() > 0;
     }
 
     /**
-     * Returns a string of all errors that have occured on this decoder. Then sets the error state to a non-error state
-     * @return List of all errors that occured
+     * Returns a string of the most recent errors that have occured on this decoder, oldest first
+     * @return List of recent errors that occured
      */
     public String getListOfAllErrors(){
-        return errorLog.toString();
+        StringBuilder errors = new StringBuilder();
+        for(DecoderErrorLog.ErrorRecord record : errorLog.getRecentErrors())
+            errors.append(record).append('\n');
+        return errors.toString();
+    }
+
+    /**
+     * Notes an error on this decoders error log
+     */
+    protected void recordError(DecoderErrorLog.ErrorKind kind, String message){
+        errorLog.record(kind, message);
     }
 
     // These methods specifically do not throw exceptions because if we fail to read 1 message we can still try to
@@ -73,4 +89,121 @@ public abstract class InterfaceDecoder implements MessagingSaveable {
      */
     public abstract List<InterfaceMessage> decodeMessages(int maxMessages) throws IOException, BaseMessagingException;
 
+    /**
+     * Reads all messages on the contained InputBuffer and hands each one to the handler as soon as it is decoded, in
+     * the order they were on the stream. Nothing is collected in between, so with a handler that is kept around (and
+     * pooled messages) a receive loop creates nothing once it is warmed up.
+     * THIS WILL FLUSH THE BUFFER
+     * @param handler callback handed each decoded message
+     * @return the number of messages handed to the handler
+     */
+    public abstract int decodeMessages(MessageHandler handler) throws IOException, BaseMessagingException;
+
+    /**
+     * Only decode messages with the given name, and messages of any other subscription. Once anything has been
+     * subscribed to messages that were not are skipped over without being decoded.
+     * @param messageName name of the messages to decode
+     */
+    public abstract void subscribe(String messageName);
+
+    /**
+     * Stops decoding messages with the given name. Messages of other subscriptions are still decoded
+     * @param messageName name of the messages to skip
+     */
+    public abstract void unsubscribe(String messageName);
+
+    /**
+     * Forgets every subscription and goes back to decoding every message
+     */
+    public abstract void clearSubscriptions();
+
+    /**
+     * Decodes messages straight out of a range of a buffer rather than off of the input stream. Decoding moves a cursor
+     * through the range and stops once it reaches a message that is not entirely in the range, so a message cut off at
+     * the end of a read is left for the caller to decode once the rest of it arrives.
+     * @param buffer data holding the messages
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param decodedMessages list each decoded message is added to
+     * @param maxMessages the number of maximum messages to decode
+     * @return how many bytes from the offset were decoded into messages
+     */
+    public int decodeMessages(byte[] buffer, int offset, int length, List<InterfaceMessage> decodedMessages,
+                              int maxMessages) throws BaseMessagingException {
+        return decodeMessages(buffer, offset, length, decodedMessages::add, maxMessages);
+    }
+
+    /**
+     * Decodes messages straight out of a range of a buffer and hands each one to the handler as soon as it is
+     * decoded, see decodeMessages(buffer, offset, length, decodedMessages, maxMessages)
+     * @param buffer data holding the messages
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param handler callback handed each decoded message
+     * @param maxMessages the number of maximum messages to decode
+     * @return how many bytes from the offset were decoded into messages
+     */
+    public abstract int decodeMessages(byte[] buffer, int offset, int length, MessageHandler handler,
+                                       int maxMessages) throws BaseMessagingException;
+
+    /**
+     * Decodes every message in a range of a buffer using the threads of the pool, for large bursts or recorded captures
+     * where one thread can not keep up. The decoded messages are added in the order they were in the buffer.
+     * Decoders that can not split the work up decode on the calling thread, which is what this does by default.
+     * @param buffer data holding the messages
+     * @param offset the byte of the buffer the first message starts at
+     * @param length how many bytes from the offset can be decoded
+     * @param decodedMessages list each decoded message is added to
+     * @param pool threads to decode on
+     * @return how many bytes from the offset were decoded into messages
+     */
+    public int decodeMessagesInParallel(byte[] buffer, int offset, int length, List<InterfaceMessage> decodedMessages,
+                                        ForkJoinPool pool) throws BaseMessagingException {
+        return decodeMessages(buffer, offset, length, decodedMessages, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes messages from the remaining bytes of a ByteBuffer, see decodeMessages(buffer, offset, length, ...).
+     * The position of the ByteBuffer is moved past every byte that was decoded.
+     * @param buffer data holding the messages, from its position to its limit
+     * @param decodedMessages list each decoded message is added to
+     * @param maxMessages the number of maximum messages to decode
+     * @return how many bytes were decoded into messages
+     */
+    public int decodeMessages(ByteBuffer buffer, List<InterfaceMessage> decodedMessages, int maxMessages) throws BaseMessagingException {
+        int bytesConsumed;
+        if(buffer.hasArray()){
+            bytesConsumed = decodeMessages(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+                    decodedMessages, maxMessages);
+        }
+        else{
+            // Direct buffers have no array behind them, so their bytes are copied out once
+            byte[] data = new byte[buffer.remaining()];
+            buffer.duplicate().get(data);
+            bytesConsumed = decodeMessages(data, 0, data.length, decodedMessages, maxMessages);
+        }
+        buffer.position(buffer.position() + bytesConsumed);
+        return bytesConsumed;
+    }
+
+    /**
+     * Creates a decoder that decodes the same messages the same way as this one, to decode another stream alongside
+     * this one (IE one decoder per client of a server). The copy has no input stream, nothing buffered and an empty
+     * error log. By default this decoder is saved and loaded back, decoders override it to share what they can.
+     * @return the copy, or null if the decoder could not be loaded back
+     */
+    @Override
+    public InterfaceDecoder clone(){
+        try {
+            List<InterfaceDecoder> loaded = SaveLoadUtils.Instance.loadInterfaceDecodersFromString(
+                    SaveLoadUtils.Instance.getInterfaceDecoderSaveString(this));
+            return loaded.isEmpty() ? null : loaded.get(0);
+        }
+        catch(IOException e){
+            // TODO throw to error handling service
+            e.printStackTrace();
+            return null;
+        }
+    }
+
 }
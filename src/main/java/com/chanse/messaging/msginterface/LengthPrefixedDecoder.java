@@ -0,0 +1,108 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.InputStream;
+
+/**
+ * A Length Prefixed Decoder is a decoder for an interface that sends the length of every message in front of it.
+ *
+ * The length is an unsigned integer of lengthFieldBytes bytes, big or little endian, and counts either just the
+ * message or the message and the length itself. Whatever follows the length is handed to the dispatcher (see
+ * FramedDecoder) to find and decode the message, so message ID's are found relative to the end of the length.
+ */
+public class LengthPrefixedDecoder extends FramedDecoder {
+
+    // How many bytes the length in front of every message takes up, 1 to 4
+    @Getter
+    protected int lengthFieldBytes = 2;
+
+    // If the length is sent most significant byte first
+    @Getter
+    @Setter
+    protected boolean bigEndian = true;
+
+    // If the length counts its own bytes as well as the message
+    @Getter
+    @Setter
+    protected boolean lengthIncludesPrefix = false;
+
+    // The longest a frame can be. A longer length can only be corrupt data
+    @Getter
+    @Setter
+    protected int maxFrameBytes = 65535;
+
+    public LengthPrefixedDecoder(InputStream inputStream){
+        super(inputStream);
+    }
+    public LengthPrefixedDecoder(){ super(null); }
+
+    /**
+     * @throws IllegalArgumentException if the length is not 1 to 4 bytes
+     */
+    public void setLengthFieldBytes(int lengthFieldBytes){
+        if(lengthFieldBytes < 1 || lengthFieldBytes > 4)
+            throw new IllegalArgumentException("The length in front of a message can be 1 to 4 bytes, not "+lengthFieldBytes);
+        this.lengthFieldBytes = lengthFieldBytes;
+    }
+
+    /**
+     * Decodes every frame in the range. A frame with a length that could not be right means the stream can no longer
+     * be trusted to find the next frame, so everything left in the range is dropped.
+     */
+    @Override
+    public int decodeMessages(byte[] buffer, int offset, int length, MessageHandler handler, int maxMessages) throws BaseMessagingException {
+        int cursor = offset;
+        int end = offset + length;
+        int messagesDecoded = 0;
+        messagesInLastRange = 0;
+
+        while(end - cursor >= lengthFieldBytes && messagesDecoded < maxMessages){
+            long frameLength = readLength(buffer, cursor);
+            long messageLength = lengthIncludesPrefix ? frameLength - lengthFieldBytes : frameLength;
+            if(messageLength < 0 || messageLength > maxFrameBytes){
+                recordError(DecoderErrorLog.ErrorKind.TRUNCATED_MESSAGE, "Read a frame length of "+frameLength+
+                        " which can not be right, dropping the "+(end - cursor)+" bytes left to decode");
+                messagesInLastRange = messagesDecoded;
+                return length;
+            }
+
+            if(end - cursor - lengthFieldBytes < messageLength)
+                break;
+
+            if(decodeFrame(buffer, cursor + lengthFieldBytes, (int) messageLength, handler))
+                messagesDecoded++;
+            cursor += lengthFieldBytes + (int) messageLength;
+        }
+
+        messagesInLastRange = messagesDecoded;
+        return cursor - offset;
+    }
+
+    /**
+     * Reads the unsigned length in front of the frame that starts at the offset
+     */
+    protected long readLength(byte[] buffer, int offset){
+        long frameLength = 0;
+        for(int i = 0; i < lengthFieldBytes; i++){
+            int lengthByte = buffer[offset + (bigEndian ? i : lengthFieldBytes - 1 - i)] & 0xFF;
+            frameLength = (frameLength << 8) | lengthByte;
+        }
+        return frameLength;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if(obj instanceof LengthPrefixedDecoder == false)
+            return false;
+        LengthPrefixedDecoder other = (LengthPrefixedDecoder)obj;
+
+        return lengthFieldBytes == other.lengthFieldBytes &&
+                bigEndian == other.bigEndian &&
+                lengthIncludesPrefix == other.lengthIncludesPrefix &&
+                maxFrameBytes == other.maxFrameBytes &&
+                dispatcher.equals(other.dispatcher);
+    }
+}
@@ -0,0 +1,201 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.codec.MessageLayout;
+import com.chanse.messaging.fields.EnumDataField;
+import com.chanse.messaging.fields.Ieee754DoubleDataField;
+import com.chanse.messaging.fields.Ieee754FloatDataField;
+import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.fields.LongDataField;
+import com.chanse.messaging.utils.BitCodec;
+import lombok.Getter;
+
+/**
+ * Message Columns hold a batch of decoded messages of one type as a column of primitives per field rather than as a
+ * message object per message. Row i of every column is the i'th message of the batch.
+ *
+ * What column a field gets is decided by its type
+ * - Ieee754 float and double fields are DOUBLE columns
+ * - Enum fields are INT columns of the enums value
+ * - Everything else is a LONG column, sign extended for signed LongDataFields and unsigned otherwise
+ * - Fields wider than 64 bits have no column
+ *
+ * Every column is created once at the capacity of the batch. clear() starts a new batch in the same arrays, so a
+ * decode loop that reuses its columns creates nothing per message. The arrays are handed out as they are, only the
+ * first getRowCount() entries of each are part of the batch.
+ */
+public class MessageColumns {
+
+    public enum ColumnType{
+        LONG,
+        DOUBLE,
+        INT,
+        NONE
+    }
+
+    // The message type the columns are for, messages of any other type are stepped over
+    @Getter
+    protected final RegisteredMessage registeredMessage;
+
+    @Getter
+    protected final MessageLayout layout;
+
+    // Column type of each field, by field index of the layout
+    protected final ColumnType[] columnTypes;
+
+    // Field indexes of each type of column, so filling a row is a loop per type rather than a switch per field
+    protected final int[] longFields;
+    protected final int[] doubleFields;
+    protected final int[] intFields;
+
+    // How far to shift a long field left and back to sign extend it, 0 for unsigned fields
+    protected final int[] signShifts;
+
+    // Doubles read from 32 bits rather than 64
+    protected final boolean[] floatFields;
+
+    // The columns by field index, only the array of a fields column type is set
+    protected final long[][] longColumns;
+    protected final double[][] doubleColumns;
+    protected final int[][] intColumns;
+
+    // Raw field values of the message being added
+    protected final long[] rowValues;
+
+    @Getter
+    protected final int capacity;
+
+    @Getter
+    protected int rowCount = 0;
+
+    /**
+     * @param registeredMessage the type of message to hold, see StaticIdDecoder.getRegisteredMessage
+     * @param capacity how many messages a batch can hold
+     */
+    public MessageColumns(RegisteredMessage registeredMessage, int capacity){
+        this.registeredMessage = registeredMessage;
+        this.layout = registeredMessage.getLayout();
+        this.capacity = capacity;
+
+        int fieldCount = layout.getFieldCount();
+        columnTypes = new ColumnType[fieldCount];
+        signShifts = new int[fieldCount];
+        floatFields = new boolean[fieldCount];
+        longColumns = new long[fieldCount][];
+        doubleColumns = new double[fieldCount][];
+        intColumns = new int[fieldCount][];
+        rowValues = new long[fieldCount];
+
+        int longCount = 0, doubleCount = 0, intCount = 0;
+        for(int i = 0; i < fieldCount; i++){
+            InterfaceDataField field = registeredMessage.getTemplate().getDataWords().get(layout.getFieldWordIndex(i))
+                    .getDataFields().get(layout.getFieldIndexInWord(i));
+            columnTypes[i] = columnTypeOf(field, layout.getFieldBitLength(i));
+            switch(columnTypes[i]){
+                case LONG:
+                    longColumns[i] = new long[capacity];
+                    if(field instanceof LongDataField && ((LongDataField) field).isSigned())
+                        signShifts[i] = 64 - layout.getFieldBitLength(i);
+                    longCount++;
+                    break;
+                case DOUBLE:
+                    doubleColumns[i] = new double[capacity];
+                    floatFields[i] = field instanceof Ieee754FloatDataField;
+                    doubleCount++;
+                    break;
+                case INT:
+                    intColumns[i] = new int[capacity];
+                    intCount++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        longFields = new int[longCount];
+        doubleFields = new int[doubleCount];
+        intFields = new int[intCount];
+        longCount = doubleCount = intCount = 0;
+        for(int i = 0; i < fieldCount; i++){
+            if(columnTypes[i] == ColumnType.LONG)
+                longFields[longCount++] = i;
+            else if(columnTypes[i] == ColumnType.DOUBLE)
+                doubleFields[doubleCount++] = i;
+            else if(columnTypes[i] == ColumnType.INT)
+                intFields[intCount++] = i;
+        }
+    }
+
+    protected static ColumnType columnTypeOf(InterfaceDataField field, int bitLength){
+        if(bitLength > BitCodec.MAX_PRIMITIVE_BITS)
+            return ColumnType.NONE;
+        if(field instanceof Ieee754DoubleDataField || field instanceof Ieee754FloatDataField)
+            return ColumnType.DOUBLE;
+        if(field instanceof EnumDataField)
+            return ColumnType.INT;
+        return ColumnType.LONG;
+    }
+
+    public boolean isFull(){
+        return rowCount >= capacity;
+    }
+
+    /**
+     * Starts a new batch in the same columns
+     */
+    public void clear(){
+        rowCount = 0;
+    }
+
+    /**
+     * @return the index of the field with the given name or -1 if the message has no such field
+     */
+    public int getFieldIndex(String fieldName){
+        return layout.indexOf(fieldName);
+    }
+
+    public ColumnType getColumnType(int fieldIndex){
+        return columnTypes[fieldIndex];
+    }
+
+    /**
+     * @return the column of a LONG field, or null if the field has another type of column
+     */
+    public long[] getLongColumn(int fieldIndex){
+        return longColumns[fieldIndex];
+    }
+
+    /**
+     * @return the column of a DOUBLE field, or null if the field has another type of column
+     */
+    public double[] getDoubleColumn(int fieldIndex){
+        return doubleColumns[fieldIndex];
+    }
+
+    /**
+     * @return the column of an INT field, or null if the field has another type of column
+     */
+    public int[] getIntColumn(int fieldIndex){
+        return intColumns[fieldIndex];
+    }
+
+    /**
+     * Decodes a message of this type into the next row of every column. The caller makes sure there is room for it
+     * @param data data holding the message
+     * @param offset the byte the message starts at
+     */
+    void addRow(byte[] data, int offset){
+        int row = rowCount++;
+        registeredMessage.getCodec().decode(data, offset, rowValues);
+
+        for(int i : longFields){
+            int signShift = signShifts[i];
+            longColumns[i][row] = (rowValues[i] << signShift) >> signShift;
+        }
+        for(int i : doubleFields){
+            doubleColumns[i][row] = floatFields[i] ? Float.intBitsToFloat((int) rowValues[i]) :
+                    Double.longBitsToDouble(rowValues[i]);
+        }
+        for(int i : intFields)
+            intColumns[i][row] = (int) rowValues[i];
+    }
+}
@@ -0,0 +1,14 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.messages.InterfaceMessage;
+
+/**
+ * Callback a decoder pushes each message to as soon as it is decoded, rather than collecting them into a list first.
+ *
+ * The message is the handlers to keep. If the decoder is pooling messages the handler should call release() on it
+ * once it is done with it so it can be filled again.
+ */
+@FunctionalInterface
+public interface MessageHandler {
+    void onMessage(InterfaceMessage message);
+}
@@ -0,0 +1,95 @@
+package com.chanse.messaging.msginterface;
+
+import java.util.Arrays;
+
+/**
+ * A Message Id Table finds a registered message from its ID fields packed into a single long. It is an open addressing
+ * hash table over primitive keys, so looking up a message type does not create anything or box anything.
+ *
+ * The table grows to stay at most half full, which keeps a lookup to one or two probes. It is meant to be filled
+ * when messages are registered and then only read while decoding.
+ */
+public final class MessageIdTable {
+
+    // Keys and the message stored against them. A null message marks an empty slot
+    private long[] keys;
+    private RegisteredMessage[] messages;
+
+    // How many messages are in the table
+    private int size = 0;
+
+    public MessageIdTable(){
+        this(16);
+    }
+
+    /**
+     * @param expectedSize how many messages the table should hold before it has to grow
+     */
+    public MessageIdTable(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 1)) << 1;
+        keys = new long[capacity];
+        messages = new RegisteredMessage[capacity];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return the message stored against the key or null if there is none
+     */
+    public RegisteredMessage get(long key){
+        int mask = keys.length - 1;
+        for(int slot = slotFor(key, mask); messages[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot] == key)
+                return messages[slot];
+        }
+        return null;
+    }
+
+    /**
+     * Stores a message against a key, replacing whatever was stored against it before
+     */
+    public void put(long key, RegisteredMessage message){
+        if((size + 1) * 2 > keys.length)
+            resize(keys.length * 2);
+
+        int mask = keys.length - 1;
+        int slot = slotFor(key, mask);
+        while(messages[slot] != null){
+            if(keys[slot] == key){
+                messages[slot] = message;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        messages[slot] = message;
+        size++;
+    }
+
+    public void clear(){
+        Arrays.fill(messages, null);
+        size = 0;
+    }
+
+    private void resize(int capacity){
+        long[] oldKeys = keys;
+        RegisteredMessage[] oldMessages = messages;
+        keys = new long[capacity];
+        messages = new RegisteredMessage[capacity];
+        size = 0;
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldMessages[i] != null)
+                put(oldKeys[i], oldMessages[i]);
+        }
+    }
+
+    /**
+     * Mixes the key so IDs that only differ in their high bits still spread over the table
+     */
+    private static int slotFor(long key, int mask){
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,122 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.codec.MessageLayout;
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitCodec;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A Message View is a flyweight over a message that is still sitting in a receive buffer. Nothing is copied or
+ * created when a view is bound to a message, each field getter reads its bits straight from the buffer when called.
+ *
+ * Views are meant to be reused. A decoder binds the same view to one message after another, so a view (and anything
+ * read through it) is only good until the decoder moves on. To keep a message past that call detach() to get a full
+ * InterfaceMessage copy of it.
+ *
+ * Field indexes are the indexes of the messages MessageLayout. Look them up once with getFieldIndex and hold onto them,
+ * looking up by name on every message is a linear search.
+ */
+public class MessageView {
+
+    /**
+     * Callback that is handed each view as it is decoded
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void onMessageView(MessageView view);
+    }
+
+    // What type of message the view is currently bound to
+    @Getter
+    protected RegisteredMessage registeredMessage;
+
+    @Getter
+    protected MessageLayout layout;
+
+    // Buffer the message is in and what byte of the buffer it starts at
+    @Getter
+    protected byte[] buffer;
+
+    @Getter
+    protected int offset;
+
+    /**
+     * Binds the view to a message in a buffer
+     * @param registeredMessage what type of message it is
+     * @param buffer buffer holding the message
+     * @param offset what byte of the buffer the message starts at
+     * @return this view so calls can be chained
+     */
+    public MessageView wrap(RegisteredMessage registeredMessage, byte[] buffer, int offset){
+        this.registeredMessage = registeredMessage;
+        this.layout = registeredMessage.getLayout();
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public String getMessageName(){
+        return layout.getMessageName();
+    }
+
+    /**
+     * @return how many bytes the message takes up in the buffer
+     */
+    public int getLength(){
+        return layout.getTotalBytes();
+    }
+
+    /**
+     * @return the index of the field with the given name or -1 if the message has no such field
+     */
+    public int getFieldIndex(String fieldName){
+        return layout.indexOf(fieldName);
+    }
+
+    /**
+     * Reads the unsigned value of a field of 64 bits or less straight from the buffer
+     */
+    public long getLong(int fieldIndex){
+        return layout.readField(buffer, offset, fieldIndex);
+    }
+
+    /**
+     * Reads a field by name. Slow, see the class description
+     * @throws IllegalArgumentException if the message has no field with that name
+     */
+    public long getLong(String fieldName){
+        int fieldIndex = layout.indexOf(fieldName);
+        if(fieldIndex < 0)
+            throw new IllegalArgumentException("Message "+getMessageName()+" has no field named "+fieldName);
+        return getLong(fieldIndex);
+    }
+
+    /**
+     * Reads the unsigned value of a field of any width straight from the buffer
+     */
+    public BigInteger getBigInteger(int fieldIndex){
+        return BitCodec.readBigBits(buffer, offset, layout.getFieldBitOffset(fieldIndex), layout.getFieldBitLength(fieldIndex));
+    }
+
+    /**
+     * @return a copy of the raw bytes of the message
+     */
+    public byte[] copyBytes(){
+        return Arrays.copyOfRange(buffer, offset, offset + layout.getTotalBytes());
+    }
+
+    /**
+     * Creates a full message from the bytes the view is over, so it can be kept once the view moves on
+     * @return a new message that owns its own data
+     * @throws BaseMessagingException if the message could not be filled from the buffer
+     */
+    public InterfaceMessage detach() throws BaseMessagingException {
+        InterfaceMessage message = registeredMessage.newInstance();
+        registeredMessage.fill(message, buffer, offset);
+        return message;
+    }
+}
@@ -0,0 +1,128 @@
+package com.chanse.messaging.msginterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A Receive Buffer holds bytes read off of an input stream until they have been decoded. Anything that was not decoded
+ * (most often the start of a message that was split across two reads) stays in the buffer and the next read is added
+ * on after it, so the message can be decoded once the rest of it arrives.
+ *
+ * The unread bytes are always one contiguous range of the array, data[start] up to data[end]. Decoding only moves
+ * start forward. The unread bytes are moved back to the front of the array right before the next read, and the array
+ * only grows when a read would not fit after that. Once a stream settles into its usual read size nothing is created.
+ *
+ * Bytes handed out by getData stay where they are until the next read, so views over them are good until then.
+ */
+public class ReceiveBuffer {
+
+    // Bytes read off of the stream, only data[start] up to data[end] have not been decoded yet
+    protected byte[] data;
+    protected int start = 0;
+    protected int end = 0;
+
+    public ReceiveBuffer(){
+        this(0);
+    }
+
+    /**
+     * @param initialCapacity how many bytes the buffer can hold before it has to grow
+     */
+    public ReceiveBuffer(int initialCapacity){
+        data = new byte[initialCapacity];
+    }
+
+    /**
+     * @return the array the unread bytes are in, starting at getStart()
+     */
+    public byte[] getData(){
+        return data;
+    }
+
+    /**
+     * @return the index of the first unread byte in getData()
+     */
+    public int getStart(){
+        return start;
+    }
+
+    /**
+     * @return how many bytes have been read and not decoded yet
+     */
+    public int getLength(){
+        return end - start;
+    }
+
+    public int getCapacity(){
+        return data.length;
+    }
+
+    /**
+     * Marks the given number of bytes from the start as decoded
+     * @throws IllegalArgumentException if more bytes are consumed than are in the buffer
+     */
+    public void consume(int bytes){
+        if(bytes < 0 || bytes > end - start)
+            throw new IllegalArgumentException("Can not consume "+bytes+" bytes from a buffer holding "+(end - start)+" bytes");
+        start += bytes;
+        if(start == end){
+            start = 0;
+            end = 0;
+        }
+    }
+
+    /**
+     * Drops every unread byte
+     */
+    public void clear(){
+        start = 0;
+        end = 0;
+    }
+
+    /**
+     * Adds bytes on after the unread bytes
+     */
+    public void append(byte[] bytes, int offset, int length){
+        ensureSpace(length);
+        System.arraycopy(bytes, offset, data, end, length);
+        end += length;
+    }
+
+    /**
+     * Reads every byte that is available on the input stream on after the unread bytes
+     * @return the number of bytes read
+     */
+    public int readAvailable(InputStream inputStream) throws IOException {
+        int available = inputStream.available();
+        ensureSpace(available);
+
+        int bytesRead = 0;
+        while(bytesRead < available){
+            int read = inputStream.read(data, end, available - bytesRead);
+            if(read < 0)
+                break;
+            bytesRead += read;
+            end += read;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Makes room for the given number of bytes after the unread bytes. The unread bytes are moved to the front of the
+     * array first, and the array is only grown if there is still not enough room
+     */
+    protected void ensureSpace(int bytes){
+        if(data.length - end >= bytes)
+            return;
+
+        int unread = end - start;
+        byte[] target = data;
+        if(data.length - unread < bytes)
+            target = new byte[Math.max(unread + bytes, data.length * 2)];
+
+        System.arraycopy(data, start, target, 0, unread);
+        data = target;
+        start = 0;
+        end = unread;
+    }
+}
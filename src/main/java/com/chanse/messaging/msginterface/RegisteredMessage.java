@@ -0,0 +1,175 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.codec.CodecSpecializer;
+import com.chanse.messaging.codec.MessageCodec;
+import com.chanse.messaging.codec.MessageLayout;
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import com.chanse.messaging.exceptions.InvalidMessageLayoutException;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.messages.MessagePool;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Registered Message is everything a decoder keeps about one message type that it can decode. The template message
+ * that decoded messages are copied from, the compiled layout of that message, and the codec currently used to decode it.
+ *
+ * The codec starts out as the generic layout. If specialization is turned on then once the message type has been
+ * decoded enough times it is swapped out for a codec specialized to this exact layout. If specializing fails for any
+ * reason the generic layout is kept.
+ */
+public class RegisteredMessage {
+
+    // The message every decoded message of this type is copied from
+    @Getter
+    protected final InterfaceMessage template;
+
+    // Compiled layout of the template
+    @Getter
+    protected final MessageLayout layout;
+
+    // Codec used to decode, either the layout itself or a specialized codec of it
+    @Getter
+    protected volatile MessageCodec codec;
+
+    // How many times this message type has been decoded. Only used to decide when to specialize. Atomic as
+    // parallel decoding fills messages of the same type on many threads at once
+    protected final AtomicLong decodeCount = new AtomicLong();
+
+    // If the decoder should decode messages of this type or skip over them. Every type is subscribed until the
+    // decoder is told to only decode some of them
+    @Getter
+    @Setter
+    protected volatile boolean subscribed = true;
+
+    // Instances to decode into when pooling is turned on, only created the first time a pooled instance is asked for
+    @Getter
+    protected volatile MessagePool pool;
+
+    public RegisteredMessage(InterfaceMessage template) throws InvalidMessageLayoutException {
+        this.template = template;
+        this.layout = MessageLayout.compile(template);
+        this.codec = layout;
+    }
+
+    /**
+     * Registers the same message type for another decoder. The template and layout never change so they are shared.
+     * The codec is taken as it is now, so a codec the source has already specialized is shared, but each registration
+     * specializes on its own from here on. The decode count, subscription and pool start out new
+     */
+    public RegisteredMessage(RegisteredMessage source){
+        this.template = source.template;
+        this.layout = source.layout;
+        this.codec = source.codec;
+    }
+
+    /**
+     * @return true if this message type is being decoded with a specialized codec
+     */
+    public boolean isSpecialized(){
+        return codec != layout;
+    }
+
+    /**
+     * @return a new instance of this message type to be filled in
+     */
+    public InterfaceMessage newInstance(){
+        return template.clone();
+    }
+
+    /**
+     * @param poolCapacity how many instances the pool holds if it has not been created yet
+     * @return an instance of this message type from its pool, to be given back with InterfaceMessage.release()
+     */
+    public InterfaceMessage acquireInstance(int poolCapacity){
+        MessagePool messagePool = pool;
+        if(messagePool == null){
+            synchronized(this){
+                if(pool == null)
+                    pool = new MessagePool(this, poolCapacity);
+                messagePool = pool;
+            }
+        }
+        return messagePool.acquire();
+    }
+
+    /**
+     * Fills a message instance of this type from the data in the buffer using the current codec
+     * @param message an instance of this message type
+     * @param buffer data holding the message
+     * @param offset the byte the message starts at
+     * @return how many bytes the message took up
+     * @throws BaseMessagingException if the message could not be filled from the data
+     */
+    public int fill(InterfaceMessage message, byte[] buffer, int offset) throws BaseMessagingException {
+        return fill(message, buffer, offset, false);
+    }
+
+    /**
+     * Fills a message instance of this type from the data in the buffer using the current codec
+     * @param message an instance of this message type
+     * @param buffer data holding the message
+     * @param offset the byte the message starts at
+     * @param lazyFields true to only bind the fields to the messages data (see MessageLayout.bind) rather than set them
+     * @return how many bytes the message took up
+     * @throws BaseMessagingException if the message could not be filled from the data
+     */
+    public int fill(InterfaceMessage message, byte[] buffer, int offset, boolean lazyFields) throws BaseMessagingException {
+        return fill(message, buffer, offset, lazyFields, new long[layout.getFieldCount()]);
+    }
+
+    /**
+     * Fills a message instance of this type from the data in the buffer using the current codec, decoding the field
+     * values into the given array rather than a new one. Nothing is kept of the array once this returns, so a decoder
+     * can pass the same one in for every message
+     * @param message an instance of this message type
+     * @param buffer data holding the message
+     * @param offset the byte the message starts at
+     * @param lazyFields true to only bind the fields to the messages data (see MessageLayout.bind) rather than set them
+     * @param values array of at least getLayout().getFieldCount() to decode the field values into
+     * @return how many bytes the message took up
+     * @throws BaseMessagingException if the message could not be filled from the data
+     */
+    public int fill(InterfaceMessage message, byte[] buffer, int offset, boolean lazyFields, long[] values) throws BaseMessagingException {
+        layout.checkFits(buffer, offset);
+        codec.decode(buffer, offset, values);
+        if(lazyFields)
+            return layout.bind(message, values, buffer, offset);
+        return layout.apply(message, values, buffer, offset);
+    }
+
+    /**
+     * @return how many times this message type has been decoded
+     */
+    public long getDecodeCount(){
+        return decodeCount.get();
+    }
+
+    /**
+     * Counts a decode of this message type and specializes the codec the first time the count reaches the threshold
+     * @param specializationThreshold how many decodes before specializing, 0 or less never specializes
+     */
+    public void recordDecode(int specializationThreshold){
+        long count = decodeCount.incrementAndGet();
+        if(specializationThreshold > 0 && count == specializationThreshold)
+            specialize();
+    }
+
+    /**
+     * Swaps in a codec specialized to this message types layout. Falls back to the generic layout if that fails.
+     */
+    public void specialize(){
+        if(isSpecialized())
+            return;
+        try {
+            codec = CodecSpecializer.specialize(layout);
+        }
+        catch(RuntimeException | LinkageError e){
+            // TODO throw to error handling service
+            e.printStackTrace();
+            codec = layout;
+        }
+    }
+}
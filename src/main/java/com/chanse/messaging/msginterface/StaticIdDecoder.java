@@ -1,18 +1,20 @@
 package com.chanse.messaging.msginterface;
 
+import com.chanse.messaging.exceptions.BadFieldWriteException;
 import com.chanse.messaging.exceptions.BaseMessagingException;
-import com.chanse.messaging.utils.BitUtils;
 import com.chanse.messaging.exceptions.DuplicateMessageIdException;
 import com.chanse.messaging.exceptions.IdOverlapException;
+import com.chanse.messaging.exceptions.InvalidMessageLayoutException;
 import com.chanse.messaging.messages.InterfaceMessage;
-import com.chanse.messaging.utils.MessagingSaveable;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.BitUtils;
 import com.chanse.messaging.utils.SaveLoadUtils;
-import com.google.gson.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.math.BigInteger;
@@ -24,13 +26,20 @@ import java.util.*;
  *
  * Static ID Decoders require that:
  * -The location of the ID fields are at set areas NOT DYNAMIC AREAS (Based off field 1 the next value will be located in a new position)
+ *  Interfaces with dynamic ID fields can use a DynamicIdDecoder
  * -The ID fields form a unique tuple of values on a Message by Message basis
  * -The ID Fields are set lenghts (Some interfaces say... a protobuffer) will have the ID start somewhere but be null terminated. and variable length
- * -The entire message is on the buffer all at once it cant be sent peicewise
  *
- * Static ID Decoders do not require messages to be fixed length.
+ * Static ID Decoders do not require messages to be fixed length. Each message type has a known length though, so a
+ * message that was split across two reads of the stream is held in the receive buffer until the rest of it arrives.
+ *
+ * When all of the ID fields together are 64 bits or less they are packed into a single long, in the order the peek
+ * info was added, and message types are found through a primitive MessageIdTable. Finding the type of an incoming
+ * message then creates nothing. Interfaces with wider IDs fall back to looking up a List of BigIntegers.
+ *
+ * Everything past finding the type of a message is shared with the other ID decoders, see IdDecoder.
  */
-public class StaticIdDecoder extends InterfaceDecoder{
+public class StaticIdDecoder extends IdDecoder{
 
     public StaticIdDecoder(InputStream input){
         super(input);
@@ -54,12 +63,14 @@ public class StaticIdDecoder extends InterfaceDecoder{
         public int bitLength;
     }
 
+    // Where the ID fields are. Copied on write, a published list is never changed
     protected List<IdPeekInfo> idPeekInfoList = new ArrayList<>();
-    protected Map<List<BigInteger>, InterfaceMessage> idToMessageMap = new HashMap<>();
+
+    static protected Type peekListType = new TypeToken<ArrayList<IdPeekInfo>>() {}.getType();
 
     @Override
     public boolean equals(Object obj){
-        if(obj instanceof StaticIdDecoder == false)
+        if(obj instanceof StaticIdDecoder == false || !super.equals(obj))
             return false;
         StaticIdDecoder other = (StaticIdDecoder)obj;
 
@@ -70,26 +81,109 @@ public class StaticIdDecoder extends InterfaceDecoder{
                 return false;
         }
 
-        if(idToMessageMap.size() != other.idToMessageMap.size())
-            return false;
-        for(Map.Entry e : idToMessageMap.entrySet()){
-            if( !other.idToMessageMap.containsKey(e.getKey()) ||
-                !other.idToMessageMap.get(e.getKey()).equals(e.getValue()) )
-                return false;
-        }
-
         return true;
     }
 
-    public void addIdPeekInfo(int offset, int length) throws IdOverlapException {
-        IdPeekInfo newPeekInfo = new IdPeekInfo(offset, length);
-        idPeekInfoList.add(newPeekInfo);
-        try{
-            validateIdPeekInfo();
-        }catch(IdOverlapException e){
-            idPeekInfoList.remove(newPeekInfo);
+    public synchronized void addIdPeekInfo(int offset, int length) throws IdOverlapException {
+        List<IdPeekInfo> newPeekInfoList = new ArrayList<>(idPeekInfoList);
+        newPeekInfoList.add(new IdPeekInfo(offset, length));
+        validateIdPeekInfo(newPeekInfoList);
+
+        idPeekInfoList = newPeekInfoList;
+        recompileDictionary();
+    }
+
+    @Override
+    protected IdDictionary compileDictionary(Map<List<BigInteger>, RegisteredMessage> registeredMessages){
+        return new PeekInfoDictionary(idPeekInfoList, registeredMessages);
+    }
+
+    /**
+     * Dictionary that reads the ID fields at the places in the peek info
+     */
+    protected static class PeekInfoDictionary extends IdDictionary {
+        final List<IdPeekInfo> idPeekInfoList;
+
+        // The peek info as flat arrays, and if every ID fits packed into a long
+        final int[] idBitOffsets;
+        final int[] idBitLengths;
+        final boolean idsPackIntoLong;
+
+        // How many bytes from the start of a message have to be there before its ID fields can be read
+        final int idBytesNeeded;
+
+        // Registered messages by their packed ID's, only used when idsPackIntoLong
+        final MessageIdTable packedIdTable;
+
+        PeekInfoDictionary(List<IdPeekInfo> idPeekInfoList, Map<List<BigInteger>, RegisteredMessage> registeredMessages){
+            super(registeredMessages);
+            this.idPeekInfoList = idPeekInfoList;
+
+            idBitOffsets = new int[idPeekInfoList.size()];
+            idBitLengths = new int[idPeekInfoList.size()];
+            int totalBits = 0;
+            int bytesNeeded = 0;
+            for(int i = 0; i < idPeekInfoList.size(); i++){
+                idBitOffsets[i] = idPeekInfoList.get(i).getBitOffset();
+                idBitLengths[i] = idPeekInfoList.get(i).getBitLength();
+                totalBits += idBitLengths[i];
+                bytesNeeded = Math.max(bytesNeeded, (idBitOffsets[i] + idBitLengths[i] + 7) / 8);
+            }
+            idBytesNeeded = bytesNeeded;
+            idsPackIntoLong = totalBits <= BitCodec.MAX_PRIMITIVE_BITS;
+
+            packedIdTable = new MessageIdTable(Math.max(registeredMessages.size(), 8));
+            for(Map.Entry<List<BigInteger>, RegisteredMessage> e : registeredMessages.entrySet())
+                putPackedId(e.getKey(), e.getValue());
+        }
+
+        /**
+         * Packs the ID values into a long and stores the message against it. ID values too wide for their peek info
+         * could never be read off the wire, so they are left out of the table
+         */
+        private void putPackedId(List<BigInteger> idValues, RegisteredMessage registeredMessage){
+            if(!idsPackIntoLong || idValues.size() != idBitLengths.length)
+                return;
+
+            long packedId = 0L;
+            for(int i = 0; i < idBitLengths.length; i++){
+                BigInteger idValue = idValues.get(i);
+                if(idValue.signum() < 0 || idValue.bitLength() > idBitLengths[i])
+                    return;
+                packedId = (idBitLengths[i] == 64 ? 0L : packedId << idBitLengths[i]) | idValue.longValue();
+            }
+            packedIdTable.put(packedId, registeredMessage);
+        }
+
+        @Override
+        boolean idFieldsAvailable(byte[] data, int byteOffset, int bitShift, long bitsAvailable){
+            return bitsAvailable >= idBytesNeeded * 8L;
+        }
+
+        @Override
+        RegisteredMessage find(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+            if(!idsPackIntoLong)
+                return registeredMessages.get(peekMessageId(data, byteOffset, bitShift));
+
+            long packedId = 0L;
+            for(int i = 0; i < idBitOffsets.length; i++){
+                int length = idBitLengths[i];
+                int bitOffset = bitShift + idBitOffsets[i];
+                if(!BitCodec.fits(data.length, byteOffset, bitOffset, length))
+                    throw new BadFieldWriteException("Unable to peek at bits on the given inputData stream because the offset:"+
+                            (byteOffset*8 + bitOffset)+" and length:"+length+" overflows the input data with "+data.length+" bytes.");
+                long idValue = BitCodec.readBits(data, byteOffset, bitOffset, length);
+                packedId = (length == 64 ? 0L : packedId << length) | idValue;
+            }
+            return packedIdTable.get(packedId);
+        }
 
-            throw e;
+        @Override
+        List<BigInteger> peekMessageId(byte[] data, int byteOffset, int bitShift) throws BaseMessagingException {
+            List<BigInteger> messageUniqueId = new ArrayList<>();
+            for(IdPeekInfo id : idPeekInfoList)
+                messageUniqueId.add(BitUtils.peekAtBits(byteOffset*8 + bitShift + id.bitOffset, id.bitLength, data));
+            return messageUniqueId;
         }
     }
 
@@ -99,11 +193,18 @@ public class StaticIdDecoder extends InterfaceDecoder{
      * @throws IdOverlapException if any of the ID's for this Interface would be overlapping
      */
     protected void validateIdPeekInfo() throws IdOverlapException{
+        validateIdPeekInfo(idPeekInfoList);
+    }
+
+    /**
+     * Validates that none of the given peek info overlaps, see validateIdPeekInfo()
+     */
+    protected void validateIdPeekInfo(List<IdPeekInfo> peekInfoList) throws IdOverlapException{
         StringBuilder errorMessage = new StringBuilder();
         // Simple strategy that has a large memory cost. But because this will only be called at configuration
         // it doesnt matter
         Set<Integer> uniqueBits = new HashSet<Integer>();
-        for(IdPeekInfo p : idPeekInfoList){
+        for(IdPeekInfo p : peekInfoList){
             for(int i=0; i<p.getBitLength(); i++){
                 if(uniqueBits.contains(new Integer(i+p.getBitOffset())))
                     errorMessage.append("Bit "+(i+p.getBitOffset())+ " was found to overlap.");
@@ -116,7 +217,8 @@ public class StaticIdDecoder extends InterfaceDecoder{
             throw new IdOverlapException(errorMessage.toString());
     }
 
-    public void addMessage(List<BigInteger> idValues, InterfaceMessage message) throws DuplicateMessageIdException {
+    @Override
+    public synchronized void addMessage(List<BigInteger> idValues, InterfaceMessage message) throws DuplicateMessageIdException, InvalidMessageLayoutException {
         if (idPeekInfoList.size() != idValues.size()){
             throw new DuplicateMessageIdException("Tried to add message "+message.getMessageName()+" but only provided "+
                     idValues.size()+" ID's and the StaticIDDecoder expects "+idPeekInfoList.size()+" ID's. Unable to add message.");
@@ -127,99 +229,24 @@ public class StaticIdDecoder extends InterfaceDecoder{
         }
 
         // Add a clone so that in the case the message is modifified by another service the copy doesnt change.
-        idToMessageMap.put(idValues, message.clone());
+        registerMessage(idValues, message.clone());
     }
 
     @Override
-    public List<InterfaceMessage> decodeMessages() throws IOException, BaseMessagingException {
-        List<InterfaceMessage> decodedMessages = new ArrayList<InterfaceMessage>();
-
-        byte[] dataToDecode = new byte[this.inputStream.available()];
-        this.inputStream.read(dataToDecode);
-        while(dataToDecode.length > 0){
-                // Find what message to get
-                List<BigInteger> messageUniqueId = new ArrayList<>();
-                for(IdPeekInfo id : idPeekInfoList)
-                    messageUniqueId.add(BitUtils.peekAtBits(id.bitOffset, id.bitLength, dataToDecode));
-
-                if(!idToMessageMap.containsKey(messageUniqueId)) {
-                    errorOccurred = true;
-                    errorLog.append("Unable to find any message associated with the following ids:"+messageUniqueId+"\n Aborting reading any more messages with this call");
-                    break;
-                }
-
-                // Get a clone so that it can be unique from other messages.
-                InterfaceMessage message = idToMessageMap.get(messageUniqueId).clone();
-                int messageBytes = BitUtils.fillMessageFromData(message, dataToDecode);
-                decodedMessages.add(message);
-                dataToDecode = Arrays.copyOfRange(dataToDecode, messageBytes, dataToDecode.length);
-        }
-
-        return decodedMessages;
+    protected void copyIdDefinition(IdDictionary sourceDictionary){
+        // A decoder that has had nothing added still has the dictionary it started with, which has no peek info
+        idPeekInfoList = sourceDictionary instanceof PeekInfoDictionary ?
+                ((PeekInfoDictionary) sourceDictionary).idPeekInfoList : new ArrayList<>();
     }
 
     @Override
-    public List<InterfaceMessage> decodeMessages(int maxMessages)  throws IOException, BaseMessagingException {
-        List<InterfaceMessage> decodedMessages = new ArrayList<InterfaceMessage>();
-
-        byte[] dataToDecode = new byte[this.inputStream.available()];
-        this.inputStream.read(dataToDecode);
-        while(dataToDecode.length > 0 && decodedMessages.size() < maxMessages){
-            // Find what message to get
-            List<BigInteger> messageUniqueId = new ArrayList<>();
-            for(IdPeekInfo id : idPeekInfoList)
-                messageUniqueId.add(BitUtils.peekAtBits(id.bitOffset, id.bitLength, dataToDecode));
-
-            if(!idToMessageMap.containsKey(messageUniqueId)) {
-                errorOccurred = true;
-                errorLog.append("Unable to find any message associated with the following ids:"+messageUniqueId+"\n Aborting reading any more messages with this call");
-                break;
-            }
-
-            InterfaceMessage message = idToMessageMap.get(messageUniqueId);
-            BitUtils.fillMessageFromData(message, dataToDecode);
-            decodedMessages.add(message);
-        }
-
-        return decodedMessages;
+    public StaticIdDecoder clone(){
+        return (StaticIdDecoder) super.clone();
     }
 
-    public static class StaticIdDecoderAdapter implements JsonDeserializer<StaticIdDecoder> {
-        static protected Type peekListType = new TypeToken<ArrayList<IdPeekInfo>>() {}.getType();
-        static protected Type idMapType = new TypeToken<HashMap<String, InterfaceMessage>>() {}.getType();
-
-        @Override
-        public StaticIdDecoder deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-
-            try {
-                StaticIdDecoder decoder = new StaticIdDecoder();
-
-                JsonObject decoderAsJSon = (JsonObject)json;
-                JsonArray idPeekInfoJson = decoderAsJSon.getAsJsonArray("idPeekInfoList");
-                decoder.idPeekInfoList = SaveLoadUtils.Instance.myRegisteredGson.fromJson(idPeekInfoJson, peekListType);
-
-                JsonObject idToMessageMapJson = decoderAsJSon.getAsJsonObject("idToMessageMap");
-                HashMap<String, InterfaceMessage> stringToMessageMap =
-                                        SaveLoadUtils.Instance.myRegisteredGson.fromJson(idToMessageMapJson, idMapType);
-
-                for(Map.Entry<String, InterfaceMessage> e : stringToMessageMap.entrySet()){
-                    // The format that the key will be is "[#, #, ...]"
-                    String[] numberStrings = e.getKey().substring(1, e.getKey().length()-1).split(",");
-
-                    List<BigInteger> idKeys = new ArrayList<>();
-                    for(String s : numberStrings){
-                        BigInteger key = new BigInteger(s.trim());
-                        idKeys.add(key);
-                    }
-
-                    decoder.idToMessageMap.put(idKeys, e.getValue());
-                }
-
-                return decoder;
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
-            }
-        }
+    @Override
+    protected void loadIdDefinition(JsonObject decoderAsJson){
+        JsonArray idPeekInfoJson = decoderAsJson.getAsJsonArray("idPeekInfoList");
+        idPeekInfoList = SaveLoadUtils.Instance.myRegisteredGson.fromJson(idPeekInfoJson, peekListType);
     }
-}
\ No newline at end of file
+}
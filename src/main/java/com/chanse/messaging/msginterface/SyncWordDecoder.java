@@ -0,0 +1,129 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.exceptions.BaseMessagingException;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A Sync Word Decoder is a decoder for an interface that sends a fixed pattern of bytes, the sync word, in front of
+ * every message. Whatever follows the sync word is handed to the dispatcher (see FramedDecoder) to find and decode the
+ * message, so message ID's are found relative to the end of the sync word.
+ *
+ * The message type gives how long the message is, so a known message is decoded as soon as it has arrived and the
+ * next sync word is expected right after it. Anything that is not a sync word where one is expected, and any message
+ * the dispatcher does not know, is skipped by scanning forward to the next sync word. That means a sync word may turn
+ * up inside a message too, it will only be looked for once the decoder has lost track of where messages are.
+ */
+public class SyncWordDecoder extends FramedDecoder {
+
+    // Bytes in front of every message
+    @Getter
+    protected byte[] syncWord = new byte[]{(byte)0xEB, (byte)0x90};
+
+    // Bytes that were skipped scanning for a sync word
+    @Getter
+    protected transient long bytesSkipped = 0;
+
+    public SyncWordDecoder(InputStream inputStream){
+        super(inputStream);
+    }
+    public SyncWordDecoder(){ super(null); }
+
+    /**
+     * @throws IllegalArgumentException if the sync word is empty
+     */
+    public void setSyncWord(byte[] syncWord){
+        if(syncWord == null || syncWord.length == 0)
+            throw new IllegalArgumentException("A sync word needs at least one byte");
+        this.syncWord = syncWord.clone();
+    }
+
+    @Override
+    public int decodeMessages(byte[] buffer, int offset, int length, MessageHandler handler, int maxMessages) throws BaseMessagingException {
+        int cursor = offset;
+        int end = offset + length;
+        int messagesDecoded = 0;
+
+        while(cursor < end && messagesDecoded < maxMessages){
+            int syncAt = indexOfSyncWord(buffer, cursor, end);
+            if(syncAt < 0){
+                // The last few bytes could still be the start of a sync word, hold them for the next read
+                int held = Math.min(end - cursor, syncWord.length - 1);
+                skip(end - held - cursor);
+                cursor = end - held;
+                break;
+            }
+            if(syncAt != cursor){
+                skip(syncAt - cursor);
+                cursor = syncAt;
+            }
+
+            int messageOffset = cursor + syncWord.length;
+            if(!dispatcher.idFieldsAvailable(buffer, messageOffset, 0, (end - messageOffset) * 8L))
+                break;
+
+            RegisteredMessage registeredMessage = findFrameMessage(buffer, messageOffset, end - messageOffset);
+            if(registeredMessage == null){
+                // Step past this sync word so the scan finds the next one
+                cursor = messageOffset;
+                continue;
+            }
+
+            int messageBytes = registeredMessage.getLayout().getTotalBytes();
+            if(end - messageOffset < messageBytes)
+                break;
+
+            if(!registeredMessage.isSubscribed()){
+                dispatcher.noteUnsubscribedSkip();
+                cursor = messageOffset + messageBytes;
+                continue;
+            }
+
+            handler.onMessage(dispatcher.decodeRegisteredMessage(registeredMessage, buffer, messageOffset));
+            messagesDecoded++;
+            cursor = messageOffset + messageBytes;
+        }
+
+        messagesInLastRange = messagesDecoded;
+        return cursor - offset;
+    }
+
+    /**
+     * @return the index of the first sync word in the range or -1 if there is no whole one
+     */
+    protected int indexOfSyncWord(byte[] buffer, int from, int end){
+        int last = end - syncWord.length;
+        for(int i = from; i <= last; i++){
+            if(buffer[i] != syncWord[0])
+                continue;
+            int matched = 1;
+            while(matched < syncWord.length && buffer[i + matched] == syncWord[matched])
+                matched++;
+            if(matched == syncWord.length)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Counts bytes skipped looking for a sync word
+     */
+    protected void skip(int bytes){
+        if(bytes <= 0)
+            return;
+        bytesSkipped += bytes;
+        recordError(DecoderErrorLog.ErrorKind.RESYNC, "Skipped "+bytes+" bytes looking for the sync word");
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if(obj instanceof SyncWordDecoder == false)
+            return false;
+        SyncWordDecoder other = (SyncWordDecoder)obj;
+
+        return Arrays.equals(syncWord, other.syncWord) && dispatcher.equals(other.dispatcher);
+    }
+}
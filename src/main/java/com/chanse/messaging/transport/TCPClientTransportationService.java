@@ -4,6 +4,7 @@ package com.chanse.messaging.transport;
 import com.chanse.messaging.exceptions.BaseMessagingException;
 import com.chanse.messaging.exceptions.ConnectionException;
 import com.chanse.messaging.msginterface.InterfaceDecoder;
+import com.chanse.messaging.msginterface.MessageHandler;
 import lombok.Setter;
 import lombok.Getter;
 import com.chanse.messaging.messages.InterfaceMessage;
@@ -13,7 +14,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -46,6 +47,11 @@ public class TCPClientTransportationService implements TransportService {
     @Setter
     protected InterfaceDecoder decoder;
 
+    // Handler receiveMessagesToHandler() pushes decoded messages to, it is code so it is not saved
+    @Getter
+    @Setter
+    transient protected MessageHandler messageHandler;
+
     @Getter
     transient protected OutputStream outputStream;
 
@@ -72,7 +78,7 @@ public class TCPClientTransportationService implements TransportService {
         if(!isConnected)
             return null;
 
-        List<InterfaceMessage> receivedMessages = new ArrayList<>();
+        List<InterfaceMessage> receivedMessages = Collections.emptyList();
         try {
             receivedMessages = decoder.decodeMessages();
         }
@@ -84,6 +90,22 @@ public class TCPClientTransportationService implements TransportService {
         return receivedMessages;
     }
 
+    @Override
+    public int receiveMessages(MessageHandler handler) {
+        if(!isConnected)
+            return 0;
+
+        try {
+            return decoder.decodeMessages(handler);
+        }
+        catch(IOException | BaseMessagingException e){
+            //TODO Handle a read error and push an error event to the error logging service
+            e.printStackTrace();
+            isConnected = false;
+        }
+        return 0;
+    }
+
     @Override
     public boolean isSetup(){
         return decoder != null;
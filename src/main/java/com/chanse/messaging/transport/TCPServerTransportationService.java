@@ -3,23 +3,55 @@ package com.chanse.messaging.transport;
 import com.chanse.messaging.exceptions.BaseMessagingException;
 import com.chanse.messaging.exceptions.ConnectionException;
 import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.msginterface.DecoderErrorLog;
 import com.chanse.messaging.msginterface.InterfaceDecoder;
+import com.chanse.messaging.msginterface.MessageHandler;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of the TransportationService interface but in for the TCP protocol acting as a Server
  *
- * This service will behave as a client and specifcially look to bind to a ServerSocket at a given hostname/ipaddress
- * and port. If there is any known IO error after a sucessfull connection then the connection will be marked as a failure
- * and an event will be thrown.
+ * The server listens on the receive port and serves any number of clients at once. One I/O thread waits on a Selector
+ * for every socket, accepting new clients, reading whatever has arrived and writing whatever could not be sent
+ * straight away. No thread is started per client and nothing sleeps waiting for one.
+ *
+ * Each client is a ClientConnection with its own clone of the configured decoder and its own read buffer, so a
+ * message split between reads on one connection is never mixed up with the bytes of another. Messages are decoded on
+ * the I/O thread as they arrive and wait on their connection until they are received, either from every connection
+ * with receiveMessages or from one connection through it. A connection holding maxQueuedMessages stops being read
+ * until some are received, so a client sending faster than it is received from is held back by TCP rather than
+ * filling the servers memory.
+ *
+ * sendMessage sends to every connection, sendMessage with a connection ID sends to just that one. If there is an IO
+ * error or bad data on a connection only that connection is closed, the rest of the clients are still served. What
+ * went wrong on a connection is recorded on the error log of its decoder, anything that is not about one connection
+ * (IE accepting a client) is recorded on the error log of the server.
  */
 public class TCPServerTransportationService implements TransportService {
 
@@ -31,56 +63,356 @@ public class TCPServerTransportationService implements TransportService {
     @Setter
     protected Integer receivePort;
 
-    //TODO allow for a serverTransportationService to accept multiple connects.
+    // How long connect() waits for the first client
     @Getter
     @Setter
     protected Integer waitTimeoutSeconds = 10;
 
+    // The decoder every connection is given a clone of. It is never read from itself
     @Getter
     @Setter
     protected InterfaceDecoder decoder;
 
+    // How many bytes each connection reads off of its socket at a time
     @Getter
-    transient protected OutputStream outputStream;
+    @Setter
+    protected int readBufferSize = 8192;
 
+    // How many decoded messages a connection holds before it stops reading its socket until some are received
     @Getter
-    transient protected ServerSocket myServerSocket;
+    @Setter
+    protected int maxQueuedMessages = 4096;
 
+    // Handler receiveMessagesToHandler() pushes decoded messages to, it is code so it is not saved
     @Getter
-    transient protected Socket acceptedSocket;
+    @Setter
+    transient protected MessageHandler messageHandler;
 
-    transient private boolean isConnected = false;
+    @Getter
+    transient protected ServerSocketChannel serverChannel;
 
-    @Override
-    public void sendMessage(byte[] msg) {
-        try{
-            outputStream.write(msg);
+    transient protected Selector selector;
+
+    transient protected Thread ioThread;
+
+    // Errors that are not about any one connection, see ClientConnection.getDecoder().getErrorLog() for the rest
+    @Getter
+    transient protected DecoderErrorLog errorLog = new DecoderErrorLog();
+
+    transient protected volatile boolean running = false;
+
+    // Every connection by its ID. A closed connection stays until the messages it received are taken off of it
+    transient protected Map<Integer, ClientConnection> connections = new ConcurrentHashMap<>();
+
+    transient protected AtomicInteger nextConnectionId = new AtomicInteger();
+
+    // Connections that have bytes waiting to be sent or can be read again, for the I/O thread to change what it
+    // watches them for
+    transient protected Queue<ClientConnection> pendingInterestChanges = new ConcurrentLinkedQueue<>();
+
+    // Counted down when the first client connects, what connect() waits on
+    transient protected CountDownLatch firstConnection = new CountDownLatch(1);
+
+    /**
+     * One client of the server. Its decoder and read buffer are only used on the I/O thread, its received messages
+     * and sends can be used from any thread.
+     */
+    public class ClientConnection {
+
+        @Getter
+        protected final int connectionId;
+
+        @Getter
+        protected final SocketChannel channel;
+
+        // Clone of the servers decoder, reading from the read buffer
+        @Getter
+        protected final InterfaceDecoder decoder;
+
+        // Bytes of the last read off of the socket, drained by the decoder before the next read
+        protected final ByteBuffer readBuffer;
+
+        // Messages decoded but not received yet, and how many there are as the size of the queue has to count them
+        protected final Queue<InterfaceMessage> receivedMessages = new ConcurrentLinkedQueue<>();
+        protected final AtomicInteger queuedMessageCount = new AtomicInteger();
+        protected final MessageHandler addToReceived = message -> {
+            receivedMessages.add(message);
+            queuedMessageCount.incrementAndGet();
+        };
+
+        // Set while the connection holds maxQueuedMessages and its socket is not being read
+        @Getter
+        protected volatile boolean readingPaused = false;
+
+        // Bytes that could not be written without blocking, in the order they were sent
+        protected final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+
+        protected SelectionKey key;
+
+        @Getter
+        protected volatile boolean open = true;
+
+        protected ClientConnection(int connectionId, SocketChannel channel, InterfaceDecoder decoder){
+            this.connectionId = connectionId;
+            this.channel = channel;
+            this.decoder = decoder;
+            this.readBuffer = ByteBuffer.allocate(readBufferSize);
+            this.decoder.setInputStream(new InputStream() {
+                @Override
+                public int available(){
+                    return readBuffer.remaining();
+                }
+
+                @Override
+                public int read(){
+                    return readBuffer.hasRemaining() ? readBuffer.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length){
+                    if(!readBuffer.hasRemaining())
+                        return -1;
+                    int count = Math.min(length, readBuffer.remaining());
+                    readBuffer.get(bytes, offset, count);
+                    return count;
+                }
+            });
+        }
+
+        public SocketAddress getRemoteAddress(){
+            return channel.socket().getRemoteSocketAddress();
+        }
+
+        /**
+         * Sends the bytes to this client. As much as the socket takes is written straight away, the rest is copied and
+         * written by the I/O thread, so the array can be reused as soon as this returns.
+         * @return false if the connection is closed
+         */
+        public synchronized boolean sendMessage(byte[] msg){
+            if(!open)
+                return false;
+            try{
+                if(outbound.isEmpty()){
+                    ByteBuffer data = ByteBuffer.wrap(msg);
+                    channel.write(data);
+                    if(!data.hasRemaining())
+                        return true;
+                    outbound.add(ByteBuffer.wrap(Arrays.copyOfRange(msg, data.position(), msg.length)));
+                }
+                else
+                    outbound.add(ByteBuffer.wrap(msg.clone()));
+
+                pendingInterestChanges.add(this);
+                selector.wakeup();
+                return true;
+            }
+            catch(IOException e){
+                fail(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Writing to", e);
+                return false;
+            }
+        }
+
+        /**
+         * @return every message decoded from this client since the last receive, oldest first
+         */
+        public List<InterfaceMessage> receiveMessages(){
+            List<InterfaceMessage> messages = new ArrayList<>();
+            receiveMessages(messages::add);
+            return messages;
+        }
+
+        /**
+         * Hands every message decoded from this client since the last receive to the handler, oldest first
+         * @return the number of messages handed to the handler
+         */
+        public int receiveMessages(MessageHandler handler){
+            int count = 0;
+            InterfaceMessage message;
+            while((message = receivedMessages.poll()) != null){
+                queuedMessageCount.decrementAndGet();
+                handler.onMessage(message);
+                count++;
+            }
+            if(!open)
+                removeIfDrained();
+            else if(readingPaused && queuedMessageCount.get() < maxQueuedMessages){
+                readingPaused = false;
+                pendingInterestChanges.add(this);
+                selector.wakeup();
+            }
+            return count;
+        }
+
+        /**
+         * @return how many decoded messages are waiting to be received
+         */
+        public int getQueuedMessageCount(){
+            return queuedMessageCount.get();
+        }
+
+        /**
+         * Reads whatever has arrived and decodes it. Called on the I/O thread when the socket is readable
+         */
+        protected void read(){
+            try{
+                if(channel.read(readBuffer) < 0){
+                    close();
+                    return;
+                }
+                readBuffer.flip();
+                decoder.decodeMessages(addToReceived);
+                readBuffer.clear();
+
+                if(queuedMessageCount.get() >= maxQueuedMessages){
+                    readingPaused = true;
+                    // Messages may have been received since the count was read, in which case nothing resumes it
+                    if(queuedMessageCount.get() < maxQueuedMessages)
+                        readingPaused = false;
+                    else
+                        updateInterestOps();
+                }
+            }
+            catch(IOException e){
+                fail(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Reading from", e);
+            }
+            catch(BaseMessagingException | RuntimeException e){
+                fail(DecoderErrorLog.ErrorKind.DECODE_FAILED, "Decoding from", e);
+            }
+        }
+
+        /**
+         * Writes what is waiting to be sent until the socket takes no more. Called on the I/O thread when the socket
+         * has room
+         */
+        protected synchronized void flush(){
+            try{
+                ByteBuffer next;
+                while((next = outbound.peek()) != null){
+                    channel.write(next);
+                    if(next.hasRemaining())
+                        return;
+                    outbound.poll();
+                }
+                updateInterestOps();
+            }
+            catch(IOException | RuntimeException e){
+                fail(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Writing to", e);
+            }
+        }
+
+        /**
+         * Has the selector tell the I/O thread once the socket has room for what is waiting to be sent, and once it
+         * has bytes to read unless reading is paused. Interest can only be changed without blocking from the I/O
+         * thread, so sends and receives queue the connection for it to do this
+         */
+        protected synchronized void updateInterestOps(){
+            if(open && key.isValid())
+                key.interestOps((readingPaused ? 0 : SelectionKey.OP_READ) | (outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+
+        public synchronized void close(){
+            if(!open)
+                return;
+            open = false;
+            outbound.clear();
+            if(key != null)
+                key.cancel();
+            try{
+                channel.close();
+            }
+            catch(IOException e){
+                decoder.getErrorLog().record(DecoderErrorLog.ErrorKind.CONNECTION_FAILED,
+                        "Closing connection "+connectionId+" failed: "+e);
+            }
+            removeIfDrained();
         }
-        catch(IOException e)
-        {
-            //TODO Handle exception
-            e.printStackTrace();
-            isConnected = false;
+
+        /**
+         * Records what went wrong on the error log of the connections decoder and closes the connection
+         * @param action what was being done to the connection, IE "Reading from"
+         */
+        protected void fail(DecoderErrorLog.ErrorKind kind, String action, Exception e){
+            decoder.getErrorLog().record(kind, action+" connection "+connectionId+" failed, closing it: "+e);
+            close();
+        }
+
+        protected void removeIfDrained(){
+            if(receivedMessages.isEmpty())
+                connections.remove(connectionId, this);
         }
     }
 
+    /**
+     * Sends the bytes to every open connection
+     */
+    @Override
+    public void sendMessage(byte[] msg) {
+        for(ClientConnection connection : connections.values())
+            connection.sendMessage(msg);
+    }
+
+    /**
+     * Sends the bytes to one connection
+     * @param connectionId ID of the connection to send to, see getConnections
+     * @return false if there is no open connection with that ID
+     */
+    public boolean sendMessage(int connectionId, byte[] msg){
+        ClientConnection connection = connections.get(connectionId);
+        return connection != null && connection.sendMessage(msg);
+    }
+
+    /**
+     * Sends the wire bytes of the message to one connection, see TransportService.sendMessage(InterfaceMessage)
+     */
+    public boolean sendMessage(int connectionId, InterfaceMessage msg){
+        byte[] wireData = new byte[msg.getEncodedLength()];
+        msg.encodeTo(wireData, 0);
+        return sendMessage(connectionId, wireData);
+    }
+
+    /**
+     * @return every connection, including closed ones that still have messages waiting to be received
+     */
+    public Collection<ClientConnection> getConnections(){
+        return Collections.unmodifiableCollection(connections.values());
+    }
+
+    public ClientConnection getConnection(int connectionId){
+        return connections.get(connectionId);
+    }
+
+    /**
+     * @return the port the server is listening on, which is the one picked by the system if the receive port was 0
+     */
+    public int getLocalPort(){
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Receives the messages of every connection, each connections messages together and oldest first
+     */
     @Override
     public List<InterfaceMessage> receiveMessages() {
-        if(!isConnected || !isSetup())
+        // Closed connections are still drained, their messages were decoded before they closed
+        if(!isSetup())
             return null;
 
         List<InterfaceMessage> receivedMessages = new ArrayList<>();
-        try {
-            receivedMessages = decoder.decodeMessages();
-        }
-        catch(IOException | BaseMessagingException e){
-            //TODO Handle a read error and push an error event to the error logging service
-            e.printStackTrace();
-            isConnected = false;
-        }
+        for(ClientConnection connection : connections.values())
+            connection.receiveMessages(receivedMessages::add);
         return receivedMessages;
     }
 
+    @Override
+    public int receiveMessages(MessageHandler handler) {
+        if(!isSetup())
+            return 0;
+        int count = 0;
+        for(ClientConnection connection : connections.values())
+            count += connection.receiveMessages(handler);
+        return count;
+    }
+
     @Override
     public boolean isSetup(){
         return decoder != null;
@@ -90,69 +422,174 @@ public class TCPServerTransportationService implements TransportService {
     public void setup() {
         myStatus = Statuses.SETTING_UP;
         try{
-            myServerSocket = new ServerSocket(receivePort);
+            firstConnection = new CountDownLatch(1);
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.bind(new InetSocketAddress(receivePort));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
             myStatus = Statuses.SET_UP;
         }
         catch(Exception exception ){
-            // TODO Handle Exception logging
-            exception.printStackTrace();
+            errorLog.record(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Setting up the server failed: "+exception);
             myStatus = Statuses.FAILED_SETUP;
         }
     }
 
+    /**
+     * @return if the server is running and has at least one open connection
+     */
     @Override
     public boolean isConnected() {
-        return isConnected;
+        if(!running)
+            return false;
+        for(ClientConnection connection : connections.values()){
+            if(connection.isOpen())
+                return true;
+        }
+        return false;
     }
 
+    /**
+     * Starts the I/O thread and waits up to waitTimeoutSeconds for the first client to connect. Clients are accepted
+     * for as long as the server is running, whether or not one connected in time.
+     */
     @Override
     public void connect() throws ConnectionException {
         myStatus = Statuses.CONNECTING;
-        if(!isSetup())
+        if(!isSetup() || serverChannel == null)
             throw new ConnectionException("Cannot connect the server socket because it has not been setup yet.");
         try{
-            int secondsCounted = 0;
-            acceptedSocket = null;
-
-            while (secondsCounted < getWaitTimeoutSeconds() && acceptedSocket == null) {
-                Thread acceptThread = new Thread(){
-                    @Override
-                    public void run() {
-                        try {
-                            acceptedSocket = myServerSocket.accept();
-                        } catch (Exception e){
-                            e.printStackTrace();
-                        }
-                    }
-                };
-                acceptThread.start();
-                Thread.sleep(1000);
-                secondsCounted += 1;
-                acceptThread.interrupt();
-            }
-
-            if(acceptedSocket == null) {
-                throw new Exception("Error while waiting for client to connect to the server, unable to setup");
+            if(!running){
+                running = true;
+                ioThread = new Thread(this::runSelectLoop, "TCPServer-"+getLocalPort());
+                ioThread.setDaemon(true);
+                ioThread.start();
             }
 
-            this.decoder.setInputStream(acceptedSocket.getInputStream());
-            outputStream = acceptedSocket.getOutputStream();
+            if(!firstConnection.await(getWaitTimeoutSeconds(), TimeUnit.SECONDS))
+                throw new Exception("Error while waiting for client to connect to the server, unable to setup");
             myStatus = Statuses.CONNECTED;
-            isConnected = true;
         }
         catch(Exception exception ){
-            // TODO Handle Exception logging
-            exception.printStackTrace();
+            errorLog.record(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Connecting the server failed: "+exception);
             myStatus = Statuses.FAILED_CONNECTION;
         }
     }
 
+    /**
+     * The I/O thread, serves every socket until the server is disconnected
+     */
+    protected void runSelectLoop(){
+        while(running){
+            try{
+                selector.select();
+
+                ClientConnection changed;
+                while((changed = pendingInterestChanges.poll()) != null)
+                    changed.updateInterestOps();
+
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while(selectedKeys.hasNext()){
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if(key.isValid())
+                        serviceKey(key);
+                }
+            }
+            catch(ClosedSelectorException e){
+                return;
+            }
+            catch(IOException e){
+                errorLog.record(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Waiting on the sockets failed: "+e);
+            }
+        }
+    }
+
+    /**
+     * Accepts, reads or writes for one key. Anything that goes wrong only closes the connection of the key, the I/O
+     * thread carries on serving the rest
+     */
+    protected void serviceKey(SelectionKey key){
+        if(key.isAcceptable()){
+            try{
+                accept();
+            }
+            catch(IOException | RuntimeException e){
+                errorLog.record(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Accepting a client failed: "+e);
+            }
+            return;
+        }
+
+        ClientConnection connection = (ClientConnection)key.attachment();
+        try{
+            if(key.isReadable())
+                connection.read();
+            if(key.isValid() && key.isWritable())
+                connection.flush();
+        }
+        catch(RuntimeException e){
+            connection.fail(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "Serving", e);
+        }
+    }
+
+    /**
+     * Accepts a waiting client and gives it a clone of the decoder
+     */
+    protected void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if(channel == null)
+            return;
+
+        InterfaceDecoder connectionDecoder;
+        String cloneFailure = "";
+        try{
+            connectionDecoder = decoder.clone();
+        }
+        catch(RuntimeException e){
+            connectionDecoder = null;
+            cloneFailure = ": "+e;
+        }
+        if(connectionDecoder == null){
+            errorLog.record(DecoderErrorLog.ErrorKind.CONNECTION_FAILED, "The decoder could not be cloned for the client at "+
+                    channel.socket().getRemoteSocketAddress()+", closing it"+cloneFailure);
+            channel.close();
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        ClientConnection connection = new ClientConnection(nextConnectionId.incrementAndGet(), channel, connectionDecoder);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.put(connection.getConnectionId(), connection);
+        firstConnection.countDown();
+    }
+
     @Override
     public void disconnect() throws IOException{
-        if(myServerSocket != null)
-            myServerSocket.close();
-        if(acceptedSocket != null)
-            acceptedSocket.close();
+        running = false;
+        if(selector != null)
+            selector.wakeup();
+        if(ioThread != null){
+            try{
+                ioThread.join(TimeUnit.SECONDS.toMillis(1));
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            ioThread = null;
+        }
+
+        for(ClientConnection connection : connections.values())
+            connection.close();
+        connections.clear();
+        pendingInterestChanges.clear();
+
+        if(serverChannel != null)
+            serverChannel.close();
+        if(selector != null)
+            selector.close();
         myStatus = Statuses.DISCONNECTED;
     }
 
@@ -175,6 +612,8 @@ public class TCPServerTransportationService implements TransportService {
 
         return (receivePort.equals(other.getReceivePort()) &&
                 waitTimeoutSeconds.equals(other.getWaitTimeoutSeconds()) &&
+                readBufferSize == other.getReadBufferSize() &&
+                maxQueuedMessages == other.getMaxQueuedMessages() &&
                 decoder.equals(other.getDecoder()) );
     }
 }
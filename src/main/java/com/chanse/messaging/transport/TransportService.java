@@ -3,7 +3,9 @@ package com.chanse.messaging.transport;
 import com.chanse.messaging.exceptions.ConnectionException;
 import com.chanse.messaging.messages.InterfaceMessage;
 import com.chanse.messaging.msginterface.InterfaceDecoder;
+import com.chanse.messaging.msginterface.MessageHandler;
 
+import com.chanse.messaging.utils.MessagingTypeRegistry;
 import com.chanse.messaging.utils.SaveLoadUtils;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
@@ -53,6 +55,17 @@ public interface TransportService {
      */
     void sendMessage(byte[] msg);
 
+    /**
+     * Sends the wire bytes of the message over whatever transport service is chosen. The message is encoded straight
+     * into a byte array of exactly its length, there is no binary string or BigInteger in between.
+     * @param msg the message to be sent out
+     */
+    default void sendMessage(InterfaceMessage msg){
+        byte[] wireData = new byte[msg.getEncodedLength()];
+        msg.encodeTo(wireData, 0);
+        sendMessage(wireData);
+    }
+
     /**
      * Recieves all messages on this transport services input port as bytes. After attempting to decode
      * these messages any message that the decoder for this service cannot decode will be dropped and logged
@@ -60,6 +73,37 @@ public interface TransportService {
      */
     List<InterfaceMessage> receiveMessages();
 
+    /**
+     * Sets the handler that receiveMessagesToHandler() pushes each decoded message to
+     * @param handler callback handed each message as soon as it is decoded
+     */
+    void setMessageHandler(MessageHandler handler);
+
+    /**
+     * Utility method to get the message handler if any
+     */
+    MessageHandler getMessageHandler();
+
+    /**
+     * Recieves all messages on this transport services input port and hands each one to the handler as soon as it
+     * is decoded, there is no list of them in between. Any message the decoder for this service cannot decode will
+     * be dropped and logged
+     * @param handler callback handed each decoded message
+     * @return the number of messages handed to the handler
+     */
+    int receiveMessages(MessageHandler handler);
+
+    /**
+     * Recieves all messages on this transport services input port and hands them to the message handler set on it
+     * @return the number of messages handed to the handler
+     */
+    default int receiveMessagesToHandler(){
+        MessageHandler handler = getMessageHandler();
+        if(handler == null)
+            throw new IllegalStateException("No message handler is set on "+getMyClassName());
+        return receiveMessages(handler);
+    }
+
     /**
      * Utility check to see if the system is still setup
      * @return if the service was set up correctly
@@ -110,7 +154,7 @@ public interface TransportService {
 
             TransportService transportService = null;
             try {
-                Class messageType = Class.forName(jsonObject.get("myClassName").getAsString());
+                Class messageType = MessagingTypeRegistry.classFor(jsonObject.get("myClassName").getAsString());
                 transportService = (TransportService)SaveLoadUtils.Instance.defaultGson.fromJson(jsonObject, messageType);
 
                 if(decoderJsonObject != null) {
@@ -133,7 +177,7 @@ public interface TransportService {
         @Override
         public JsonElement serialize(TransportService src, Type typeOfSrc, JsonSerializationContext context){
             try {
-                Type childType = TypeToken.get(Class.forName(src.getMyClassName())).getType();
+                Type childType = TypeToken.get(MessagingTypeRegistry.classFor(src.getMyClassName())).getType();
                 JsonObject json = (JsonObject) SaveLoadUtils.Instance.myRegisteredGson.toJsonTree(src, childType);
                 json.addProperty("myClassName", src.getClass().getName());
 
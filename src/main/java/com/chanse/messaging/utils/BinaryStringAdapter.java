@@ -0,0 +1,35 @@
+package com.chanse.messaging.utils;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that saves a byte[] bit store as a '0'/'1' string and loads it back.
+ *
+ * Words and messages hold their data as bytes in memory, but their save format has always been a binary string.
+ * Putting this adapter on those fields keeps every saved file readable by a person and loadable by older versions.
+ */
+public class BinaryStringAdapter extends TypeAdapter<byte[]> {
+
+    @Override
+    public void write(JsonWriter out, byte[] value) throws IOException {
+        if(value == null){
+            out.nullValue();
+            return;
+        }
+        out.value(BitCodec.readBinaryString(value, 0, 0, value.length * 8));
+    }
+
+    @Override
+    public byte[] read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL){
+            in.nextNull();
+            return new byte[0];
+        }
+        return BitCodec.binaryStringToBytes(in.nextString());
+    }
+}
@@ -0,0 +1,275 @@
+package com.chanse.messaging.utils;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Primitive bit reader/writer engine for the messaging service. All reads and writes are done straight against a
+ * byte[] or ByteBuffer using long shifts and masks, so looking at a field only touches the bytes the field spans.
+ *
+ * Bits are numbered the same way the rest of the service numbers them: bit 0 is the most significant bit of the first
+ * byte, bit 7 is the least significant bit of the first byte, bit 8 is the most significant bit of the second byte etc.
+ *
+ * Fields up to 64 bits are handled with primitives only. Anything wider falls back to BigInteger.
+ *
+ * These methods do not validate their arguments beyond what the array access itself does, callers that need a
+ * friendly error (IE BitUtils) should check with fits() first.
+ */
+public final class BitCodec {
+
+    // Largest field we can hand back as a primitive
+    public static final int MAX_PRIMITIVE_BITS = 64;
+
+    private static final BigInteger TWO_TO_THE_64 = BigInteger.ONE.shiftLeft(64);
+
+    private BitCodec(){}
+
+    /**
+     * Checks if a given field would fit inside of a buffer
+     * @param dataLength number of bytes in the buffer
+     * @param byteOffset what byte of the buffer the data starts at
+     * @param bitOffset how many bits past byteOffset the field starts
+     * @param bitLength how many bits the field is
+     * @return true if every bit of the field lies inside of the buffer
+     */
+    public static boolean fits(int dataLength, int byteOffset, long bitOffset, long bitLength){
+        if(byteOffset < 0 || bitOffset < 0 || bitLength < 0)
+            return false;
+        return (byteOffset * 8L) + bitOffset + bitLength <= dataLength * 8L;
+    }
+
+    /**
+     * Mask with the lowest bitLength bits set
+     */
+    public static long maskFor(int bitLength){
+        return bitLength >= 64 ? -1L : (1L << bitLength) - 1;
+    }
+
+    /**
+     * Reads up to 64 bits out of the data as an unsigned value
+     * @param data the buffer to read from
+     * @param byteOffset what byte of the buffer to treat as bit 0
+     * @param bitOffset how many bits past byteOffset to start reading
+     * @param bitLength how many bits to read, must be between 0 and 64
+     * @return the bits right aligned in a long. A 64 bit read with the first bit set will be negative
+     */
+    public static long readBits(byte[] data, int byteOffset, long bitOffset, int bitLength){
+        if(bitLength == 0)
+            return 0L;
+        if(bitLength > MAX_PRIMITIVE_BITS)
+            throw new IllegalArgumentException("Cannot read "+bitLength+" bits into a long, use readBigBits instead");
+
+        long absoluteBit = (byteOffset * 8L) + bitOffset;
+        int firstByte = (int)(absoluteBit >>> 3);
+        int shiftIn = (int)(absoluteBit & 7);
+        int lastByte = (int)((absoluteBit + bitLength - 1) >>> 3);
+        int span = lastByte - firstByte + 1;
+
+        long accumulator = 0L;
+        if(span <= 8){
+            for(int i = firstByte; i <= lastByte; i++)
+                accumulator = (accumulator << 8) | (data[i] & 0xFF);
+            accumulator >>>= (span * 8) - shiftIn - bitLength;
+            return accumulator & maskFor(bitLength);
+        }
+
+        // Only a misaligned field of more than 56 bits can span 9 bytes. Shift the top byte's leading bits out and
+        // pull in the leading bits of the 9th byte
+        for(int i = firstByte; i < firstByte + 8; i++)
+            accumulator = (accumulator << 8) | (data[i] & 0xFF);
+        accumulator = (accumulator << shiftIn) | ((data[lastByte] & 0xFF) >>> (8 - shiftIn));
+        return accumulator >>> (64 - bitLength);
+    }
+
+    /**
+     * Writes the lowest bitLength bits of value into the data without touching any of the surrounding bits
+     * @param data the buffer to write into
+     * @param byteOffset what byte of the buffer to treat as bit 0
+     * @param bitOffset how many bits past byteOffset to start writing
+     * @param bitLength how many bits to write, must be between 0 and 64
+     * @param value the value to write, any bits above bitLength are ignored
+     */
+    public static void writeBits(byte[] data, int byteOffset, long bitOffset, int bitLength, long value){
+        if(bitLength > MAX_PRIMITIVE_BITS)
+            throw new IllegalArgumentException("Cannot write "+bitLength+" bits from a long, use writeBigBits instead");
+
+        long absoluteBit = (byteOffset * 8L) + bitOffset;
+        int byteIndex = (int)(absoluteBit >>> 3);
+        int bitInByte = (int)(absoluteBit & 7);
+        int remaining = bitLength;
+
+        while(remaining > 0){
+            int bitsThisByte = Math.min(8 - bitInByte, remaining);
+            int shift = 8 - bitInByte - bitsThisByte;
+            int lowMask = (1 << bitsThisByte) - 1;
+            int bits = (int)(value >>> (remaining - bitsThisByte)) & lowMask;
+
+            data[byteIndex] = (byte)((data[byteIndex] & ~(lowMask << shift)) | (bits << shift));
+
+            remaining -= bitsThisByte;
+            byteIndex++;
+            bitInByte = 0;
+        }
+    }
+
+    /**
+     * Reads any number of bits as an unsigned BigInteger. Fields of 64 bits or less never allocate more than the result.
+     */
+    public static BigInteger readBigBits(byte[] data, int byteOffset, long bitOffset, int bitLength){
+        if(bitLength <= MAX_PRIMITIVE_BITS)
+            return toUnsignedBigInteger(readBits(data, byteOffset, bitOffset, bitLength));
+
+        BigInteger result = BigInteger.ZERO;
+        int bitsRead = 0;
+        while(bitsRead < bitLength){
+            int chunk = Math.min(MAX_PRIMITIVE_BITS, bitLength - bitsRead);
+            long chunkValue = readBits(data, byteOffset, bitOffset + bitsRead, chunk);
+            result = result.shiftLeft(chunk).or(toUnsignedBigInteger(chunkValue));
+            bitsRead += chunk;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the lowest bitLength bits of a BigInteger, for fields that are wider than a long
+     */
+    public static void writeBigBits(byte[] data, int byteOffset, long bitOffset, int bitLength, BigInteger value){
+        if(bitLength <= MAX_PRIMITIVE_BITS){
+            writeBits(data, byteOffset, bitOffset, bitLength, value.longValue());
+            return;
+        }
+
+        int bitsWritten = 0;
+        while(bitsWritten < bitLength){
+            int chunk = Math.min(MAX_PRIMITIVE_BITS, bitLength - bitsWritten);
+            long chunkValue = value.shiftRight(bitLength - bitsWritten - chunk).longValue();
+            writeBits(data, byteOffset, bitOffset + bitsWritten, chunk, chunkValue);
+            bitsWritten += chunk;
+        }
+    }
+
+    /**
+     * Reads up to 64 bits relative to the buffers current position. The position of the buffer is not moved.
+     */
+    public static long readBits(ByteBuffer buffer, long bitOffset, int bitLength){
+        if(buffer.hasArray())
+            return readBits(buffer.array(), buffer.arrayOffset() + buffer.position(), bitOffset, bitLength);
+
+        if(bitLength == 0)
+            return 0L;
+        if(bitLength > MAX_PRIMITIVE_BITS)
+            throw new IllegalArgumentException("Cannot read "+bitLength+" bits into a long, use readBigBits instead");
+
+        // Direct buffers have no backing array so walk it bit by bit a byte at a time
+        long absoluteBit = (buffer.position() * 8L) + bitOffset;
+        long result = 0L;
+        int remaining = bitLength;
+        while(remaining > 0){
+            int byteIndex = (int)(absoluteBit >>> 3);
+            int bitInByte = (int)(absoluteBit & 7);
+            int bitsThisByte = Math.min(8 - bitInByte, remaining);
+            int bits = ((buffer.get(byteIndex) & 0xFF) >>> (8 - bitInByte - bitsThisByte)) & ((1 << bitsThisByte) - 1);
+            result = (result << bitsThisByte) | bits;
+            remaining -= bitsThisByte;
+            absoluteBit += bitsThisByte;
+        }
+        return result;
+    }
+
+    /**
+     * Writes up to 64 bits relative to the buffers current position. The position of the buffer is not moved.
+     */
+    public static void writeBits(ByteBuffer buffer, long bitOffset, int bitLength, long value){
+        if(buffer.hasArray()){
+            writeBits(buffer.array(), buffer.arrayOffset() + buffer.position(), bitOffset, bitLength, value);
+            return;
+        }
+        if(bitLength > MAX_PRIMITIVE_BITS)
+            throw new IllegalArgumentException("Cannot write "+bitLength+" bits from a long, use writeBigBits instead");
+
+        long absoluteBit = (buffer.position() * 8L) + bitOffset;
+        int remaining = bitLength;
+        while(remaining > 0){
+            int byteIndex = (int)(absoluteBit >>> 3);
+            int bitInByte = (int)(absoluteBit & 7);
+            int bitsThisByte = Math.min(8 - bitInByte, remaining);
+            int shift = 8 - bitInByte - bitsThisByte;
+            int lowMask = (1 << bitsThisByte) - 1;
+            int bits = (int)(value >>> (remaining - bitsThisByte)) & lowMask;
+
+            buffer.put(byteIndex, (byte)((buffer.get(byteIndex) & ~(lowMask << shift)) | (bits << shift)));
+
+            remaining -= bitsThisByte;
+            absoluteBit += bitsThisByte;
+        }
+    }
+
+    /**
+     * Turns a long that is meant to be read as unsigned into a BigInteger
+     */
+    public static BigInteger toUnsignedBigInteger(long value){
+        if(value >= 0)
+            return BigInteger.valueOf(value);
+        return BigInteger.valueOf(value).add(TWO_TO_THE_64);
+    }
+
+    /**
+     * Creates a '0'/'1' string from a section of the data. Only meant for debug views and the string based API's,
+     * nothing on the decode path should need this.
+     */
+    public static String readBinaryString(byte[] data, int byteOffset, long bitOffset, int bitLength){
+        char[] chars = new char[bitLength];
+        long absoluteBit = (byteOffset * 8L) + bitOffset;
+        for(int i = 0; i < bitLength; i++, absoluteBit++){
+            int bit = (data[(int)(absoluteBit >>> 3)] >>> (7 - (int)(absoluteBit & 7))) & 1;
+            chars[i] = bit == 1 ? '1' : '0';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Writes a '0'/'1' string into a section of the data. Any character that is not a '1' is written as a 0.
+     */
+    public static void writeBinaryString(byte[] data, int byteOffset, long bitOffset, String binaryString){
+        long absoluteBit = (byteOffset * 8L) + bitOffset;
+        for(int i = 0; i < binaryString.length(); i++, absoluteBit++){
+            int byteIndex = (int)(absoluteBit >>> 3);
+            int bitMask = 1 << (7 - (int)(absoluteBit & 7));
+            if(binaryString.charAt(i) == '1')
+                data[byteIndex] = (byte)(data[byteIndex] | bitMask);
+            else
+                data[byteIndex] = (byte)(data[byteIndex] & ~bitMask);
+        }
+    }
+
+    /**
+     * Creates a zero padded '0'/'1' string of the lowest bitLength bits of value
+     */
+    public static String toBinaryString(long value, int bitLength){
+        char[] chars = new char[bitLength];
+        for(int i = 0; i < bitLength; i++){
+            int shift = bitLength - 1 - i;
+            chars[i] = (shift < 64 && ((value >>> shift) & 1L) == 1L) ? '1' : '0';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Parses a '0'/'1' string of at most 64 characters into a long without going through BigInteger
+     */
+    public static long parseBinaryString(String binaryString){
+        long result = 0L;
+        for(int i = 0; i < binaryString.length(); i++)
+            result = (result << 1) | (binaryString.charAt(i) == '1' ? 1L : 0L);
+        return result;
+    }
+
+    /**
+     * Packs a '0'/'1' string into bytes. Strings that are not a multiple of 8 are zero padded at the end.
+     */
+    public static byte[] binaryStringToBytes(String binaryString){
+        byte[] data = new byte[(binaryString.length() + 7) / 8];
+        writeBinaryString(data, 0, 0, binaryString);
+        return data;
+    }
+}
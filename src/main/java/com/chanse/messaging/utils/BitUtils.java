@@ -7,7 +7,6 @@ import com.chanse.messaging.messages.InterfaceMessage;
 import com.chanse.messaging.words.InterfaceDataWord;
 
 import java.math.BigInteger;
-import java.util.Arrays;
 
 /**
  * Standard Utils in the messaging service will be doing operations like writing a field into a given bit arrary,
@@ -33,14 +32,32 @@ public class BitUtils {
      * @return a Big Integer representing the value of the data in that section of the stream
      * @throws BadFieldWriteException If the data requested is not possible to be viewed at
      */
-    // TODO this may be improvable by looking at only specific bytes andnot using big integer and string manipulation
     public static BigInteger peekAtBits(int offset, int length, byte[] inputData) throws BadFieldWriteException{
-        if(offset+length > inputData.length * 8)
+        checkPeek(offset, length, inputData, 0);
+        return BitCodec.readBigBits(inputData, 0, offset, length);
+    }
+
+    /**
+     * Primitive version of peekAtBits for fields of 64 bits or less. Only reads the bytes the bits actually span.
+     * @param offset what bit to start looking at, relative to byteOffset
+     * @param length how many bits to read in, at most 64
+     * @param inputData the data of the input stream
+     * @param byteOffset what byte of inputData is treated as the start of the stream
+     * @return the unsigned value of the bits
+     * @throws BadFieldWriteException If the data requested is not possible to be viewed at
+     */
+    public static long peekAtBitsAsLong(int offset, int length, byte[] inputData, int byteOffset) throws BadFieldWriteException{
+        checkPeek(offset, length, inputData, byteOffset);
+        if(length > BitCodec.MAX_PRIMITIVE_BITS)
+            throw new BadFieldWriteException("Unable to peek at "+length+" bits as a primitive, at most "
+                    +BitCodec.MAX_PRIMITIVE_BITS+" bits can be read at once.");
+        return BitCodec.readBits(inputData, byteOffset, offset, length);
+    }
+
+    private static void checkPeek(int offset, int length, byte[] inputData, int byteOffset) throws BadFieldWriteException{
+        if(!BitCodec.fits(inputData.length, byteOffset, offset, length))
             throw new BadFieldWriteException("Unable to peek at bits on the given inputData stream because the offset:"+offset+
                     " and length:" +length+ " overflows the input data with "+inputData.length+" bytes.");
-
-        String inputAsBinaryString = getBinaryStringFromBigInt(new BigInteger(1, inputData), inputData.length*8);
-        return new BigInteger(inputAsBinaryString.substring(offset, offset+length), 2);
     }
 
     /**
@@ -59,13 +76,8 @@ public class BitUtils {
      * Simple method to take a binary string and create a byte array
      */
     public static byte[] getByteArrayFromBinaryString(String binaryString){
-        // Because BigInteger concats any leading 0's in a string and the string represents a byte array
-        // We force it to include preceding 0's by adding a 1 to the front which will translate to [0] = 1
-        // Then just remove this extra data we added
-        byte[] byteArray = new BigInteger("1"+binaryString, 2).toByteArray();
-        byteArray = Arrays.copyOfRange(byteArray, 1, byteArray.length);
-
-        return byteArray;
+        // Packed bit by bit so leading 0's are kept. A string that is not a multiple of 8 is 0 padded at the end
+        return BitCodec.binaryStringToBytes(binaryString);
     }
 
 
@@ -78,13 +90,40 @@ public class BitUtils {
      * @throws BaseMessagingException if any error occured trying to read a word or field
      */
     public static int fillMessageFromData(InterfaceMessage message, byte[] inputData) throws BaseMessagingException {
+        return fillMessageFromData(message, inputData, false);
+    }
+
+    /**
+     * Util method that takes a template message and attempts to fill it abstractly from the given binary data
+     *
+     * @param message Message to be filled in
+     * @param inputData binary data to fill the message from. Data will be reduced and read data will be removed.
+     * @param lazyFields true to only bind each field to its words data rather than set it, see fillWordFromData
+     * @return the number of bytes read to fill the message.
+     * @throws BaseMessagingException if any error occured trying to read a word or field
+     */
+    public static int fillMessageFromData(InterfaceMessage message, byte[] inputData, boolean lazyFields) throws BaseMessagingException {
+        return fillMessageFromData(message, inputData, 0, lazyFields);
+    }
+
+    /**
+     * Util method that takes a template message and attempts to fill it abstractly from the message that starts at
+     * the given byte of the data. Nothing is copied, each word reads straight out of the data at its own offset.
+     *
+     * @param message Message to be filled in
+     * @param inputData binary data holding the message
+     * @param byteOffset the byte of inputData the message starts at
+     * @param lazyFields true to only bind each field to its words data rather than set it, see fillWordFromData
+     * @return the number of bytes read to fill the message.
+     * @throws BaseMessagingException if any error occured trying to read a word or field
+     */
+    public static int fillMessageFromData(InterfaceMessage message, byte[] inputData, int byteOffset, boolean lazyFields) throws BaseMessagingException {
         StringBuffer errorMessage = new StringBuffer();
         int totalBytesRead = 0;
 
         for(InterfaceDataWord word : message.getDataWords()){
             try{
-                int bytesRead = fillWordFromData(word, inputData);
-                inputData = Arrays.copyOfRange(inputData, bytesRead, inputData.length);
+                int bytesRead = fillWordFromData(word, inputData, byteOffset + totalBytesRead, lazyFields);
                 totalBytesRead += bytesRead;
             }catch(Exception e){
                 errorMessage.append(e.getMessage()+"\n");
@@ -107,31 +146,99 @@ public class BitUtils {
      * @throws BaseMessagingException if any error occured trying to read a word or field
      */
     public static int fillWordFromData(InterfaceDataWord word, byte[] inputData) throws BaseMessagingException {
+        return fillWordFromData(word, inputData, false);
+    }
+
+    /**
+     * Util method that takes a word and attempts to fill it abstractly from the given binary data.
+     *
+     * When filled lazily each fields bits are only copied onto the words data and the field is bound to that data.
+     * The field does not create its value or fire a change event until someone asks it for its value, which saves a
+     * lot of work on wide words where most fields are never looked at.
+     * @param word Word to be filled in
+     * @param inputData binary data to fill the message from. Data will be reduced and read data will be removed.
+     * @param lazyFields true to bind the fields to the words data rather than set them
+     * @return the number of bytes read to fill the message.
+     * @throws BaseMessagingException if any error occured trying to read a word or field
+     */
+    public static int fillWordFromData(InterfaceDataWord word, byte[] inputData, boolean lazyFields) throws BaseMessagingException {
+        return fillWordFromData(word, inputData, 0, lazyFields);
+    }
+
+    /**
+     * Util method that takes a word and attempts to fill it from the word that starts at the given byte of the data.
+     * See fillWordFromData(word, inputData, lazyFields) for what filling lazily does.
+     * @param word Word to be filled in
+     * @param inputData binary data holding the word
+     * @param byteOffset the byte of inputData the word starts at
+     * @param lazyFields true to bind the fields to the words data rather than set them
+     * @return the number of bytes read to fill the word.
+     * @throws BaseMessagingException if any error occured trying to read a field
+     */
+    public static int fillWordFromData(InterfaceDataWord word, byte[] inputData, int byteOffset, boolean lazyFields) throws BaseMessagingException {
+        if(lazyFields)
+            return bindWordToData(word, inputData, byteOffset);
+
         //Allowing us to use lambdas
         StringBuffer errorMessage = new StringBuffer();
 
-        // We are avoiding using the peek method so that we dont have to constantly create a new binary string
-        String binaryString = getBinaryStringFromBigInt(new BigInteger(1, inputData), inputData.length*8);
-
+        // Each field only reads the bytes it spans rather than turning the whole input into a binary string
         word.getDataFields().stream().forEach( field -> {
 
-            if(field.getBitOffset() + field.getBitLength() > binaryString.length())
-                errorMessage.append("Unable to read field: "+field.getName()+" because the given field over extends how much input data there was.\n");
-
-            field.setDataBinaryString( binaryString.substring((int)field.getBitOffset(), (int)(field.getBitLength()+field.getBitOffset())) );
+            if(!BitCodec.fits(inputData.length, byteOffset, field.getBitOffset(), field.getBitLength())) {
+                errorMessage.append("Unable to read field: " + field.getName() + " because the given field over extends how much input data there was.\n");
+                return;
+            }
 
-            if(field.getDataBinaryString().startsWith("-"))
-                System.out.println();
+            int bitLength = (int)field.getBitLength();
+            if(bitLength <= BitCodec.MAX_PRIMITIVE_BITS)
+                field.setRawBits( BitCodec.readBits(inputData, byteOffset, field.getBitOffset(), bitLength) );
+            else
+                field.setDataBinaryString( BitCodec.readBinaryString(inputData, byteOffset, field.getBitOffset(), bitLength) );
         });
         if(!errorMessage.toString().isEmpty())
             throw new BaseMessagingException("Failed to read message word with name: "+word.getWordName()+" Here are the errors:\n"
                     +errorMessage.toString());
 
+        // Fields that read the same value they already had are still written, the word may not hold it anymore
+        word.markAllFieldsDirty();
         word.updateChangedFields();
 
         return word.getNumberOfBytes();
     }
 
+    /**
+     * Lazy fill of a word, see fillWordFromData
+     */
+    private static int bindWordToData(InterfaceDataWord word, byte[] inputData, int byteOffset) throws BaseMessagingException {
+        StringBuilder errorMessage = new StringBuilder();
+        byte[] wordData = word.getWordData();
+
+        for(InterfaceDataField field : word.getDataFields()){
+            int bitLength = (int)field.getBitLength();
+            if(!BitCodec.fits(inputData.length, byteOffset, field.getBitOffset(), bitLength) ||
+                    !BitCodec.fits(wordData.length, 0, field.getBitOffset(), bitLength)) {
+                errorMessage.append("Unable to read field: " + field.getName() + " because the given field over extends how much input data there was or the word it is on.\n");
+                continue;
+            }
+            if(!field.bindToData(wordData, 0))
+                continue;
+
+            if(bitLength <= BitCodec.MAX_PRIMITIVE_BITS)
+                BitCodec.writeBits(wordData, 0, field.getBitOffset(), bitLength,
+                        BitCodec.readBits(inputData, byteOffset, field.getBitOffset(), bitLength));
+            else
+                BitCodec.writeBigBits(wordData, 0, field.getBitOffset(), bitLength,
+                        BitCodec.readBigBits(inputData, byteOffset, field.getBitOffset(), bitLength));
+        }
+        if(errorMessage.length() != 0)
+            throw new BaseMessagingException("Failed to read message word with name: "+word.getWordName()+" Here are the errors:\n"
+                    +errorMessage.toString());
+
+        word.markDataDirty();
+        return word.getNumberOfBytes();
+    }
+
     /**
      * Util method that changes only the data for a given field on a word. This is usefull for cases where we only want to change
      * one field of a word. Allowing us to not have to re-write every word for every send.
@@ -146,12 +253,17 @@ public class BitUtils {
                     + "\nWe are trying to place a field named " + field.getName() + " into it who has an offset of " + field.getBitOffset() + " and length of "
                     + field.getBitLength());
 
-        //TODO This method COULD be improved if done using purely primitives and binary operators. Using a String
-        // Object and a big Integer Object has a cost associated with it.
-
+        writeFieldBits(word.getWordData(), 0, field);
+    }
 
-        StringBuffer wordDataBinaryString = new StringBuffer(word.getWordDataAsBinaryString());
-        wordDataBinaryString.replace((int) field.getBitOffset(), (int) (field.getBitOffset() + field.getBitLength()), field.getDataBinaryString());
-        word.setWordDataAsBinaryString(wordDataBinaryString.toString());
+    /**
+     * Util method that writes the value of a field straight into data at the fields offset.
+     * See InterfaceDataField.writeBitsTo
+     * @param data the data to write the field into
+     * @param byteOffset what byte of the data the fields offset is counted from
+     * @param field the field to write
+     */
+    public static void writeFieldBits(byte[] data, int byteOffset, InterfaceDataField field){
+        field.writeBitsTo(data, byteOffset);
     }
 }
@@ -0,0 +1,14 @@
+package com.chanse.messaging.utils;
+
+/**
+ * A Dirty Tracker is told when one of the things it holds (fields of a word, words of a message) has changed.
+ * It only gets the index of what changed, so a change costs setting a bit rather than creating an event.
+ */
+@FunctionalInterface
+public interface DirtyTracker {
+
+    /**
+     * @param index the index of what changed in its holders list
+     */
+    void markDirty(int index);
+}
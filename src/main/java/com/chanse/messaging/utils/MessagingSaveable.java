@@ -11,13 +11,28 @@ public interface MessagingSaveable {
         return this.getClass().getName();
     }
 
+    /**
+     * Called right before the object is saved so anything held lazily can be brought up to date first
+     */
+    default void prepareForSave() {
+    }
+
+    /**
+     * Called right after the object is loaded so anything that is not saved (IE change tracking) can be set back up
+     */
+    default void afterLoad() {
+    }
+
     class MessageSaveableAdapter implements JsonDeserializer<MessagingSaveable>, JsonSerializer<MessagingSaveable> {
         @Override
         public MessagingSaveable deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
             try {
-                Class messageType = Class.forName(((JsonObject) json).get("myClassName").getAsString());
+                Class messageType = MessagingTypeRegistry.classFor(((JsonObject) json).get("myClassName").getAsString());
 
-                return (MessagingSaveable)SaveLoadUtils.Instance.myRegisteredGson.fromJson(json, messageType);
+                MessagingSaveable loaded = (MessagingSaveable)SaveLoadUtils.Instance.myRegisteredGson.fromJson(json, messageType);
+                if(loaded != null)
+                    loaded.afterLoad();
+                return loaded;
             }
             catch(Exception e){
                 e.printStackTrace();
@@ -28,7 +43,8 @@ public interface MessagingSaveable {
         @Override
         public JsonElement serialize(MessagingSaveable src, Type typeOfSrc, JsonSerializationContext context) {
             try {
-                Type childType = TypeToken.get(Class.forName(src.getMyClassName())).getType();
+                src.prepareForSave();
+                Type childType = TypeToken.get(MessagingTypeRegistry.classFor(src.getMyClassName())).getType();
                 JsonObject objectJson = (JsonObject)SaveLoadUtils.Instance.myRegisteredGson.toJsonTree(src, childType);
                 objectJson.addProperty("myClassName", src.getMyClassName());
                 return objectJson;
@@ -0,0 +1,131 @@
+package com.chanse.messaging.utils;
+
+import com.chanse.messaging.fields.*;
+import com.chanse.messaging.messages.StandardMessage;
+import com.chanse.messaging.msginterface.DynamicIdDecoder;
+import com.chanse.messaging.msginterface.LengthPrefixedDecoder;
+import com.chanse.messaging.msginterface.StaticIdDecoder;
+import com.chanse.messaging.msginterface.SyncWordDecoder;
+import com.chanse.messaging.words.StandardDataWord;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Messaging Type Registry knows how to create every message, word, field and decoder type by its class or class
+ * name without reflection. Cloning and loading used to look up the class by name and then look up its constructor for
+ * every single object, which for a decoder means for every word and field of every message received.
+ *
+ * The types in this module are registered up front with constructor references. Any other type (IE one a user of the
+ * module added) is looked up by reflection the first time it is asked for, and its class and constructor are kept so
+ * that only ever happens once. Types can also be registered with their own factory through register.
+ *
+ * Loading through SaveLoadUtils creates every registered type with its factory as well, Gson only fills in the fields.
+ */
+public final class MessagingTypeRegistry {
+
+    /**
+     * Creates a new instance of a type. Only the fallback for types found through reflection can fail
+     */
+    @FunctionalInterface
+    public interface Factory<T> {
+        T create() throws ReflectiveOperationException;
+    }
+
+    // Classes by their name, so loading does not have to go through Class.forName for every object
+    private static final Map<String, Class<?>> classesByName = new ConcurrentHashMap<>();
+
+    // How to create each type
+    private static final Map<Class<?>, Factory<?>> factories = new ConcurrentHashMap<>();
+
+    // The module types are put straight into the maps, SaveLoadUtils reads them when it builds its Gson
+    static {
+        put(StandardMessage.class, StandardMessage::new);
+        put(StandardDataWord.class, StandardDataWord::new);
+        put(IntegerDataField.class, IntegerDataField::new);
+        put(StaticDataField.class, StaticDataField::new);
+        put(EnumDataField.class, EnumDataField::new);
+        put(LongDataField.class, LongDataField::new);
+        put(BooleanFlagField.class, BooleanFlagField::new);
+        put(Ieee754FloatDataField.class, Ieee754FloatDataField::new);
+        put(Ieee754DoubleDataField.class, Ieee754DoubleDataField::new);
+        put(StaticIdDecoder.class, StaticIdDecoder::new);
+        put(DynamicIdDecoder.class, DynamicIdDecoder::new);
+        put(LengthPrefixedDecoder.class, LengthPrefixedDecoder::new);
+        put(SyncWordDecoder.class, SyncWordDecoder::new);
+    }
+
+    private MessagingTypeRegistry(){
+    }
+
+    /**
+     * Registers how to create a type, replacing however it was created before
+     * @param type the class of the type
+     * @param factory creates a new empty instance of the type, usually a constructor reference
+     */
+    public static <T> void register(Class<T> type, Factory<? extends T> factory){
+        put(type, factory);
+        SaveLoadUtils.registeredTypesChanged();
+    }
+
+    private static <T> void put(Class<T> type, Factory<? extends T> factory){
+        classesByName.put(type.getName(), type);
+        factories.put(type, factory);
+    }
+
+    /**
+     * @return every type that has a factory, including the ones found through reflection so far
+     */
+    public static Set<Class<?>> getRegisteredTypes(){
+        return Collections.unmodifiableSet(new HashSet<>(factories.keySet()));
+    }
+
+    /**
+     * @return the class with the given name, only looked up through Class.forName the first time it is asked for
+     * @throws ClassNotFoundException if there is no class with that name
+     */
+    public static Class<?> classFor(String className) throws ClassNotFoundException {
+        Class<?> type = classesByName.get(className);
+        if(type == null){
+            type = Class.forName(className);
+            classesByName.put(className, type);
+        }
+        return type;
+    }
+
+    /**
+     * Creates a new empty instance of the type
+     * @param type the class of the type to create
+     * @return the new instance
+     * @throws ReflectiveOperationException if the type was not registered and could not be created through its no
+     * argument constructor
+     */
+    public static <T> T newInstance(Class<T> type) throws ReflectiveOperationException {
+        Factory<?> factory = factories.get(type);
+        if(factory == null)
+            factory = factoryFromConstructor(type);
+        return type.cast(factory.create());
+    }
+
+    /**
+     * Creates a new empty instance of the type with the given class name, see newInstance(type)
+     */
+    public static Object newInstance(String className) throws ReflectiveOperationException {
+        return newInstance(classFor(className));
+    }
+
+    /**
+     * Looks up the no argument constructor of a type that was never registered and registers it as the types factory
+     */
+    private static <T> Factory<T> factoryFromConstructor(Class<T> type) throws NoSuchMethodException {
+        Constructor<T> constructor = type.getConstructor();
+        Factory<T> factory = constructor::newInstance;
+        // Gson finds the same constructor itself, so there is no need to rebuild it for this type
+        put(type, factory);
+        return factory;
+    }
+}
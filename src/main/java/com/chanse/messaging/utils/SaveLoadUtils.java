@@ -2,6 +2,8 @@ package com.chanse.messaging.utils;
 
 import com.chanse.messaging.fields.InterfaceDataField;
 import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.msginterface.DynamicIdDecoder;
+import com.chanse.messaging.msginterface.IdDecoder;
 import com.chanse.messaging.msginterface.InterfaceDecoder;
 import com.chanse.messaging.msginterface.StaticIdDecoder;
 import com.chanse.messaging.transport.TransportService;
@@ -30,17 +32,47 @@ public class SaveLoadUtils {
     public static SaveLoadUtils Instance = new SaveLoadUtils();
 
     private SaveLoadUtils(){
-        myRegisteredGson = new GsonBuilder()
+        myRegisteredGson = buildRegisteredGson();
+    }
+
+    /**
+     * Builds the Gson used to save and load. Every type in the MessagingTypeRegistry is created through its factory
+     * rather than by Gson through reflection
+     */
+    protected Gson buildRegisteredGson(){
+        GsonBuilder builder = new GsonBuilder();
+        InstanceCreator<Object> registryCreator = type -> {
+            try {
+                return MessagingTypeRegistry.newInstance((Class<?>) type);
+            }
+            catch(ReflectiveOperationException e){
+                throw new JsonParseException("Unable to create a "+type.getTypeName()+" to load into", e);
+            }
+        };
+        for(Class<?> type : MessagingTypeRegistry.getRegisteredTypes())
+            builder.registerTypeAdapter(type, registryCreator);
+
+        return builder
                 .registerTypeAdapter(InterfaceMessage.class, new MessagingSaveable.MessageSaveableAdapter())
                 .registerTypeAdapter(InterfaceDataWord.class, new MessagingSaveable.MessageSaveableAdapter())
                 .registerTypeAdapter(InterfaceDataField.class, new MessagingSaveable.MessageSaveableAdapter())
                 .registerTypeAdapter(InterfaceDecoder.class, new MessagingSaveable.MessageSaveableAdapter())
-                .registerTypeAdapter(StaticIdDecoder.class, new StaticIdDecoder.StaticIdDecoderAdapter())
+                .registerTypeAdapter(StaticIdDecoder.class, new IdDecoder.IdDecoderAdapter())
+                .registerTypeAdapter(DynamicIdDecoder.class, new IdDecoder.IdDecoderAdapter())
                 .registerTypeAdapter(TransportService.class, new TransportService.TransportServiceAdapter())
                 .setPrettyPrinting()
                 .create();
     }
 
+    /**
+     * Called when a type is registered with the MessagingTypeRegistry so loading creates it with its factory too.
+     * Does nothing while the registry is being set up before this class is
+     */
+    static void registeredTypesChanged(){
+        if(Instance != null)
+            Instance.myRegisteredGson = Instance.buildRegisteredGson();
+    }
+
     public String getMessageSaveString(InterfaceMessage msg){
         JsonObject answerAsJson = (JsonObject)myRegisteredGson.toJsonTree(msg, InterfaceMessage.class);
         return myRegisteredGson.toJson(answerAsJson);
@@ -4,20 +4,25 @@ import com.chanse.messaging.exceptions.BadFieldWriteException;
 import com.chanse.messaging.fields.InterfaceDataField;
 import com.chanse.messaging.fields.StaticDataField;
 import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BinaryStringAdapter;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.DirtyTracker;
 import com.chanse.messaging.utils.MessagingSaveable;
+import com.chanse.messaging.utils.MessagingTypeRegistry;
 import com.chanse.messaging.utils.SaveLoadUtils;
 import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import lombok.*;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * The Data Word in the Command and Control tech space is a concept which says there is a standard length of bytes
@@ -29,6 +34,11 @@ import java.util.Set;
  *
  * Again this concept is abstract because different industries use different types of "words" with slight variations.
  * Some are bit terminating and some are abstract sizes.
+ *
+ * A word keeps track of which of its fields have changed with a dirty bit per field (bit i is the i'th field) so that
+ * only those fields are written when the word is updated. Fields past the first 64 spill over into a BitSet.
+ * PropertyChangeListeners can still be added to a word, but they are opt in. Nothing is created for a change
+ * unless someone is listening.
  */
 @Data
 @NoArgsConstructor
@@ -42,27 +52,49 @@ public abstract class InterfaceDataWord implements Cloneable, MessagingSaveable{
     protected int numberOfBytes;
 
     // Statically hold in memory how to represent this word as bytes. This way we only recalcuate when we want to
-    protected String wordDataAsBinaryString = new String("");
-
-    // Flag to tell if any data on the word has changed
-    protected transient boolean fieldDataHasChanged = false;
+    // Saved as a binary string so the save format is the same as when the word was stored as one
+    @SerializedName("wordDataAsBinaryString")
+    @JsonAdapter(BinaryStringAdapter.class)
+    protected byte[] wordData = new byte[0];
 
     // Name of the word for identifying it later on
     protected String wordName = new String("");
 
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
+    // Opt in listeners that want an event whenever one of the words fields changes
     protected transient List<PropertyChangeListener> dataChangeListeners = new ArrayList<>();
 
-    // Whenever a field changes we should know bout it so we can update just the one and be more effecient
-    protected transient Set<InterfaceDataField> changedFields = new HashSet<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Which fields have changed since they were last written into the word data. Bit i is the i'th field
+    protected transient long dirtyFieldMask = 0L;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Dirty bits for fields past the first 64, only created if the word has that many fields
+    protected transient BitSet dirtyFieldOverflow;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Handed to every field on the word so they can mark themselves dirty
+    protected transient DirtyTracker fieldTracker = this::markFieldDirty;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    // Who to tell when the words data changes (the message it is on) and what index the word is to them
+    protected transient DirtyTracker dataTracker;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected transient int dataTrackerIndex = -1;
 
     @Override
     public InterfaceDataWord clone(){
         InterfaceDataWord clone;
         try {
-            clone = (InterfaceDataWord)Class.forName(this.getMyClassName()).getConstructor().newInstance();
-        } catch (InstantiationException | InvocationTargetException | NoSuchMethodException | IllegalAccessException | ClassNotFoundException e) {
+            clone = MessagingTypeRegistry.newInstance(this.getClass());
+        } catch (ReflectiveOperationException e) {
             // TODO throw to error handling service
             e.printStackTrace();
             return null;
@@ -70,10 +102,12 @@ public abstract class InterfaceDataWord implements Cloneable, MessagingSaveable{
 
         clone.setWordName(this.getWordName());
         clone.numberOfBytes = this.numberOfBytes;
-        clone.wordDataAsBinaryString = this.wordDataAsBinaryString;
+        clone.wordData = this.wordData.clone();
         this.dataFields.stream().forEach( field -> {
             clone.addDataField(field.clone());
         });
+        // The copied data already holds every field
+        clone.clearDirtyFields();
 
         return clone;
     }
@@ -89,7 +123,7 @@ public abstract class InterfaceDataWord implements Cloneable, MessagingSaveable{
             return false;
         InterfaceDataWord otherWord = (InterfaceDataWord) other;
         if( !this.wordName.equals(otherWord.wordName) ||
-                !this.wordDataAsBinaryString.equals(otherWord.wordDataAsBinaryString))
+                !Arrays.equals(this.wordData, otherWord.wordData))
             return false;
 
         if( dataFields.size() != otherWord.dataFields.size() )
@@ -103,25 +137,154 @@ public abstract class InterfaceDataWord implements Cloneable, MessagingSaveable{
         return true;
     }
 
-    @Setter(AccessLevel.NONE)
-    protected PropertyChangeListener myFieldListener = new PropertyChangeListener() {
-        @Override
-        public void propertyChange(PropertyChangeEvent propertyChangeEvent) {
-            if(propertyChangeEvent.getSource() instanceof InterfaceDataField){
-                fieldDataHasChanged = true;
-                changedFields.add((InterfaceDataField)propertyChangeEvent.getSource());
-            }
-        }
-    };
+    /**
+     * Sets how many bytes the word is, resizing its data. Any data that still fits is kept
+     */
+    public void setNumberOfBytes(int numberOfBytes){
+        this.numberOfBytes = numberOfBytes;
+        if(wordData.length != numberOfBytes)
+            this.wordData = Arrays.copyOf(wordData, numberOfBytes);
+        markDataDirty();
+    }
+
+    public void setWordData(byte[] wordData){
+        this.wordData = wordData;
+        markDataDirty();
+    }
 
+    /**
+     * Debug view of the words data as a '0'/'1' string. Creates a new string on every call so keep it off hot paths.
+     */
+    public String getWordDataAsBinaryString(){
+        return BitCodec.readBinaryString(wordData, 0, 0, wordData.length * 8);
+    }
+
+    /**
+     * Sets the words data from a '0'/'1' string
+     */
+    public void setWordDataAsBinaryString(String wordDataAsBinaryString){
+        this.wordData = BitCodec.binaryStringToBytes(wordDataAsBinaryString);
+        markDataDirty();
+    }
+
+    /**
+     * Adds a field to the end of the word. The field is marked dirty so its value is written on the next update
+     */
     public void addDataField(InterfaceDataField dataField){
         this.dataFields.add(dataField);
-        dataField.addFieldListener(myFieldListener);
+        dataField.trackChanges(fieldTracker, dataFields.size() - 1);
+        markFieldDirty(dataFields.size() - 1);
     }
 
+    /**
+     * Removes a field from the word. Every field after it moves down an index so all fields are marked dirty
+     */
     public void removeDataField(InterfaceDataField dataField){
-        this.dataFields.remove(dataField);
-        dataField.removeFieldListener(myFieldListener);
+        if(!this.dataFields.remove(dataField))
+            return;
+        dataField.trackChanges(null, -1);
+        trackFields();
+        markAllFieldsDirty();
+    }
+
+    /**
+     * Hands every field its index and the words tracker
+     */
+    protected void trackFields(){
+        for(int i = 0; i < dataFields.size(); i++)
+            dataFields.get(i).trackChanges(fieldTracker, i);
+    }
+
+    /**
+     * Fields are not saved with who is tracking them, so that is set back up once the word is loaded
+     */
+    @Override
+    public void afterLoad(){
+        trackFields();
+    }
+
+    /**
+     * Sets who is told whenever the words data changes. Called by the message when the word is added to it
+     * @param tracker who to tell, null to stop telling anyone
+     * @param index what index the word is to the tracker
+     */
+    public void trackChanges(DirtyTracker tracker, int index){
+        this.dataTracker = tracker;
+        this.dataTrackerIndex = index;
+    }
+
+    /**
+     * Marks a field as changed since it was last written into the word data. Opt in listeners are told about it
+     * @param fieldIndex index of the field in dataFields
+     */
+    public void markFieldDirty(int fieldIndex){
+        if(fieldIndex < 64) {
+            dirtyFieldMask |= 1L << fieldIndex;
+        }
+        else {
+            if(dirtyFieldOverflow == null)
+                dirtyFieldOverflow = new BitSet();
+            dirtyFieldOverflow.set(fieldIndex);
+        }
+
+        if(!dataChangeListeners.isEmpty()){
+            PropertyChangeEvent event = new PropertyChangeEvent(this, "dataFields", null, dataFields.get(fieldIndex));
+            for(PropertyChangeListener listener : dataChangeListeners)
+                listener.propertyChange(event);
+        }
+    }
+
+    public void markAllFieldsDirty(){
+        for(int i = 0; i < dataFields.size(); i++)
+            markFieldDirty(i);
+    }
+
+    public boolean isFieldDirty(int fieldIndex){
+        if(fieldIndex < 64)
+            return (dirtyFieldMask & (1L << fieldIndex)) != 0L;
+        return dirtyFieldOverflow != null && dirtyFieldOverflow.get(fieldIndex);
+    }
+
+    /**
+     * @return the index of the first dirty field at or after fromIndex, or -1 if there are none
+     */
+    public int nextDirtyField(int fromIndex){
+        if(fromIndex < 64){
+            long remaining = dirtyFieldMask & (-1L << fromIndex);
+            if(remaining != 0L)
+                return Long.numberOfTrailingZeros(remaining);
+            fromIndex = 64;
+        }
+        return dirtyFieldOverflow == null ? -1 : dirtyFieldOverflow.nextSetBit(fromIndex);
+    }
+
+    protected void clearFieldDirty(int fieldIndex){
+        if(fieldIndex < 64)
+            dirtyFieldMask &= ~(1L << fieldIndex);
+        else if(dirtyFieldOverflow != null)
+            dirtyFieldOverflow.clear(fieldIndex);
+    }
+
+    public void clearDirtyFields(){
+        dirtyFieldMask = 0L;
+        if(dirtyFieldOverflow != null)
+            dirtyFieldOverflow.clear();
+    }
+
+    /**
+     * @return true if any field has changed since it was last written into the word data
+     */
+    public boolean isFieldDataHasChanged(){
+        return dirtyFieldMask != 0L || (dirtyFieldOverflow != null && !dirtyFieldOverflow.isEmpty());
+    }
+
+    /**
+     * Lets the message know the words data has changed and needs to be copied into it. Anything that writes into the
+     * word data directly rather than through its fields must call this
+     */
+    public void markDataDirty(){
+        if(dataTracker != null)
+            dataTracker.markDirty(dataTrackerIndex);
     }
 
     public void addDataListener(PropertyChangeListener changeListener){
@@ -133,6 +296,7 @@ public abstract class InterfaceDataWord implements Cloneable, MessagingSaveable{
 
     // Method that should run whenever trying to write a word that has had data on it change
     // Being included on the Data object because we want to have the data knowledgeable of itself as bytes
+    // Only the fields marked dirty are written
     public abstract void updateChangedFields() throws BadFieldWriteException;
 
 }
@@ -1,6 +1,7 @@
 package com.chanse.messaging.words;
 
 
+import com.chanse.messaging.fields.InterfaceDataField;
 import com.chanse.messaging.utils.BitUtils;
 import com.chanse.messaging.exceptions.BadFieldWriteException;
 import lombok.Data;
@@ -18,18 +19,24 @@ public class StandardDataWord extends InterfaceDataWord{
 
     @Override
     public void updateChangedFields() throws BadFieldWriteException{
-        // this is bad??? I have no idea
         final StringBuilder exceptionBuilder = new StringBuilder();
+        boolean dataChanged = false;
 
-        this.changedFields.stream().forEach( field -> {
+        for(int fieldIndex = nextDirtyField(0); fieldIndex >= 0; fieldIndex = nextDirtyField(fieldIndex + 1)){
+            InterfaceDataField field = this.dataFields.get(fieldIndex);
             try {
                 BitUtils.insertFieldIntoWord(this, field);
                 field.setDataHasChanged( false );
+                clearFieldDirty(fieldIndex);
+                dataChanged = true;
             }
             catch( BadFieldWriteException bfwe){
                 exceptionBuilder.append (bfwe.getMessage() );
             }
-        } );
+        }
+        if(dataChanged)
+            markDataDirty();
+
         if(exceptionBuilder.length() != 0) {
             throw new BadFieldWriteException(exceptionBuilder.toString());
         }
@@ -38,14 +45,11 @@ public class StandardDataWord extends InterfaceDataWord{
     @Override
     public void setNumberOfBytes(int numberOfBytes) {
         this.numberOfBytes = numberOfBytes;
-        StringBuilder blankBuilder = new StringBuilder();
-        for(int i = 0; i < numberOfBytes*8; i++)
-            blankBuilder.append('0');
-        this.wordDataAsBinaryString = blankBuilder.toString();
+        this.wordData = new byte[numberOfBytes];
+        markDataDirty();
 
         // Because we reset the internal storage, we need to update all fields that are part of the standard data word
-        this.changedFields.clear();
-        this.dataFields.stream().forEach(field -> {this.changedFields.add(field); });
+        markAllFieldsDirty();
 
         try{
             updateChangedFields();
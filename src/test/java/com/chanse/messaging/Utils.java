@@ -2,6 +2,7 @@ package com.chanse.messaging;
 
 import com.chanse.messaging.fields.IntegerDataField;
 import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.fields.StaticDataField;
 import com.chanse.messaging.messages.InterfaceMessage;
 import com.chanse.messaging.messages.StandardMessage;
 import com.chanse.messaging.words.InterfaceDataWord;
@@ -59,7 +60,6 @@ public class Utils {
                 InterfaceDataField randomField = getRandomIntegerDataField(fieldBits, bitOffset);
                 randomField.setName("RandomField" + randomWord.getDataFields().size());
                 randomWord.addDataField(randomField);
-                randomWord.getChangedFields().add(randomField);
             }
 
             bitOffset += fieldBits;
@@ -89,4 +89,38 @@ public class Utils {
         randomMessage.initializeMessageBinaryString();
         return randomMessage;
     }
+
+    /**
+     * Creates a random message whose first word is a single byte holding an 8 bit static ID field followed by
+     * wordCount random words. Useful for decoders that are set up with addIdPeekInfo(0, 8)
+     */
+    public static InterfaceMessage getRandomStandardMessageWithId(int id, int wordCount){
+        StandardMessage randomMessage = new StandardMessage();
+
+        StandardDataWord idWord = new StandardDataWord();
+        idWord.setNumberOfBytes(1);
+        InterfaceDataField idField = new StaticDataField();
+        idField.setBitLength(8);
+        idField.setBitOffset(0);
+        idField.setName("Id");
+        idWord.addDataField(idField);
+        try {
+            idField.setDataValue(BigInteger.valueOf(id));
+            idWord.updateChangedFields();
+        }
+        catch(Exception e){
+            System.out.println("Failed to create a random message id with exception "+e.getMessage());
+        }
+        randomMessage.addDataWord(idWord);
+
+        for( int i = 0; i<wordCount; i++){
+            // Always at least one byte so every message type has some payload
+            int wordLength = Math.abs(myRandom.nextInt()%20)+1;
+            randomMessage.addDataWord(getRandomStandardDataWord(wordLength));
+        }
+
+        randomMessage.setMessageName("RandomMessageWithId"+id);
+        randomMessage.initializeMessageBinaryString();
+        return randomMessage;
+    }
 }
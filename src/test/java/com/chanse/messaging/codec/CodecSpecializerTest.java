@@ -0,0 +1,35 @@
+package com.chanse.messaging.codec;
+
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for specialized codecs. A specialized codec must always do exactly what its generic layout does.
+ */
+public class CodecSpecializerTest {
+
+    /**
+     * Verify the specialized codec decodes the same values as the layout on random messages
+     */
+    @Test
+    public void specializedMatchesLayout() throws Exception {
+        for(int i = 0; i < 50; i++){
+            InterfaceMessage randomMessage = Utils.getRandomStandardMessage(6);
+            byte[] messageAsBytes = BitUtils.getByteArrayFromBinaryString(randomMessage.getMessageAsSerialString().toString());
+
+            MessageLayout layout = MessageLayout.compile(randomMessage);
+            MessageCodec specialized = CodecSpecializer.specialize(layout);
+            assertSame(layout, specialized.getLayout());
+
+            long[] expected = new long[layout.getFieldCount()];
+            long[] actual = new long[layout.getFieldCount()];
+            layout.decode(messageAsBytes, 0, expected);
+            specialized.decode(messageAsBytes, 0, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.chanse.messaging.codec;
+
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.fields.StaticDataField;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.messages.StandardMessage;
+import com.chanse.messaging.utils.BitUtils;
+import com.chanse.messaging.words.InterfaceDataWord;
+import com.chanse.messaging.words.StandardDataWord;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for compiled message layouts
+ */
+public class MessageLayoutTest {
+
+    /**
+     * Verify the following on random messages:
+     * 1) the layout knows how many bytes the message is
+     * 2) decoding the bytes of the message gives back the value of every field in wire order
+     */
+    @Test
+    public void decode() {
+        for(int i = 0; i < 50; i++){
+            InterfaceMessage randomMessage = Utils.getRandomStandardMessage(5);
+            byte[] messageAsBytes = BitUtils.getByteArrayFromBinaryString(randomMessage.getMessageAsSerialString().toString());
+
+            MessageLayout layout = null;
+            try {
+                layout = MessageLayout.compile(randomMessage);
+            }
+            catch(Exception e){
+                fail(e.getMessage());
+            }
+
+            // TEST 1
+            assertEquals(messageAsBytes.length, layout.getTotalBytes());
+
+            // TEST 2
+            long[] values = new long[layout.getFieldCount()];
+            layout.decode(messageAsBytes, 0, values);
+            int fieldIndex = 0;
+            for(InterfaceDataWord word : randomMessage.getDataWords()){
+                for(InterfaceDataField field : word.getDataFields()){
+                    assertEquals(field.getName(), layout.getFieldName(fieldIndex));
+                    assertEquals(new BigInteger(field.getDataBinaryString(), 2).longValue(), values[fieldIndex]);
+                    fieldIndex++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill a cleared clone of a message from the bytes of the original at an offset in a larger buffer
+     */
+    @Test
+    public void fill() throws Exception {
+        InterfaceMessage randomMessage = Utils.getRandomStandardMessage(4);
+        String original = randomMessage.getMessageAsSerialString().toString();
+        byte[] messageAsBytes = BitUtils.getByteArrayFromBinaryString(original);
+        byte[] buffer = new byte[messageAsBytes.length + 3];
+        System.arraycopy(messageAsBytes, 0, buffer, 3, messageAsBytes.length);
+
+        MessageLayout layout = MessageLayout.compile(randomMessage);
+        InterfaceMessage clone = randomMessage.clone();
+        assertEquals(layout.getTotalBytes(), layout.fill(clone, buffer, 3));
+        assertEquals(original, clone.getMessageAsSerialString().toString());
+    }
+
+    /**
+     * Verify the following when filling a message into another of its type:
+     * 1) the filled message is equal to the original, data words and fields included
+     * 2) nothing is left dirty, the fields took their values from the copied data
+     */
+    @Test
+    public void fillCopiesData() throws Exception {
+        InterfaceMessage randomMessage = Utils.getRandomStandardMessage(4);
+        byte[] messageAsBytes = new byte[randomMessage.getEncodedLength()];
+        randomMessage.encodeTo(messageAsBytes, 0);
+
+        MessageLayout layout = MessageLayout.compile(randomMessage);
+        InterfaceMessage filled = randomMessage.clone();
+        changeEveryField(filled);
+        for(InterfaceDataWord word : filled.getDataWords())
+            word.updateChangedFields();
+        filled.recalculateMessageAsBinaryString();
+
+        layout.fill(filled, messageAsBytes, 0);
+
+        // TEST 1
+        assertEquals(randomMessage, filled);
+
+        // TEST 2
+        for(int w = 0; w < filled.getDataWords().size(); w++){
+            assertFalse(filled.isWordDirty(w));
+            assertFalse(filled.getDataWords().get(w).isFieldDataHasChanged());
+        }
+    }
+
+    /**
+     * A static field that already has a value keeps it, and its bits, when the rest of the word is filled
+     */
+    @Test
+    public void fillKeepsStaticFields() throws Exception {
+        StandardMessage message = new StandardMessage();
+        StandardDataWord word = new StandardDataWord();
+        word.setNumberOfBytes(1);
+        StaticDataField staticField = new StaticDataField();
+        staticField.setBitLength(4);
+        staticField.setDataBinaryString("1010");
+        word.addDataField(staticField);
+        word.addDataField(Utils.getRandomIntegerDataField(4, 4));
+        word.updateChangedFields();
+        message.addDataWord(word);
+        message.initializeMessageBinaryString();
+
+        MessageLayout layout = MessageLayout.compile(message);
+        layout.fill(message, new byte[]{ 0x0F }, 0);
+
+        assertEquals("1010", staticField.getDataBinaryString());
+        assertEquals("1111", word.getDataFields().get(1).getDataBinaryString());
+        assertEquals((byte) 0xAF, word.getWordData()[0]);
+        assertEquals((byte) 0xAF, message.getMessageData()[0]);
+    }
+
+    /**
+     * Verify the following when encoding a message through its layout:
+     * 1) fields changed since the message was last recalculated are written
+     * 2) the message is written at the offset, the same as the message encodes itself once recalculated
+     */
+    @Test
+    public void encode() throws Exception {
+        InterfaceMessage randomMessage = Utils.getRandomStandardMessage(4);
+        MessageLayout layout = MessageLayout.compile(randomMessage);
+        changeEveryField(randomMessage);
+
+        byte[] buffer = new byte[layout.getTotalBytes() + 2];
+        assertEquals(layout.getTotalBytes(), layout.encode(randomMessage, buffer, 2));
+
+        // TEST 1
+        long[] values = new long[layout.getFieldCount()];
+        layout.decode(buffer, 2, values);
+        int fieldIndex = 0;
+        for(InterfaceDataWord word : randomMessage.getDataWords()){
+            for(InterfaceDataField field : word.getDataFields())
+                assertEquals(new BigInteger(field.getDataBinaryString(), 2).longValue(), values[fieldIndex++]);
+        }
+
+        // TEST 2
+        for(InterfaceDataWord word : randomMessage.getDataWords())
+            word.updateChangedFields();
+        randomMessage.recalculateMessageAsBinaryString();
+        byte[] expected = new byte[buffer.length];
+        randomMessage.encodeTo(expected, 2);
+        assertArrayEquals(expected, buffer);
+    }
+
+    /**
+     * Sets every field of the message to new random bits without pushing them into the words
+     */
+    private void changeEveryField(InterfaceMessage message){
+        for(InterfaceDataWord word : message.getDataWords()){
+            for(InterfaceDataField field : word.getDataFields()){
+                StringBuilder randomBits = new StringBuilder();
+                for(int i = 0; i < field.getBitLength(); i++)
+                    randomBits.append(Utils.myRandom.nextBoolean() ? "1" : "0");
+                field.setDataBinaryString(randomBits.toString());
+            }
+        }
+    }
+
+    @Test
+    public void fieldOutsideOfWordFails() {
+        StandardMessage message = new StandardMessage();
+        StandardDataWord word = new StandardDataWord();
+        word.setNumberOfBytes(1);
+        word.addDataField(Utils.getRandomIntegerDataField(5, 6));
+        message.addDataWord(word);
+
+        try {
+            MessageLayout.compile(message);
+            fail("Compiled a layout with a field that does not fit inside of its word");
+        }
+        catch(Exception e){
+            // Expected
+        }
+    }
+}
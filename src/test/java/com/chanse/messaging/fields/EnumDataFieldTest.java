@@ -4,11 +4,73 @@ import com.chanse.messaging.utils.SaveLoadUtils;
 import com.google.gson.JsonObject;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
-class EnumDataFieldTest {
+public class EnumDataFieldTest {
+
+    /**
+     * Verify the following on both a dense and a sparse set of enum values:
+     * 1) every allowed value decodes to its enum
+     * 2) a value with no enum decodes to the unknown value enum, which can be changed
+     * 3) when two enums share a value the first one wins, the same as the old scan
+     * 4) a clone shares the lookup table rather than building its own
+     */
+    @Test
+    public void lookupEnum() {
+        for(int spread : new int[]{1, 100003}){
+            List<EnumDataField.FieldSpecificEnum> enums = new ArrayList<>();
+            for(int i = 0; i < 250; i++)
+                enums.add(new EnumDataField.FieldSpecificEnum("Value"+i, i * spread));
+            enums.add(new EnumDataField.FieldSpecificEnum("Duplicate", 7 * spread));
+
+            EnumDataField field = new EnumDataField(enums);
+            field.setBitLength(31);
+
+            // TEST 1
+            for(int i = 0; i < 250; i++)
+                assertSame(enums.get(i), field.lookupEnum(i * spread));
+
+            // TEST 2
+            assertSame(EnumDataField.UT_ERROR_ENUM, field.lookupEnum(-1));
+            assertSame(EnumDataField.UT_ERROR_ENUM, field.lookupEnum(250 * spread));
+            EnumDataField.FieldSpecificEnum unknown = new EnumDataField.FieldSpecificEnum("Unknown", -1);
+            field.setUnknownValueEnum(unknown);
+            assertSame(unknown, field.lookupEnum(250 * spread + 1));
+
+            // TEST 3
+            assertEquals("Value7", field.lookupEnum(7 * spread).getEnumName());
+
+            // TEST 4
+            EnumDataField clone = field.clone();
+            assertSame(enums.get(3), clone.lookupEnum(3 * spread));
+            assertSame(field.denseLookup, clone.denseLookup);
+            assertSame(field.hashedLookupEnums, clone.hashedLookupEnums);
+        }
+    }
 
+    /**
+     * Verify decoding a binary string goes through the lookup, including enums added to the list after it was set
+     */
+    @Test
+    public void updateDataValue() {
+        EnumDataField field = new EnumDataField();
+        field.getAllowedEnums().add(new EnumDataField.FieldSpecificEnum("Off", 0));
+        field.setBitLength(8);
+        assertEquals("Off", field.getDataValue().getEnumName());
 
+        field.getAllowedEnums().add(new EnumDataField.FieldSpecificEnum("Standby", 200));
+        field.setDataBinaryString("11001000");
+        assertEquals("Standby", field.getDataValue().getEnumName());
 
+        field.setDataBinaryString("11001001");
+        assertSame(EnumDataField.UT_ERROR_ENUM, field.getDataValue());
 
-}
\ No newline at end of file
+        JsonObject fieldAsJson = (JsonObject) SaveLoadUtils.Instance.myRegisteredGson.toJsonTree(field, InterfaceDataField.class);
+        EnumDataField loaded = (EnumDataField) SaveLoadUtils.Instance.myRegisteredGson.fromJson(fieldAsJson, InterfaceDataField.class);
+        loaded.setDataBinaryString("11001000");
+        assertEquals("Standby", loaded.getDataValue().getEnumName());
+    }
+}
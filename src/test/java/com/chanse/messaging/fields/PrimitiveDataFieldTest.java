@@ -0,0 +1,168 @@
+package com.chanse.messaging.fields;
+
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.messages.StandardMessage;
+import com.chanse.messaging.utils.BitUtils;
+import com.chanse.messaging.utils.SaveLoadUtils;
+import com.chanse.messaging.words.InterfaceDataWord;
+import com.chanse.messaging.words.StandardDataWord;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the primitive field types
+ */
+public class PrimitiveDataFieldTest {
+
+    /**
+     * Verify the following:
+     * 1) unsigned long fields only keep their lowest bitLength bits
+     * 2) signed long fields read back negative values
+     * 3) the binary string and data value follow the primitive value
+     * 4) a signed and an unsigned field holding the same value are not equal, equal fields hash the same
+     */
+    @Test
+    public void longDataField() {
+        // TEST 1
+        LongDataField unsignedField = new LongDataField();
+        unsignedField.setBitLength(12);
+        unsignedField.setLong(0x1ABCL);
+        assertEquals(0xABCL, unsignedField.getLong());
+
+        // TEST 2
+        LongDataField signedField = new LongDataField(true);
+        signedField.setBitLength(12);
+        signedField.setInt(-5);
+        assertEquals(-5, signedField.getInt());
+        assertEquals(0xFFBL, signedField.getRawBits());
+
+        // TEST 3
+        assertEquals("111111111011", signedField.getDataBinaryString());
+        assertEquals(Long.valueOf(-5), signedField.getDataValue());
+        signedField.setDataBinaryString("000000000111");
+        assertEquals(7, signedField.getLong());
+
+        // TEST 4
+        signedField.setName("Value");
+        unsignedField.setName("Value");
+        unsignedField.setLong(7);
+        assertNotEquals(signedField, unsignedField);
+        assertEquals(signedField, signedField.clone());
+        assertEquals(signedField.hashCode(), signedField.clone().hashCode());
+        assertTrue(new HashSet<>(Arrays.asList(new LongDataField())).contains(new LongDataField()));
+    }
+
+    /**
+     * Verify that doubles, floats and flags come back exactly as they were set, and that equal doubles hash the same
+     */
+    @Test
+    public void floatingPointAndFlagFields() {
+        Ieee754DoubleDataField doubleField = new Ieee754DoubleDataField();
+        doubleField.setDouble(-1234.5678e-9);
+        assertEquals(-1234.5678e-9, doubleField.getDouble(), 0.0);
+        assertEquals(Double.doubleToRawLongBits(-1234.5678e-9), doubleField.getRawBits());
+        assertEquals(doubleField, doubleField.clone());
+        assertEquals(doubleField.hashCode(), doubleField.clone().hashCode());
+
+        Ieee754FloatDataField floatField = new Ieee754FloatDataField();
+        floatField.setFloat(-3.25f);
+        assertEquals(-3.25f, floatField.getFloat(), 0.0f);
+        assertEquals(32, floatField.getDataBinaryString().length());
+
+        BooleanFlagField flagField = new BooleanFlagField();
+        assertFalse(flagField.getBoolean());
+        flagField.setBoolean(true);
+        assertTrue(flagField.getBoolean());
+        assertEquals("1", flagField.getDataBinaryString());
+
+        try {
+            floatField.setBitLength(16);
+            fail("A float field can not be 16 bits");
+        }
+        catch(IllegalArgumentException e){
+            // Expected
+        }
+    }
+
+    /**
+     * Verify the following on a message made of primitive fields:
+     * 1) setting the fields writes their bits onto the word
+     * 2) filling a copy of the message from its data, eagerly and lazily, gives back the same values
+     * 3) the message saves and loads back equal to itself
+     */
+    @Test
+    public void primitiveFieldsInMessage() throws Exception {
+        InterfaceMessage message = createPrimitiveMessage();
+        InterfaceDataWord word = message.getDataWords().get(0);
+
+        // TEST 1
+        ((BooleanFlagField) word.getDataFields().get(0)).setBoolean(true);
+        ((LongDataField) word.getDataFields().get(1)).setLong(-100);
+        ((Ieee754FloatDataField) word.getDataFields().get(2)).setFloat(98.6f);
+        ((Ieee754DoubleDataField) word.getDataFields().get(3)).setDouble(Math.PI);
+        word.updateChangedFields();
+        message.recalculateMessageAsBinaryString();
+        assertEquals('1', message.getMessageAsSerialString().charAt(0));
+
+        // TEST 2
+        byte[] messageAsBytes = new byte[message.getEncodedLength()];
+        message.encodeTo(messageAsBytes, 0);
+        for(boolean lazy : new boolean[]{false, true}){
+            InterfaceMessage filled = createPrimitiveMessage();
+            BitUtils.fillMessageFromData(filled, messageAsBytes, lazy);
+            InterfaceDataWord filledWord = filled.getDataWords().get(0);
+            assertTrue(((BooleanFlagField) filledWord.getDataFields().get(0)).getBoolean());
+            assertEquals(-100, ((LongDataField) filledWord.getDataFields().get(1)).getLong());
+            assertEquals(98.6f, ((Ieee754FloatDataField) filledWord.getDataFields().get(2)).getFloat(), 0.0f);
+            assertEquals(Math.PI, ((Ieee754DoubleDataField) filledWord.getDataFields().get(3)).getDouble(), 0.0);
+            assertEquals(message, filled);
+        }
+
+        // TEST 3
+        String saveString = SaveLoadUtils.Instance.getMessageSaveString(message);
+        List<InterfaceMessage> loaded = SaveLoadUtils.Instance.loadMessageFromSaveString(saveString);
+        assertEquals(1, loaded.size());
+        assertEquals(message, loaded.get(0));
+        assertEquals(-100, ((LongDataField) loaded.get(0).getDataWords().get(0).getDataFields().get(1)).getLong());
+    }
+
+    /**
+     * Creates a 14 byte message with a flag, a signed 15 bit long, a float and a double on one word
+     */
+    protected InterfaceMessage createPrimitiveMessage() {
+        StandardMessage message = new StandardMessage();
+        StandardDataWord word = new StandardDataWord();
+        word.setNumberOfBytes(14);
+
+        BooleanFlagField flag = new BooleanFlagField();
+        flag.setName("Flag");
+        flag.setBitOffset(0);
+        word.addDataField(flag);
+
+        LongDataField count = new LongDataField(true);
+        count.setName("Count");
+        count.setBitLength(15);
+        count.setBitOffset(1);
+        word.addDataField(count);
+
+        Ieee754FloatDataField temperature = new Ieee754FloatDataField();
+        temperature.setName("Temperature");
+        temperature.setBitOffset(16);
+        word.addDataField(temperature);
+
+        Ieee754DoubleDataField angle = new Ieee754DoubleDataField();
+        angle.setName("Angle");
+        angle.setBitOffset(48);
+        word.addDataField(angle);
+
+        message.addDataWord(word);
+        message.setMessageName("PrimitiveMessage");
+        message.initializeMessageBinaryString();
+        return message;
+    }
+}
@@ -1,7 +1,14 @@
 package com.chanse.messaging.messages;
 
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.utils.BitUtils;
+import com.chanse.messaging.words.InterfaceDataWord;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 /**
@@ -17,8 +24,43 @@ public class InterfaceMessageTest {
     public void testClone() {
     }
 
+    /**
+     * Verify the following:
+     * 1) a word whose field changed is marked dirty on the message once the word is updated
+     * 2) recalculating copies the dirty word in and clears the dirty bits
+     * 3) words that are not dirty are not copied, even if their data was changed under them
+     */
     @Test
-    public void recalculateMessageAsBinaryString() {
+    public void recalculateMessageAsBinaryString() throws Exception {
+        // Random words can be all spare bits, the test needs a payload word with a field on it
+        InterfaceMessage randomMessage;
+        do {
+            randomMessage = Utils.getRandomStandardMessageWithId(0, 3);
+        } while(randomMessage.getDataWords().get(1).getDataFields().isEmpty());
+        InterfaceDataWord idWord = randomMessage.getDataWords().get(0);
+        InterfaceDataWord payloadWord = randomMessage.getDataWords().get(1);
+        assertFalse(randomMessage.isDataHasChanged());
+
+        // TEST 1
+        InterfaceDataField payloadField = payloadWord.getDataFields().get(0);
+        long newValue = payloadField.getRawBits() ^ 1L;
+        payloadField.setRawBits(newValue);
+        assertFalse(randomMessage.isWordDirty(1));
+        payloadWord.updateChangedFields();
+        assertTrue(randomMessage.isWordDirty(1));
+        assertTrue(randomMessage.isDataHasChanged());
+
+        // TEST 2
+        idWord.getWordData()[0] = (byte)~idWord.getWordData()[0];
+        byte idByte = randomMessage.getMessageData()[0];
+        randomMessage.recalculateMessageAsBinaryString();
+        assertFalse(randomMessage.isWordDirty(1));
+        assertFalse(randomMessage.isDataHasChanged());
+        assertEquals(newValue, BitUtils.peekAtBitsAsLong((int)payloadField.getBitOffset(), (int)payloadField.getBitLength(),
+                randomMessage.getMessageData(), idWord.getNumberOfBytes()));
+
+        // TEST 3
+        assertEquals(idByte, randomMessage.getMessageData()[0]);
     }
 
     @Test
@@ -32,4 +74,38 @@ public class InterfaceMessageTest {
     @Test
     public void removeDataWord() {
     }
+
+    /**
+     * Verify the following:
+     * 1) encoding into an array at an offset writes exactly the messages bytes, leading 0 bytes included
+     * 2) encoding into a ByteBuffer writes the same bytes and moves the buffers position
+     * 3) encoding into an array that is too small fails without writing
+     */
+    @Test
+    public void encodeTo() {
+        InterfaceMessage randomMessage = Utils.getRandomStandardMessageWithId(0, 3);
+        byte[] expected = BitUtils.getByteArrayFromBinaryString(randomMessage.getMessageAsSerialString().toString());
+        assertEquals(expected.length, randomMessage.getEncodedLength());
+
+        // TEST 1
+        byte[] buffer = new byte[expected.length + 2];
+        assertEquals(expected.length, randomMessage.encodeTo(buffer, 2));
+        assertArrayEquals(expected, Arrays.copyOfRange(buffer, 2, buffer.length));
+
+        // TEST 2
+        ByteBuffer byteBuffer = ByteBuffer.allocate(expected.length + 1);
+        byteBuffer.put((byte)7);
+        randomMessage.encodeTo(byteBuffer);
+        assertEquals(expected.length + 1, byteBuffer.position());
+        assertArrayEquals(expected, Arrays.copyOfRange(byteBuffer.array(), 1, byteBuffer.position()));
+
+        // TEST 3
+        try {
+            randomMessage.encodeTo(new byte[expected.length], 1);
+            fail("Encoded a message into a buffer that was too small");
+        }
+        catch(IndexOutOfBoundsException e){
+            // Expected
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.chanse.messaging.msginterface;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the DecoderErrorLog
+ */
+public class DecoderErrorLogTest {
+
+    /**
+     * Verify the following:
+     * 1) errors are counted by their kind
+     * 2) only the most recent errors are kept, oldest first
+     * 3) clearing resets the counts and the recent errors
+     */
+    @Test
+    public void record() {
+        DecoderErrorLog errorLog = new DecoderErrorLog(4);
+
+        // TEST 1
+        for(int i = 0; i < 10; i++)
+            errorLog.record(DecoderErrorLog.ErrorKind.UNKNOWN_MESSAGE_ID, "Unknown "+i);
+        errorLog.record(DecoderErrorLog.ErrorKind.RESYNC, "Resync");
+        assertEquals(10, errorLog.getCount(DecoderErrorLog.ErrorKind.UNKNOWN_MESSAGE_ID));
+        assertEquals(1, errorLog.getCount(DecoderErrorLog.ErrorKind.RESYNC));
+        assertEquals(0, errorLog.getCount(DecoderErrorLog.ErrorKind.TRUNCATED_MESSAGE));
+        assertEquals(11, errorLog.getTotalCount());
+
+        // TEST 2
+        List<DecoderErrorLog.ErrorRecord> recent = errorLog.getRecentErrors();
+        assertEquals(4, recent.size());
+        assertEquals("Unknown 7", recent.get(0).getMessage());
+        assertEquals(DecoderErrorLog.ErrorKind.RESYNC, recent.get(3).getKind());
+
+        // TEST 3
+        errorLog.clear();
+        assertEquals(0, errorLog.getTotalCount());
+        assertTrue(errorLog.getRecentErrors().isEmpty());
+    }
+}
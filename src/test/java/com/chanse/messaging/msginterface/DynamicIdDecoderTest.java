@@ -0,0 +1,122 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.exceptions.DuplicateMessageIdException;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.BitCodec;
+import com.chanse.messaging.utils.SaveLoadUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the DynamicIdDecoder
+ */
+public class DynamicIdDecoderTest {
+
+    /**
+     * Verify the following:
+     * 1) messages are found down every kind of path, a leaf at the root, a narrow second field and a wide second field
+     * 2) a message with ID's at the end of the tree but not registered stops decoding and is logged with the ID's read
+     * 3) ID's that do not end at the last field of a path can not be added, and nothing can be added without a tree
+     * 4) the decoder saves and loads back equal to itself and still decodes
+     */
+    @Test
+    public void decodeMessages() throws Exception {
+        // The top 4 bits pick the message family, family 1 has a 4 bit sub ID and family 2 a 12 bit one after it
+        DynamicIdDecoder.IdNode root = new DynamicIdDecoder.IdNode(0, 4);
+        root.addBranch(BigInteger.valueOf(1), new DynamicIdDecoder.IdNode(4, 4));
+        root.addBranch(BigInteger.valueOf(2), new DynamicIdDecoder.IdNode(4, 12));
+        DynamicIdDecoder testDecoder = new DynamicIdDecoder();
+        testDecoder.setIdTree(root);
+
+        InterfaceMessage narrowMessage = Utils.getRandomStandardMessageWithId(0x15, 3);
+        InterfaceMessage wideMessage = Utils.getRandomStandardMessageWithId(0x20, 3);
+        InterfaceMessage leafMessage = Utils.getRandomStandardMessageWithId(0x30, 3);
+        long wideSubId = BitCodec.readBits(wideMessage.getMessageData(), 0, 4, 12);
+        testDecoder.addMessage(ids(1, 5), narrowMessage);
+        testDecoder.addMessage(ids(2, wideSubId), wideMessage);
+        testDecoder.addMessage(ids(3), leafMessage);
+
+        // TEST 1
+        List<InterfaceMessage> sentMessages = Arrays.asList(narrowMessage, wideMessage, leafMessage, narrowMessage);
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(InterfaceMessage message : sentMessages)
+            wire.write(message.getMessageData());
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(sentMessages, testDecoder.decodeMessages());
+        assertFalse(testDecoder.hasErrorOccured());
+
+        // TEST 2
+        wire.reset();
+        wire.write(leafMessage.getMessageData());
+        wire.write(new byte[]{(byte)0x17, 0, 0, 0});
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(Arrays.asList(leafMessage), testDecoder.decodeMessages());
+        assertEquals(1, testDecoder.getErrorLog().getCount(DecoderErrorLog.ErrorKind.UNKNOWN_MESSAGE_ID));
+        assertTrue(testDecoder.getListOfAllErrors().contains("[1, 7]"));
+
+        // TEST 3
+        for(List<BigInteger> badIds : Arrays.asList(ids(1), ids(4, 1), ids(1, 5, 2), ids(3))){
+            try {
+                testDecoder.addMessage(badIds, leafMessage);
+                fail("ID's "+badIds+" should not have been added");
+            }
+            catch(DuplicateMessageIdException e){
+                // Expected
+            }
+        }
+        try {
+            new DynamicIdDecoder().addMessage(ids(3), leafMessage);
+            fail("A message should not be added before the decoder has an ID tree");
+        }
+        catch(IllegalStateException e){
+            // Expected
+        }
+
+        // TEST 4
+        String saveString = SaveLoadUtils.Instance.getInterfaceDecoderSaveString(testDecoder);
+        List<InterfaceDecoder> loaded = SaveLoadUtils.Instance.loadInterfaceDecodersFromString(saveString);
+        assertEquals(1, loaded.size());
+        assertEquals(testDecoder, loaded.get(0));
+        loaded.get(0).setInputStream(new ByteArrayInputStream(wideMessage.getMessageData()));
+        assertEquals(Arrays.asList(wideMessage), loaded.get(0).decodeMessages());
+    }
+
+    /**
+     * Verify that a message whose deeper ID fields have not arrived yet is held rather than logged as unknown
+     */
+    @Test
+    public void decodeMessagesSplitInsideIds() throws Exception {
+        DynamicIdDecoder.IdNode root = new DynamicIdDecoder.IdNode(0, 8);
+        root.addBranch(BigInteger.valueOf(9), new DynamicIdDecoder.IdNode(16, 8));
+        DynamicIdDecoder testDecoder = new DynamicIdDecoder();
+        testDecoder.setIdTree(root);
+
+        InterfaceMessage message = Utils.getRandomStandardMessageWithId(9, 3);
+        byte[] data = message.getMessageData();
+        testDecoder.addMessage(ids(9, data[2] & 0xFF), message);
+
+        List<InterfaceMessage> decoded = new ArrayList<>();
+        assertEquals(0, testDecoder.decodeMessages(data, 0, 2, decoded, Integer.MAX_VALUE));
+        assertTrue(decoded.isEmpty());
+        assertTrue(testDecoder.isPartialMessage(data, 0, 2));
+        assertEquals(data.length, testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList(message), decoded);
+        assertFalse(testDecoder.hasErrorOccured());
+    }
+
+    protected static List<BigInteger> ids(long... values){
+        List<BigInteger> idList = new ArrayList<>();
+        for(long value : values)
+            idList.add(BigInteger.valueOf(value));
+        return idList;
+    }
+}
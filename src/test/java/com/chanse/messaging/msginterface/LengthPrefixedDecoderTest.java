@@ -0,0 +1,89 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.utils.SaveLoadUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the LengthPrefixedDecoder
+ */
+public class LengthPrefixedDecoderTest {
+
+    /**
+     * Verify the following:
+     * 1) framed messages are decoded in order and a frame the dispatcher does not know is skipped
+     * 2) a frame split across reads is held until the rest of it arrives
+     * 3) little endian lengths that count themselves are read
+     * 4) the decoder saves and loads back equal to itself
+     */
+    @Test
+    public void decodeMessages() throws Exception {
+        LengthPrefixedDecoder testDecoder = new LengthPrefixedDecoder();
+        testDecoder.getDispatcher().addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 2; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.getDispatcher().addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        // TEST 1
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        writeFrame(wire, sentMessages.get(0).getMessageData(), 2, true, false);
+        writeFrame(wire, new byte[]{(byte)0x77, 1, 2, 3}, 2, true, false);
+        writeFrame(wire, sentMessages.get(1).getMessageData(), 2, true, false);
+        byte[] data = wire.toByteArray();
+
+        testDecoder.setInputStream(new ByteArrayInputStream(data));
+        List<InterfaceMessage> decoded = testDecoder.decodeMessages();
+        assertEquals(sentMessages, decoded);
+        assertEquals(1, testDecoder.getFramesSkipped());
+
+        // TEST 2
+        List<InterfaceMessage> partial = new ArrayList<>();
+        int cutAt = data.length - 2;
+        int consumed = testDecoder.decodeMessages(data, 0, cutAt, partial, Integer.MAX_VALUE);
+        assertEquals(1, partial.size());
+        assertEquals(data.length - sentMessages.get(1).getMessageData().length - 2, consumed);
+        consumed += testDecoder.decodeMessages(data, consumed, data.length - consumed, partial, Integer.MAX_VALUE);
+        assertEquals(data.length, consumed);
+        assertEquals(sentMessages, partial);
+
+        // TEST 3
+        testDecoder.setLengthFieldBytes(4);
+        testDecoder.setBigEndian(false);
+        testDecoder.setLengthIncludesPrefix(true);
+        wire.reset();
+        writeFrame(wire, sentMessages.get(1).getMessageData(), 4, false, true);
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(Arrays.asList(sentMessages.get(1)), testDecoder.decodeMessages());
+
+        // TEST 4
+        String saveString = SaveLoadUtils.Instance.getInterfaceDecoderSaveString(testDecoder);
+        List<InterfaceDecoder> loaded = SaveLoadUtils.Instance.loadInterfaceDecodersFromString(saveString);
+        assertEquals(1, loaded.size());
+        assertEquals(testDecoder, loaded.get(0));
+    }
+
+    protected void writeFrame(ByteArrayOutputStream wire, byte[] message, int lengthBytes, boolean bigEndian, boolean includesPrefix){
+        int length = message.length + (includesPrefix ? lengthBytes : 0);
+        for(int i = 0; i < lengthBytes; i++){
+            int shift = 8 * (bigEndian ? lengthBytes - 1 - i : i);
+            wire.write((length >>> shift) & 0xFF);
+        }
+        wire.write(message, 0, message.length);
+    }
+}
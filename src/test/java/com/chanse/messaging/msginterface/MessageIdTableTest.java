@@ -0,0 +1,54 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.Utils;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the packed ID table
+ */
+public class MessageIdTableTest {
+
+    /**
+     * Verify the following against a HashMap holding the same keys:
+     * 1) every key put can be found again, through the table growing several times
+     * 2) keys that were never put are not found
+     * 3) putting a key again replaces its message without growing the table
+     */
+    @Test
+    public void putAndGet() throws Exception {
+        RegisteredMessage[] messages = new RegisteredMessage[4];
+        for(int i = 0; i < messages.length; i++)
+            messages[i] = new RegisteredMessage(Utils.getRandomStandardMessageWithId(i, 1));
+
+        MessageIdTable table = new MessageIdTable(1);
+        Map<Long, RegisteredMessage> expected = new HashMap<>();
+        for(int i = 0; i < 5000; i++){
+            // Mix of small sequential keys and keys that only differ in their high bits
+            long key = i % 2 == 0 ? i : Utils.myRandom.nextLong();
+            RegisteredMessage message = messages[i % messages.length];
+            table.put(key, message);
+            expected.put(key, message);
+        }
+
+        // TEST 1
+        assertEquals(expected.size(), table.size());
+        for(Map.Entry<Long, RegisteredMessage> e : expected.entrySet())
+            assertSame(e.getValue(), table.get(e.getKey()));
+
+        // TEST 2
+        for(long key = -1; key > -100; key--){
+            if(!expected.containsKey(key))
+                assertNull(table.get(key));
+        }
+
+        // TEST 3
+        table.put(0L, messages[3]);
+        assertSame(messages[3], table.get(0L));
+        assertEquals(expected.size(), table.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.chanse.messaging.msginterface;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ReceiveBuffer
+ */
+public class ReceiveBufferTest {
+
+    /**
+     * Verify the following:
+     * 1) bytes read off a stream are added on after the bytes that have not been consumed
+     * 2) the unread bytes are moved to the front rather than the buffer growing when there is room
+     * 3) the buffer grows when a read would not fit and keeps the unread bytes in order
+     */
+    @Test
+    public void readAndConsume() throws Exception {
+        ReceiveBuffer buffer = new ReceiveBuffer(8);
+
+        // TEST 1
+        assertEquals(6, buffer.readAvailable(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6})));
+        buffer.consume(4);
+        assertEquals(2, buffer.getLength());
+        assertEquals(5, buffer.getData()[buffer.getStart()]);
+
+        // TEST 2
+        assertEquals(4, buffer.readAvailable(new ByteArrayInputStream(new byte[]{7, 8, 9, 10})));
+        assertEquals(8, buffer.getCapacity());
+        assertEquals(0, buffer.getStart());
+        assertArrayEquals(new byte[]{5, 6, 7, 8, 9, 10}, copyUnread(buffer));
+
+        // TEST 3
+        buffer.append(new byte[]{11, 12, 13, 14, 15}, 0, 5);
+        assertTrue(buffer.getCapacity() >= 11);
+        assertArrayEquals(new byte[]{5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15}, copyUnread(buffer));
+
+        buffer.consume(buffer.getLength());
+        assertEquals(0, buffer.getLength());
+        try {
+            buffer.consume(1);
+            fail("Consumed a byte from an empty buffer");
+        }
+        catch(IllegalArgumentException e){
+            // Expected
+        }
+    }
+
+    protected byte[] copyUnread(ReceiveBuffer buffer){
+        byte[] unread = new byte[buffer.getLength()];
+        System.arraycopy(buffer.getData(), buffer.getStart(), unread, 0, unread.length);
+        return unread;
+    }
+}
@@ -1,20 +1,36 @@
 package com.chanse.messaging.msginterface;
 
 import com.chanse.messaging.Utils;
+import com.chanse.messaging.fields.EnumDataField;
+import com.chanse.messaging.fields.Ieee754DoubleDataField;
+import com.chanse.messaging.fields.Ieee754FloatDataField;
 import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.fields.LongDataField;
 import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.messages.MessagePool;
 import com.chanse.messaging.messages.StandardMessage;
+import com.chanse.messaging.utils.BitUtils;
+import com.chanse.messaging.utils.SaveLoadUtils;
 import com.chanse.messaging.words.InterfaceDataWord;
 import com.chanse.messaging.words.StandardDataWord;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.chanse.messaging.Utils.getRandomIntegerDataField;
 import static org.junit.Assert.*;
@@ -220,4 +236,768 @@ public class StaticIdDecoderTest {
             fail(e.getMessage());
         }
     }
+
+    /**
+     * Decode random messages with codec specialization turned on and a threshold of 1 so every message type is
+     * specialized after its first decode. Every message must still come out matching what was sent.
+     */
+    @Test
+    public void decodeMessagesWithSpecializedCodecs() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        testDecoder.setCodecSpecializationEnabled(true);
+        testDecoder.setCodecSpecializationThreshold(1);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 4; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(int i = 0; i < 3; i++){
+            for(InterfaceMessage message : sentMessages)
+                wire.write(BitUtils.getByteArrayFromBinaryString(message.getMessageAsSerialString().toString()));
+        }
+
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        List<InterfaceMessage> decoded = testDecoder.decodeMessages();
+        assertEquals(12, decoded.size());
+        for(int i = 0; i < decoded.size(); i++)
+            assertEquals(sentMessages.get(i % 4), decoded.get(i));
+
+        List<BigInteger> firstId = new ArrayList<>();
+        firstId.add(BigInteger.ZERO);
+        assertTrue(testDecoder.getRegisteredMessage(firstId).isSpecialized());
+    }
+
+    /**
+     * Decode messages whose ID fields together are wider than 64 bits, so they can not be packed into a long and the
+     * decoder has to fall back to looking them up by a list of BigIntegers
+     */
+    @Test
+    public void decodeMessagesWithWideIds() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        testDecoder.addIdPeekInfo(8, 60);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 3; id++){
+            // 8 words of at least a byte each so the message always covers the second ID field
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 8);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            idList.add(BitUtils.peekAtBits(8, 60, message.getMessageData()));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(InterfaceMessage message : sentMessages)
+            wire.write(message.getMessageData());
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+
+        List<InterfaceMessage> decoded = testDecoder.decodeMessages();
+        assertEquals(3, decoded.size());
+        for(int i = 0; i < decoded.size(); i++)
+            assertEquals(sentMessages.get(i), decoded.get(i));
+    }
+
+    /**
+     * Decode random messages with lazy field decoding turned on. Every field must come off the decoder stale and
+     * every message must still come out matching what was sent.
+     */
+    @Test
+    public void decodeMessagesWithLazyFields() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        testDecoder.setLazyFieldDecodingEnabled(true);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 4; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(InterfaceMessage message : sentMessages)
+            wire.write(BitUtils.getByteArrayFromBinaryString(message.getMessageAsSerialString().toString()));
+
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        List<InterfaceMessage> decoded = testDecoder.decodeMessages();
+        assertEquals(4, decoded.size());
+        for(int i = 0; i < decoded.size(); i++){
+            // The Id field is static so it keeps the value it was registered with rather than being bound
+            for(InterfaceDataField field : decoded.get(i).getDataWords().get(1).getDataFields())
+                assertTrue(field.isStale());
+            assertEquals(sentMessages.get(i), decoded.get(i));
+        }
+    }
+
+    /**
+     * Verify the following for decoding straight out of a buffer:
+     * 1) only the messages inside the given range are decoded and the bytes consumed stop at a cut off message
+     * 2) decoding a ByteBuffer moves its position past every decoded message and leaves the cut off message
+     * 3) maxMessages stops the cursor part way through the range
+     */
+    @Test
+    public void decodeMessagesFromBuffer() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 3; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        // Some junk ahead of the messages that the range skips over
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        wire.write(new byte[]{(byte)0xFF, (byte)0xFF, (byte)0xFF});
+        int wholeMessageBytes = 0;
+        for(InterfaceMessage message : sentMessages){
+            wire.write(message.getMessageData());
+            wholeMessageBytes += message.getMessageData().length;
+        }
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        int cutOffLength = data.length - 3 - 1;
+        List<InterfaceMessage> decoded = new ArrayList<>();
+        int bytesConsumed = testDecoder.decodeMessages(data, 3, cutOffLength, decoded, Integer.MAX_VALUE);
+        assertEquals(2, decoded.size());
+        assertEquals(wholeMessageBytes - sentMessages.get(2).getMessageData().length, bytesConsumed);
+        for(int i = 0; i < decoded.size(); i++)
+            assertEquals(sentMessages.get(i), decoded.get(i));
+
+        // TEST 2
+        ByteBuffer buffer = ByteBuffer.wrap(data, 3, cutOffLength).slice();
+        decoded.clear();
+        assertEquals(bytesConsumed, testDecoder.decodeMessages(buffer, decoded, Integer.MAX_VALUE));
+        assertEquals(bytesConsumed, buffer.position());
+        assertEquals(2, decoded.size());
+
+        // TEST 3
+        decoded.clear();
+        bytesConsumed = testDecoder.decodeMessages(data, 3, data.length - 3, decoded, 1);
+        assertEquals(1, decoded.size());
+        assertEquals(sentMessages.get(0).getMessageData().length, bytesConsumed);
+    }
+
+    /**
+     * Verify the following for messages that are split across reads of the stream:
+     * 1) a message cut off at the end of a read is held rather than logged as an error
+     * 2) the rest of the message arriving over the next reads completes it
+     * 3) messages past maxMessages are held for the next call rather than dropped
+     */
+    @Test
+    public void decodeMessagesSplitAcrossReads() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 3; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 4);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(InterfaceMessage message : sentMessages)
+            wire.write(message.getMessageData());
+        byte[] data = wire.toByteArray();
+        int firstLength = sentMessages.get(0).getMessageData().length;
+        int secondLength = sentMessages.get(1).getMessageData().length;
+
+        // TEST 1: The first read ends one byte into the second message and the second read ends one byte short of it
+        List<byte[]> reads = new ArrayList<>();
+        reads.add(Arrays.copyOfRange(data, 0, firstLength + 1));
+        reads.add(Arrays.copyOfRange(data, firstLength + 1, firstLength + secondLength - 1));
+        reads.add(Arrays.copyOfRange(data, firstLength + secondLength - 1, data.length));
+        ChunkedInputStream stream = new ChunkedInputStream(reads);
+        testDecoder.setInputStream(stream);
+
+        List<InterfaceMessage> decoded = testDecoder.decodeMessages();
+        assertEquals(1, decoded.size());
+        assertEquals(sentMessages.get(0), decoded.get(0));
+
+        // TEST 2
+        stream.nextChunk();
+        assertEquals(0, testDecoder.decodeMessages().size());
+        stream.nextChunk();
+        decoded = testDecoder.decodeMessages(1);
+        assertEquals(1, decoded.size());
+        assertEquals(sentMessages.get(1), decoded.get(0));
+
+        // TEST 3
+        decoded = testDecoder.decodeMessages();
+        assertEquals(1, decoded.size());
+        assertEquals(sentMessages.get(2), decoded.get(0));
+        assertFalse(testDecoder.hasErrorOccured());
+    }
+
+    /**
+     * Input stream that only makes one chunk of bytes available at a time, like reads off of a socket
+     */
+    protected static class ChunkedInputStream extends InputStream {
+        protected final List<byte[]> chunks;
+        protected int chunk = 0;
+        protected int position = 0;
+
+        ChunkedInputStream(List<byte[]> chunks){
+            this.chunks = chunks;
+        }
+
+        void nextChunk(){
+            chunk++;
+            position = 0;
+        }
+
+        @Override
+        public int available(){
+            return chunk < chunks.size() ? chunks.get(chunk).length - position : 0;
+        }
+
+        @Override
+        public int read(){
+            if(available() == 0)
+                return -1;
+            return chunks.get(chunk)[position++] & 0xFF;
+        }
+    }
+
+    /**
+     * Verify the following for pooled decoding:
+     * 1) pooled messages decode equal to the messages that were sent, with misses once a pool runs dry
+     * 2) a released message is filled in place by a later decode
+     * 3) releasing a message twice only gives it back once
+     */
+    @Test
+    public void decodeMessagesIntoPool() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        testDecoder.setMessagePoolingEnabled(true);
+        testDecoder.setMessagePoolSize(2);
+
+        InterfaceMessage sentMessage = Utils.getRandomStandardMessageWithId(1, 3);
+        List<BigInteger> idList = new ArrayList<>();
+        idList.add(BigInteger.valueOf(1));
+        testDecoder.addMessage(idList, sentMessage);
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(int i = 0; i < 3; i++)
+            wire.write(sentMessage.getMessageData());
+
+        // TEST 1
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        List<InterfaceMessage> decoded = testDecoder.decodeMessages();
+        assertEquals(3, decoded.size());
+        for(InterfaceMessage message : decoded){
+            assertTrue(message.isPooled());
+            assertEquals(sentMessage, message);
+        }
+        assertEquals(2, testDecoder.getPoolHits());
+        assertEquals(1, testDecoder.getPoolMisses());
+
+        // TEST 2
+        InterfaceMessage released = decoded.get(0);
+        released.release();
+        assertFalse(released.isPooled());
+        testDecoder.setInputStream(new ByteArrayInputStream(sentMessage.getMessageData()));
+        InterfaceMessage reused = testDecoder.decodeMessages().get(0);
+        assertSame(released, reused);
+        assertEquals(sentMessage, reused);
+
+        // TEST 3
+        MessagePool pool = testDecoder.getRegisteredMessage(idList).getPool();
+        reused.release();
+        reused.release();
+        assertEquals(1, pool.getAvailable());
+    }
+
+    /**
+     * Verify the following for decoding to a handler:
+     * 1) each message is handed to the handler in the order it was sent and the count of them is returned
+     * 2) a message split across reads is handed on once the rest of it arrives
+     * 3) a handler that releases each message keeps reusing the same pooled message, and the same field values array
+     */
+    @Test
+    public void decodeMessagesToHandler() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 3; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(InterfaceMessage message : sentMessages)
+            wire.write(message.getMessageData());
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        List<InterfaceMessage> handled = new ArrayList<>();
+        testDecoder.setInputStream(new ByteArrayInputStream(data));
+        assertEquals(3, testDecoder.decodeMessages(handled::add));
+        assertEquals(sentMessages, handled);
+
+        // TEST 2
+        handled.clear();
+        int splitAt = sentMessages.get(0).getMessageData().length + 1;
+        List<byte[]> chunks = new ArrayList<>();
+        chunks.add(Arrays.copyOfRange(data, 0, splitAt));
+        chunks.add(Arrays.copyOfRange(data, splitAt, data.length));
+        ChunkedInputStream stream = new ChunkedInputStream(chunks);
+        testDecoder.setInputStream(stream);
+        assertEquals(1, testDecoder.decodeMessages(handled::add));
+        stream.nextChunk();
+        assertEquals(2, testDecoder.decodeMessages(handled::add));
+        assertEquals(sentMessages, handled);
+
+        // TEST 3
+        testDecoder.setMessagePoolingEnabled(true);
+        testDecoder.setMessagePoolSize(1);
+        Set<InterfaceMessage> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        MessageHandler releasingHandler = message -> {
+            assertEquals(sentMessages.get(0), message);
+            seen.add(message);
+            message.release();
+        };
+        byte[] firstMessage = sentMessages.get(0).getMessageData();
+        long[] fieldValues = testDecoder.fieldValues;
+        for(int i = 0; i < 3; i++){
+            testDecoder.setInputStream(new ByteArrayInputStream(firstMessage));
+            assertEquals(1, testDecoder.decodeMessages(releasingHandler));
+        }
+        assertSame(fieldValues, testDecoder.fieldValues);
+        assertEquals(1, seen.size());
+        assertEquals(3, testDecoder.getPoolHits());
+    }
+
+    /**
+     * Verify the following for swapping in a new dictionary:
+     * 1) a swap made while a range is being decoded does not change how the rest of that range is decoded
+     * 2) the next decode uses the new dictionary, and message types that did not change keep their registration
+     * 3) the decoder the dictionary came from is left as it was, subscribing on one does not change the other
+     * 4) a dictionary reloaded from a save file is swapped in, and one from a different type of decoder is refused
+     */
+    @Test
+    public void replaceDictionary() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        InterfaceMessage firstMessage = Utils.getRandomStandardMessageWithId(1, 3);
+        InterfaceMessage secondMessage = Utils.getRandomStandardMessageWithId(2, 3);
+        List<BigInteger> firstIds = Arrays.asList(BigInteger.valueOf(1));
+        List<BigInteger> secondIds = Arrays.asList(BigInteger.valueOf(2));
+        testDecoder.addMessage(firstIds, firstMessage);
+
+        // Replaces the first message with the second, built up on its own decoder
+        StaticIdDecoder newDictionary = new StaticIdDecoder(null);
+        newDictionary.addIdPeekInfo(0, 8);
+        newDictionary.addMessage(secondIds, secondMessage);
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(int i = 0; i < 3; i++)
+            wire.write(firstMessage.getMessageData());
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        List<InterfaceMessage> decoded = new ArrayList<>();
+        int bytesConsumed = testDecoder.decodeMessages(data, 0, data.length, message -> {
+            if(decoded.isEmpty())
+                testDecoder.replaceDictionary(newDictionary);
+            decoded.add(message);
+        }, Integer.MAX_VALUE);
+        assertEquals(data.length, bytesConsumed);
+        assertEquals(Arrays.asList(firstMessage, firstMessage, firstMessage), decoded);
+
+        // TEST 2
+        assertNull(testDecoder.getRegisteredMessage(firstIds));
+        assertEquals(testDecoder, newDictionary);
+        decoded.clear();
+        assertEquals(0, testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE));
+        testDecoder.decodeMessages(secondMessage.getMessageData(), 0, secondMessage.getMessageData().length, decoded, Integer.MAX_VALUE);
+        assertEquals(Arrays.asList(secondMessage), decoded);
+
+        newDictionary.addMessage(firstIds, firstMessage);
+        testDecoder.addMessage(firstIds, firstMessage);
+        RegisteredMessage firstRegistration = testDecoder.getRegisteredMessage(firstIds);
+        testDecoder.replaceDictionary(newDictionary);
+        assertSame(firstRegistration, testDecoder.getRegisteredMessage(firstIds));
+
+        // TEST 3
+        assertNotSame(newDictionary.getRegisteredMessage(secondIds), testDecoder.getRegisteredMessage(secondIds));
+        testDecoder.subscribe(firstIds);
+        assertFalse(testDecoder.getRegisteredMessage(secondIds).isSubscribed());
+        assertTrue(newDictionary.getRegisteredMessage(secondIds).isSubscribed());
+        decoded.clear();
+        newDictionary.decodeMessages(secondMessage.getMessageData(), 0, secondMessage.getMessageData().length, decoded, Integer.MAX_VALUE);
+        assertEquals(Arrays.asList(secondMessage), decoded);
+        testDecoder.clearSubscriptions();
+
+        // TEST 4
+        File saveFile = File.createTempFile("dictionary", ".json");
+        saveFile.deleteOnExit();
+        StaticIdDecoder fileDictionary = new StaticIdDecoder(null);
+        fileDictionary.addIdPeekInfo(0, 8);
+        fileDictionary.addMessage(secondIds, secondMessage);
+        try(FileOutputStream out = new FileOutputStream(saveFile)){
+            out.write(SaveLoadUtils.Instance.getInterfaceDecoderSaveString(fileDictionary).getBytes(StandardCharsets.UTF_8));
+        }
+        testDecoder.replaceDictionaryFromFile(saveFile.getPath());
+        assertEquals(fileDictionary, testDecoder);
+
+        try {
+            testDecoder.replaceDictionary(new DynamicIdDecoder());
+            fail("A static decoder should not take the dictionary of a dynamic one");
+        }
+        catch(IllegalArgumentException e){
+            // Expected
+        }
+    }
+
+    /**
+     * Verify the following for columnar decoding:
+     * 1) each field of every message of the columns type lands in its row, with the column type of the field
+     * 2) messages of other types are stepped over without taking up room in the columns
+     * 3) reading off of the stream stops once the columns are full and holds the rest for the next batch
+     */
+    @Test
+    public void decodeColumns() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        InterfaceMessage columnsTemplate = createColumnsMessage();
+        InterfaceMessage otherMessage = Utils.getRandomStandardMessageWithId(1, 3);
+        testDecoder.addMessage(Arrays.asList(BigInteger.valueOf(7)), columnsTemplate);
+        testDecoder.addMessage(Arrays.asList(BigInteger.valueOf(1)), otherMessage);
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        wire.write(encodeColumnsMessage(columnsTemplate, -5, 1.5f, Math.E, 2));
+        wire.write(otherMessage.getMessageData());
+        wire.write(encodeColumnsMessage(columnsTemplate, 100, -0.25f, -1e300, 9));
+        wire.write(encodeColumnsMessage(columnsTemplate, -16384, 0f, 0.0, 0));
+        wire.write(otherMessage.getMessageData());
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        MessageColumns columns = new MessageColumns(testDecoder.getRegisteredMessage(Arrays.asList(BigInteger.valueOf(7))), 4);
+        int countField = columns.getFieldIndex("Count");
+        int temperatureField = columns.getFieldIndex("Temperature");
+        int angleField = columns.getFieldIndex("Angle");
+        int modeField = columns.getFieldIndex("Mode");
+        assertEquals(MessageColumns.ColumnType.LONG, columns.getColumnType(countField));
+        assertEquals(MessageColumns.ColumnType.DOUBLE, columns.getColumnType(temperatureField));
+        assertEquals(MessageColumns.ColumnType.INT, columns.getColumnType(modeField));
+
+        int bytesConsumed = testDecoder.decodeColumns(data, 0, data.length, columns);
+        assertEquals(3, columns.getRowCount());
+        assertArrayEquals(new long[]{-5, 100, -16384}, Arrays.copyOf(columns.getLongColumn(countField), 3));
+        assertArrayEquals(new double[]{1.5, -0.25, 0}, Arrays.copyOf(columns.getDoubleColumn(temperatureField), 3), 0.0);
+        assertArrayEquals(new double[]{Math.E, -1e300, 0}, Arrays.copyOf(columns.getDoubleColumn(angleField), 3), 0.0);
+        assertArrayEquals(new int[]{2, 9, 0}, Arrays.copyOf(columns.getIntColumn(modeField), 3));
+
+        // TEST 2
+        assertEquals(data.length, bytesConsumed);
+        wire.reset();
+        wire.write(otherMessage.getMessageData());
+        wire.write(otherMessage.getMessageData());
+        wire.write(encodeColumnsMessage(columnsTemplate, 1, 1, 1, 1));
+        wire.write(encodeColumnsMessage(columnsTemplate, 2, 2, 2, 2));
+        byte[] mixedData = wire.toByteArray();
+        MessageColumns twoRows = new MessageColumns(columns.getRegisteredMessage(), 2);
+        assertEquals(mixedData.length, testDecoder.decodeColumns(mixedData, 0, mixedData.length, twoRows));
+        assertEquals(2, twoRows.getRowCount());
+
+        // TEST 3
+        columns.clear();
+        testDecoder.setInputStream(new ByteArrayInputStream(data));
+        assertEquals(3, testDecoder.decodeColumns(columns));
+        assertEquals(0, testDecoder.decodeColumns(columns));
+        columns.clear();
+        wire.reset();
+        for(int i = 0; i < 6; i++)
+            wire.write(encodeColumnsMessage(columnsTemplate, i, i, i, i));
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(4, testDecoder.decodeColumns(columns));
+        assertTrue(columns.isFull());
+        columns.clear();
+        assertEquals(2, testDecoder.decodeColumns(columns));
+        assertEquals(5, columns.getLongColumn(countField)[1]);
+        assertFalse(testDecoder.hasErrorOccured());
+    }
+
+    /**
+     * Creates a message with an 8 bit ID of 7 and a word holding a signed count, a float, a double and an enum
+     */
+    protected InterfaceMessage createColumnsMessage() throws Exception {
+        StandardMessage message = (StandardMessage) Utils.getRandomStandardMessageWithId(7, 0);
+        StandardDataWord word = new StandardDataWord();
+        word.setNumberOfBytes(15);
+
+        LongDataField count = new LongDataField(true);
+        count.setName("Count");
+        count.setBitLength(15);
+        count.setBitOffset(1);
+        word.addDataField(count);
+
+        Ieee754FloatDataField temperature = new Ieee754FloatDataField();
+        temperature.setName("Temperature");
+        temperature.setBitOffset(16);
+        word.addDataField(temperature);
+
+        Ieee754DoubleDataField angle = new Ieee754DoubleDataField();
+        angle.setName("Angle");
+        angle.setBitOffset(48);
+        word.addDataField(angle);
+
+        EnumDataField mode = new EnumDataField();
+        mode.setName("Mode");
+        mode.setBitLength(4);
+        mode.setBitOffset(112);
+        word.addDataField(mode);
+
+        message.addDataWord(word);
+        message.setMessageName("ColumnsMessage");
+        message.initializeMessageBinaryString();
+        return message;
+    }
+
+    protected byte[] encodeColumnsMessage(InterfaceMessage template, long count, float temperature, double angle, int mode) throws Exception {
+        InterfaceMessage message = template.clone();
+        InterfaceDataWord word = message.getDataWords().get(1);
+        ((LongDataField) word.getDataFields().get(0)).setLong(count);
+        ((Ieee754FloatDataField) word.getDataFields().get(1)).setFloat(temperature);
+        ((Ieee754DoubleDataField) word.getDataFields().get(2)).setDouble(angle);
+        word.getDataFields().get(3).setRawBits(mode);
+        word.updateChangedFields();
+        message.recalculateMessageAsBinaryString();
+
+        byte[] messageAsBytes = new byte[message.getEncodedLength()];
+        message.encodeTo(messageAsBytes, 0);
+        return messageAsBytes;
+    }
+
+    /**
+     * Verify the following for resyncing past corrupt data:
+     * 1) without resyncing decoding stops at the corrupt data
+     * 2) resyncing by byte skips the corrupt bytes, counts them and decodes every message after them
+     * 3) resyncing by bit finds a message that no longer starts on a byte
+     */
+    @Test
+    public void decodeMessagesWithResync() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 1; id < 3; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        wire.write(sentMessages.get(0).getMessageData());
+        wire.write(new byte[]{(byte)0xFF, (byte)0xEE, (byte)0xDD});
+        wire.write(sentMessages.get(1).getMessageData());
+        wire.write(sentMessages.get(0).getMessageData());
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        List<InterfaceMessage> decoded = new ArrayList<>();
+        testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE);
+        assertEquals(1, decoded.size());
+
+        // TEST 2
+        testDecoder.setResyncMode(StaticIdDecoder.ResyncMode.BYTE);
+        decoded.clear();
+        assertEquals(data.length, testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE));
+        assertEquals(3, decoded.size());
+        assertEquals(sentMessages.get(1), decoded.get(1));
+        assertEquals(sentMessages.get(0), decoded.get(2));
+        assertEquals(3, testDecoder.getResyncSkippedBytes());
+        assertEquals(1, testDecoder.getErrorLog().getCount(DecoderErrorLog.ErrorKind.RESYNC));
+
+        // TEST 3: Three junk bits push every message off of its byte
+        String shifted = "101" + sentMessages.get(0).getMessageAsSerialString() + sentMessages.get(1).getMessageAsSerialString() + "00000";
+        byte[] shiftedData = BitUtils.getByteArrayFromBinaryString(shifted);
+        testDecoder.setResyncMode(StaticIdDecoder.ResyncMode.BIT);
+        decoded.clear();
+        testDecoder.decodeMessages(shiftedData, 0, shiftedData.length, decoded, Integer.MAX_VALUE);
+        assertEquals(2, decoded.size());
+        assertEquals(sentMessages.get(0), decoded.get(0));
+        assertEquals(sentMessages.get(1), decoded.get(1));
+        assertEquals(3, testDecoder.getResyncSkippedBits() - 3 * 8);
+    }
+
+    /**
+     * Verify the following for parallel decoding:
+     * 1) every message is decoded in the order it was in the buffer when the work is split across threads
+     * 2) the stream version decodes the same messages as decodeMessages
+     */
+    @Test
+    public void decodeMessagesInParallel() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+        testDecoder.setParallelDecodeBatchSize(16);
+
+        List<InterfaceMessage> messageTypes = new ArrayList<>();
+        for(int id = 0; id < 5; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            messageTypes.add(message);
+        }
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(int i = 0; i < 500; i++){
+            InterfaceMessage message = messageTypes.get((i * 7) % messageTypes.size());
+            sentMessages.add(message);
+            wire.write(message.getMessageData());
+        }
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<InterfaceMessage> decoded = new ArrayList<>();
+            assertEquals(data.length, testDecoder.decodeMessagesInParallel(data, 0, data.length, decoded, pool));
+            assertEquals(sentMessages, decoded);
+
+            // TEST 2
+            testDecoder.setInputStream(new ByteArrayInputStream(data));
+            assertEquals(sentMessages, testDecoder.decodeMessagesInParallel(pool));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Verify the following for subscriptions:
+     * 1) without subscriptions every message is decoded
+     * 2) once subscribed by name or by ID's only those messages are decoded and the rest are counted as skipped
+     * 3) clearing the subscriptions decodes every message again
+     */
+    @Test
+    public void decodeSubscribedMessages() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(int id = 0; id < 4; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+            wire.write(message.getMessageData());
+        }
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        List<InterfaceMessage> decoded = new ArrayList<>();
+        testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE);
+        assertEquals(sentMessages, decoded);
+
+        // TEST 2
+        testDecoder.subscribe(sentMessages.get(1).getMessageName());
+        List<BigInteger> lastId = new ArrayList<>();
+        lastId.add(BigInteger.valueOf(3));
+        testDecoder.subscribe(lastId);
+        decoded.clear();
+        assertEquals(data.length, testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE));
+        assertEquals(2, decoded.size());
+        assertEquals(sentMessages.get(1), decoded.get(0));
+        assertEquals(sentMessages.get(3), decoded.get(1));
+        assertEquals(2, testDecoder.getUnsubscribedMessagesSkipped());
+
+        testDecoder.unsubscribe(sentMessages.get(1).getMessageName());
+        decoded.clear();
+        testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE);
+        assertEquals(1, decoded.size());
+        assertEquals(sentMessages.get(3), decoded.get(0));
+
+        // TEST 3
+        testDecoder.clearSubscriptions();
+        decoded.clear();
+        testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE);
+        assertEquals(sentMessages, decoded);
+    }
+
+    /**
+     * Verify the following for flyweight decoding:
+     * 1) a view is handed back for every message in order with the right message type
+     * 2) every field read through the view matches the field on the message that was sent
+     * 3) detaching a view gives back a full message equal to the one that was sent
+     */
+    @Test
+    public void decodeMessageViews() throws Exception {
+        StaticIdDecoder testDecoder = new StaticIdDecoder(null);
+        testDecoder.addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 3; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 2);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for(int i = 0; i < 6; i++)
+            wire.write(BitUtils.getByteArrayFromBinaryString(sentMessages.get(i % 3).getMessageAsSerialString().toString()));
+        testDecoder.setInputStream(new ByteArrayInputStream(wire.toByteArray()));
+
+        List<InterfaceMessage> detached = new ArrayList<>();
+        int viewCount = testDecoder.decodeMessageViews( view -> {
+            InterfaceMessage sent = sentMessages.get(detached.size() % 3);
+
+            // TEST 1
+            assertEquals(sent.getMessageName(), view.getMessageName());
+
+            // TEST 2, random words reuse field names so go by the layouts wire order rather than by name
+            int fieldIndex = 0;
+            for(InterfaceDataWord word : sent.getDataWords()){
+                for(InterfaceDataField field : word.getDataFields()){
+                    assertEquals(new BigInteger(field.getDataBinaryString(), 2), view.getBigInteger(fieldIndex));
+                    fieldIndex++;
+                }
+            }
+            assertEquals(view.getLong(0), view.getLong("Id"));
+
+            try {
+                detached.add(view.detach());
+            }
+            catch(Exception e){
+                fail(e.getMessage());
+            }
+        });
+
+        // TEST 3
+        assertEquals(6, viewCount);
+        for(int i = 0; i < detached.size(); i++)
+            assertEquals(sentMessages.get(i % 3), detached.get(i));
+    }
 }
\ No newline at end of file
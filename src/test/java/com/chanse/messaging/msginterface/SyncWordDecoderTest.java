@@ -0,0 +1,68 @@
+package com.chanse.messaging.msginterface;
+
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.messages.InterfaceMessage;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the SyncWordDecoder
+ */
+public class SyncWordDecoderTest {
+
+    /**
+     * Verify the following:
+     * 1) messages behind sync words are decoded in order
+     * 2) junk between messages and a message the dispatcher does not know are skipped to the next sync word
+     * 3) a sync word cut off at the end of the data is held rather than skipped
+     */
+    @Test
+    public void decodeMessages() throws Exception {
+        SyncWordDecoder testDecoder = new SyncWordDecoder();
+        testDecoder.setSyncWord(new byte[]{(byte)0xFA, (byte)0xF3, (byte)0x20});
+        testDecoder.getDispatcher().addIdPeekInfo(0, 8);
+
+        List<InterfaceMessage> sentMessages = new ArrayList<>();
+        for(int id = 0; id < 3; id++){
+            InterfaceMessage message = Utils.getRandomStandardMessageWithId(id, 3);
+            List<BigInteger> idList = new ArrayList<>();
+            idList.add(BigInteger.valueOf(id));
+            testDecoder.getDispatcher().addMessage(idList, message);
+            sentMessages.add(message);
+        }
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        byte[] sync = testDecoder.getSyncWord();
+        wire.write(sync);
+        wire.write(sentMessages.get(0).getMessageData());
+        // TEST 2 junk and an unknown message
+        wire.write(new byte[]{1, 2, 3});
+        wire.write(sync);
+        wire.write(new byte[]{(byte)0x99, 4, 5});
+        wire.write(sync);
+        wire.write(sentMessages.get(1).getMessageData());
+        wire.write(sync);
+        wire.write(sentMessages.get(2).getMessageData());
+        // TEST 3 the start of a sync word
+        wire.write(sync, 0, 2);
+        byte[] data = wire.toByteArray();
+
+        // TEST 1
+        List<InterfaceMessage> decoded = new ArrayList<>();
+        int consumed = testDecoder.decodeMessages(data, 0, data.length, decoded, Integer.MAX_VALUE);
+        assertEquals(sentMessages, decoded);
+
+        // TEST 2
+        assertEquals(1, testDecoder.getFramesSkipped());
+        assertEquals(3 + 3, testDecoder.getBytesSkipped());
+
+        // TEST 3
+        assertEquals(data.length - 2, consumed);
+    }
+}
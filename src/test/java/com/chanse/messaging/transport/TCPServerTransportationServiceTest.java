@@ -0,0 +1,219 @@
+package com.chanse.messaging.transport;
+
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.messages.InterfaceMessage;
+import com.chanse.messaging.msginterface.StaticIdDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for serving many clients at once from the TCPServerTransportationService
+ */
+public class TCPServerTransportationServiceTest {
+
+    TCPServerTransportationService server = new TCPServerTransportationService();
+    StaticIdDecoder serverDecoder = new StaticIdDecoder();
+
+    InterfaceMessage message1 = Utils.getRandomStandardMessageWithId(1, 2);
+    InterfaceMessage message2 = Utils.getRandomStandardMessageWithId(2, 2);
+
+    List<Socket> clients = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        serverDecoder.addIdPeekInfo(0, 8);
+        serverDecoder.addMessage(Collections.singletonList(BigInteger.valueOf(1)), message1);
+        serverDecoder.addMessage(Collections.singletonList(BigInteger.valueOf(2)), message2);
+
+        // Port 0 has the system pick a free port
+        server.setReceivePort(0);
+        server.setWaitTimeoutSeconds(5);
+        server.setDecoder(serverDecoder);
+        server.setup();
+        assertEquals(TransportService.Statuses.SET_UP, server.getMyStatus());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        for(Socket client : clients)
+            client.close();
+        server.disconnect();
+    }
+
+    /**
+     * Verify the following:
+     * 1) several clients are served at once, each with its own clone of the decoder
+     * 2) a message split across writes on one connection is not mixed up with the bytes of another connection
+     * 3) a unicast send only reaches its connection and a broadcast reaches every connection
+     */
+    @Test
+    public void serveManyClients() throws Exception {
+        Socket client1 = connectClient();
+        Socket client2 = connectClient();
+        server.connect();
+        assertEquals(TransportService.Statuses.CONNECTED, server.getMyStatus());
+        waitFor(() -> server.getConnections().size() == 2);
+
+        // TEST 1 and 2
+        TCPServerTransportationService.ClientConnection connection1 = connectionFor(1);
+        TCPServerTransportationService.ClientConnection connection2 = connectionFor(2);
+        List<InterfaceMessage> received1 = new ArrayList<>();
+        List<InterfaceMessage> received2 = new ArrayList<>();
+        byte[] data1 = message1.getMessageData();
+        byte[] data2 = message2.getMessageData();
+        OutputStream out1 = client1.getOutputStream();
+        OutputStream out2 = client2.getOutputStream();
+        out1.write(data1, 0, 2);
+        out1.flush();
+        out2.write(data2);
+        out2.flush();
+        waitFor(() -> connection2.receiveMessages(received2::add) > 0);
+        assertEquals(0, connection1.receiveMessages(received1::add));
+        out1.write(data1, 2, data1.length - 2);
+        out1.write(data1);
+        out1.flush();
+        waitFor(() -> {
+            connection1.receiveMessages(received1::add);
+            return received1.size() == 2;
+        });
+
+        assertEquals(Arrays.asList(message1, message1), received1);
+        assertEquals(Arrays.asList(message2), received2);
+        assertNotSame(serverDecoder, connection1.getDecoder());
+        assertNotSame(connection1.getDecoder(), connection2.getDecoder());
+        assertEquals(serverDecoder, connection1.getDecoder());
+        assertFalse(connection1.getDecoder().hasErrorOccured());
+        assertFalse(connection2.getDecoder().hasErrorOccured());
+
+        out2.write(data2);
+        out2.flush();
+        List<InterfaceMessage> receivedFromAll = new ArrayList<>();
+        waitFor(() -> receivedFromAll.addAll(server.receiveMessages()));
+        assertEquals(Arrays.asList(message2), receivedFromAll);
+
+        // TEST 3
+        assertTrue(server.sendMessage(connection2.getConnectionId(), message1));
+        server.sendMessage(data2);
+        assertArrayEquals(data2, readBytes(client1, data2.length));
+        assertArrayEquals(data1, readBytes(client2, data1.length));
+        assertArrayEquals(data2, readBytes(client2, data2.length));
+        assertFalse(server.sendMessage(-1, data1));
+    }
+
+    /**
+     * Verify the following:
+     * 1) subscribing on the decoder of one connection does not change what another connection decodes
+     * 2) a connection holding maxQueuedMessages stops reading its socket, and every message still arrives once they
+     * are received
+     * 3) messages of a client that has disconnected can still be received once no client is connected
+     */
+    @Test
+    public void connectionsAreIndependent() throws Exception {
+        byte[] data1 = message1.getMessageData();
+        server.setMaxQueuedMessages(2);
+        // One message per read so the connection stops reading as soon as it holds 2
+        server.setReadBufferSize(data1.length);
+        Socket client1 = connectClient();
+        Socket client2 = connectClient();
+        server.connect();
+        waitFor(() -> server.getConnections().size() == 2);
+        TCPServerTransportationService.ClientConnection connection1 = connectionFor(1);
+        TCPServerTransportationService.ClientConnection connection2 = connectionFor(2);
+
+        // TEST 1
+        connection1.getDecoder().subscribe(message2.getMessageName());
+        OutputStream out1 = client1.getOutputStream();
+        OutputStream out2 = client2.getOutputStream();
+        out1.write(data1);
+        out1.write(message2.getMessageData());
+        out1.flush();
+        out2.write(data1);
+        out2.flush();
+        List<InterfaceMessage> received1 = new ArrayList<>();
+        List<InterfaceMessage> received2 = new ArrayList<>();
+        waitFor(() -> {
+            connection1.receiveMessages(received1::add);
+            connection2.receiveMessages(received2::add);
+            return received1.size() == 1 && received2.size() == 1;
+        });
+        assertEquals(Arrays.asList(message2), received1);
+        assertEquals(Arrays.asList(message1), received2);
+
+        // TEST 2
+        for(int i = 0; i < 10; i++)
+            out2.write(data1);
+        out2.flush();
+        waitFor(connection2::isReadingPaused);
+        Thread.sleep(100);
+        assertEquals(2, connection2.getQueuedMessageCount());
+        received2.clear();
+        waitFor(() -> {
+            connection2.receiveMessages(received2::add);
+            return received2.size() == 10;
+        });
+        assertEquals(Collections.nCopies(10, message1), received2);
+        assertTrue(connection2.isOpen());
+
+        // TEST 3
+        client2.close();
+        out1.write(message2.getMessageData());
+        out1.flush();
+        client1.close();
+        waitFor(() -> !connection1.isOpen() && !connection2.isOpen());
+        assertFalse(server.isConnected());
+        assertEquals(Arrays.asList(message2), server.receiveMessages());
+        assertTrue(server.getConnections().isEmpty());
+        assertFalse(connection1.getDecoder().hasErrorOccured());
+        assertEquals(0, server.getErrorLog().getTotalCount());
+    }
+
+    protected Socket connectClient() throws Exception {
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * @return the servers connection to the n'th client connected, counting from 1
+     */
+    protected TCPServerTransportationService.ClientConnection connectionFor(int clientNumber){
+        for(TCPServerTransportationService.ClientConnection connection : server.getConnections()){
+            if(connection.getChannel().socket().getPort() == clients.get(clientNumber - 1).getLocalPort())
+                return connection;
+        }
+        return null;
+    }
+
+    protected static byte[] readBytes(Socket client, int length) throws Exception {
+        client.setSoTimeout(5000);
+        byte[] bytes = new byte[length];
+        new DataInputStream(client.getInputStream()).readFully(bytes);
+        return bytes;
+    }
+
+    protected static void waitFor(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!condition.met()){
+            if(System.currentTimeMillis() > deadline)
+                fail("Timed out waiting on the server");
+            Thread.sleep(10);
+        }
+    }
+
+    protected interface Condition {
+        boolean met();
+    }
+}
@@ -0,0 +1,137 @@
+package com.chanse.messaging.utils;
+
+import com.chanse.messaging.Utils;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the primitive bit engine. Most tests compare against the old string based way of reading bits since
+ * that is known to be correct, just slow.
+ */
+public class BitCodecTest {
+
+    // 00111100 11111111 10000000 00000000 00000001 10000001
+    static final byte[] testInputStream1 = new byte[]{60, -1, -128, 0, 1, -127};
+
+    /**
+     * Builds the binary string of the entire buffer the way BitUtils used to
+     */
+    private static String slowBinaryString(byte[] data){
+        return BitUtils.getBinaryStringFromBigInt(new BigInteger(1, data), data.length*8);
+    }
+
+    private static byte[] randomBytes(int count){
+        byte[] data = new byte[count];
+        Utils.myRandom.nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void readBitsKnownValues() {
+        assertEquals(1, BitCodec.readBits(testInputStream1, 0, 16, 1));
+        assertEquals(0, BitCodec.readBits(testInputStream1, 0, 1, 1));
+        assertEquals(15, BitCodec.readBits(testInputStream1, 0, 0, 6));
+        assertEquals(499696, BitCodec.readBits(testInputStream1, 0, 0, 21));
+        assertEquals(58720257, BitCodec.readBits(testInputStream1, 0, 14, 26));
+        // Same read as above but starting the stream one byte further in
+        assertEquals(58720257, BitCodec.readBits(testInputStream1, 1, 6, 26));
+    }
+
+    /**
+     * Verify the following against the slow string implementation:
+     * 1) every offset and length up to 64 bits reads the same value
+     * 2) fields wider than 64 bits read the same value through the BigInteger fallback
+     */
+    @Test
+    public void readBitsMatchesStringImplementation() {
+        for(int run = 0; run < 20; run++) {
+            byte[] data = randomBytes(24);
+            String binary = slowBinaryString(data);
+
+            // TEST 1
+            for(int offset = 0; offset < 64; offset++){
+                for(int length = 1; length <= 64; length++){
+                    BigInteger expected = new BigInteger(binary.substring(offset, offset+length), 2);
+                    long actual = BitCodec.readBits(data, 0, offset, length);
+                    assertEquals(expected, BitCodec.toUnsignedBigInteger(actual));
+                }
+            }
+
+            // TEST 2
+            for(int offset = 0; offset < 16; offset++){
+                int length = 65 + Utils.myRandom.nextInt(100);
+                BigInteger expected = new BigInteger(binary.substring(offset, offset+length), 2);
+                assertEquals(expected, BitCodec.readBigBits(data, 0, offset, length));
+            }
+        }
+    }
+
+    /**
+     * Writes random values at random positions and makes sure that the value reads back and none of the
+     * surrounding bits were touched
+     */
+    @Test
+    public void writeBits() {
+        for(int run = 0; run < 1000; run++){
+            byte[] data = randomBytes(16);
+            String before = slowBinaryString(data);
+
+            int length = 1 + Utils.myRandom.nextInt(64);
+            int offset = Utils.myRandom.nextInt(16*8 - length + 1);
+            long value = Utils.myRandom.nextLong() & BitCodec.maskFor(length);
+
+            BitCodec.writeBits(data, 0, offset, length, value);
+            assertEquals(value, BitCodec.readBits(data, 0, offset, length));
+
+            String after = slowBinaryString(data);
+            assertEquals(before.substring(0, offset), after.substring(0, offset));
+            assertEquals(before.substring(offset+length), after.substring(offset+length));
+        }
+    }
+
+    @Test
+    public void writeBigBits() {
+        byte[] data = new byte[32];
+        BigInteger value = new BigInteger(150, Utils.myRandom);
+        BitCodec.writeBigBits(data, 0, 13, 150, value);
+        assertEquals(value, BitCodec.readBigBits(data, 0, 13, 150));
+    }
+
+    @Test
+    public void byteBufferReadWrite() {
+        byte[] data = randomBytes(20);
+        ByteBuffer heap = ByteBuffer.wrap(data.clone());
+        ByteBuffer direct = ByteBuffer.allocateDirect(20);
+        direct.put(data);
+        direct.position(3);
+        heap.position(3);
+
+        for(int offset = 0; offset < 40; offset++){
+            for(int length = 1; length <= 64; length++){
+                long expected = BitCodec.readBits(data, 3, offset, length);
+                assertEquals(expected, BitCodec.readBits(heap, offset, length));
+                assertEquals(expected, BitCodec.readBits(direct, offset, length));
+            }
+        }
+
+        BitCodec.writeBits(direct, 5, 30, 123456789L);
+        assertEquals(123456789L, BitCodec.readBits(direct, 5, 30));
+        assertEquals(3, direct.position());
+    }
+
+    @Test
+    public void binaryStrings() {
+        byte[] data = randomBytes(10);
+        String binary = slowBinaryString(data);
+        assertEquals(binary, BitCodec.readBinaryString(data, 0, 0, 80));
+        assertEquals(binary.substring(11, 40), BitCodec.readBinaryString(data, 0, 11, 29));
+        assertArrayEquals(data, BitCodec.binaryStringToBytes(binary));
+
+        assertEquals("00000101001", BitCodec.toBinaryString(41, 11));
+        assertEquals(41, BitCodec.parseBinaryString("00000101001"));
+    }
+}
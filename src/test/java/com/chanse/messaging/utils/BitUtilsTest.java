@@ -129,6 +129,43 @@ public class BitUtilsTest {
         }
     }
 
+    /**
+     * Verify the following on random messages filled from random data:
+     * 1) a lazily filled message has all of its fields stale and no changed fields or change flags on its words
+     * 2) the lazily filled message is equal to the same message filled eagerly, both its fields and its data
+     * 3) reading a field clears its stale flag
+     */
+    @Test
+    public void fillMessageFromDataLazily() throws Exception {
+        for( int i = 0; i < 100; i ++){
+            InterfaceMessage randomMessage = Utils.getRandomStandardMessage(5);
+            byte[] randomData = new byte[randomMessage.getEncodedLength()];
+            Utils.myRandom.nextBytes(randomData);
+
+            InterfaceMessage eagerMessage = randomMessage.clone();
+            InterfaceMessage lazyMessage = randomMessage.clone();
+            BitUtils.fillMessageFromData(eagerMessage, randomData);
+            BitUtils.fillMessageFromData(lazyMessage, randomData, true);
+
+            // TEST 1
+            for(InterfaceDataWord word : lazyMessage.getDataWords()){
+                assertEquals(-1, word.nextDirtyField(0));
+                assertFalse(word.isFieldDataHasChanged());
+                for(InterfaceDataField field : word.getDataFields())
+                    assertTrue(field.isStale());
+            }
+
+            // TEST 2
+            assertEquals(eagerMessage, lazyMessage);
+
+            // TEST 3
+            for(InterfaceDataWord word : lazyMessage.getDataWords()){
+                for(InterfaceDataField field : word.getDataFields())
+                    assertFalse(field.isStale());
+            }
+        }
+    }
+
     /**
      * Test generate a number of random message words. Then gets the message as a byte array and tries to re-create the message
      * from the raw data. Verifies that the binary string it started with matches the binary string it reads from bytes.
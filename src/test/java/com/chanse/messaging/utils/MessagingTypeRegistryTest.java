@@ -0,0 +1,58 @@
+package com.chanse.messaging.utils;
+
+import com.chanse.messaging.fields.IntegerDataField;
+import com.chanse.messaging.fields.InterfaceDataField;
+import com.chanse.messaging.messages.StandardMessage;
+import com.google.gson.JsonElement;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the MessagingTypeRegistry
+ */
+public class MessagingTypeRegistryTest {
+
+    /**
+     * Field type that is not part of the module, so it is only found through reflection
+     */
+    public static class ExternalDataField extends IntegerDataField {
+    }
+
+    /**
+     * Verify the following:
+     * 1) types of the module are created and found by name
+     * 2) a type that was never registered is found through its constructor and then kept
+     * 3) a registered factory is what clone uses to create the copy
+     * 4) a registered factory is what loading uses to create the loaded object
+     */
+    @Test
+    public void newInstance() throws Exception {
+        // TEST 1
+        assertEquals(StandardMessage.class, MessagingTypeRegistry.newInstance(StandardMessage.class).getClass());
+        assertEquals(IntegerDataField.class, MessagingTypeRegistry.classFor(IntegerDataField.class.getName()));
+        assertTrue(MessagingTypeRegistry.newInstance(IntegerDataField.class.getName()) instanceof IntegerDataField);
+
+        // TEST 2
+        InterfaceDataField field = MessagingTypeRegistry.newInstance(ExternalDataField.class);
+        assertTrue(field instanceof ExternalDataField);
+        field.setName("Counted");
+        field.setBitLength(8);
+        InterfaceDataField clone = field.clone();
+        assertEquals(field, clone);
+
+        // TEST 3
+        int[] factoryCalls = new int[1];
+        MessagingTypeRegistry.register(ExternalDataField.class, () -> {
+            factoryCalls[0]++;
+            return new ExternalDataField();
+        });
+        assertEquals(field, field.clone());
+        assertEquals(1, factoryCalls[0]);
+
+        // TEST 4
+        JsonElement fieldAsJson = SaveLoadUtils.Instance.myRegisteredGson.toJsonTree(field, InterfaceDataField.class);
+        assertEquals(field, SaveLoadUtils.Instance.myRegisteredGson.fromJson(fieldAsJson, InterfaceDataField.class));
+        assertEquals(2, factoryCalls[0]);
+    }
+}
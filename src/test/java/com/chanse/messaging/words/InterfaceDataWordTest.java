@@ -1,7 +1,14 @@
 package com.chanse.messaging.words;
 
+import com.chanse.messaging.Utils;
+import com.chanse.messaging.fields.LongDataField;
 import org.junit.Test;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -9,8 +16,25 @@ import static org.junit.Assert.*;
  */
 public class InterfaceDataWordTest {
 
+    /**
+     * Verify the following:
+     * 1) a clone has the same data as the word it was cloned from
+     * 2) the clone holds its own copy of the data so changing one does not change the other
+     */
     @Test
     public void testClone() {
+        InterfaceDataWord randomWord = Utils.getRandomStandardDataWord(8);
+        String originalData = randomWord.getWordDataAsBinaryString();
+
+        // TEST 1
+        InterfaceDataWord clone = randomWord.clone();
+        assertEquals(randomWord, clone);
+        assertEquals(originalData, clone.getWordDataAsBinaryString());
+
+        // TEST 2
+        clone.getWordData()[0] = (byte)~clone.getWordData()[0];
+        assertEquals(originalData, randomWord.getWordDataAsBinaryString());
+        assertNotEquals(originalData, clone.getWordDataAsBinaryString());
     }
 
     @Test
@@ -25,15 +49,76 @@ public class InterfaceDataWordTest {
     public void removeDataField() {
     }
 
+    /**
+     * Verify that word listeners are opt in and are told which field changed
+     */
     @Test
-    public void addDataListener() {
+    public void addDataListener() throws Exception {
+        InterfaceDataWord word = createWordOfLongFields(4);
+        word.updateChangedFields();
+
+        List<PropertyChangeEvent> events = new ArrayList<>();
+        PropertyChangeListener listener = events::add;
+        word.addDataListener(listener);
+        ((LongDataField) word.getDataFields().get(2)).setLong(1);
+        assertEquals(1, events.size());
+        assertSame(word.getDataFields().get(2), events.get(0).getNewValue());
+
+        word.removeDataListener(listener);
+        ((LongDataField) word.getDataFields().get(1)).setLong(1);
+        assertEquals(1, events.size());
+        assertEquals(1, word.nextDirtyField(0));
     }
 
     @Test
     public void removeDataListener() {
     }
 
+    /**
+     * Verify the following on a word with more than 64 fields so the overflow dirty bits are used:
+     * 1) adding fields marks them dirty and updating writes and clears them
+     * 2) changing a field only marks that field dirty, including fields past the 64th
+     * 3) only dirty fields are written into the word data
+     */
     @Test
-    public void updateChangedFields() {
+    public void updateChangedFields() throws Exception {
+        InterfaceDataWord word = createWordOfLongFields(70);
+
+        // TEST 1
+        assertTrue(word.isFieldDataHasChanged());
+        word.updateChangedFields();
+        assertFalse(word.isFieldDataHasChanged());
+        assertEquals(-1, word.nextDirtyField(0));
+
+        // TEST 2
+        ((LongDataField) word.getDataFields().get(3)).setLong(1);
+        ((LongDataField) word.getDataFields().get(66)).setLong(1);
+        assertEquals(3, word.nextDirtyField(0));
+        assertEquals(66, word.nextDirtyField(4));
+        assertEquals(-1, word.nextDirtyField(67));
+
+        // TEST 3, flip a bit of field 10 under the word. It is not dirty so updating must leave it alone
+        word.getWordData()[1] = (byte) 0x20;
+        word.updateChangedFields();
+        assertEquals(-1, word.nextDirtyField(0));
+        assertEquals('1', word.getWordDataAsBinaryString().charAt(3));
+        assertEquals('1', word.getWordDataAsBinaryString().charAt(10));
+        assertEquals('1', word.getWordDataAsBinaryString().charAt(66));
+    }
+
+    /**
+     * Creates a word of one bit long fields that have all been written into the words data
+     */
+    protected InterfaceDataWord createWordOfLongFields(int fieldCount) {
+        StandardDataWord word = new StandardDataWord();
+        word.setNumberOfBytes((fieldCount + 7) / 8);
+        for(int i = 0; i < fieldCount; i++){
+            LongDataField field = new LongDataField();
+            field.setName("Bit"+i);
+            field.setBitLength(1);
+            field.setBitOffset(i);
+            word.addDataField(field);
+        }
+        return word;
     }
 }
\ No newline at end of file